@@ -26,6 +26,7 @@ import org.springframework.aop.IntroductionAdvisor;
 import org.springframework.aop.MethodMatcher;
 import org.springframework.aop.PointcutAdvisor;
 import org.springframework.aop.framework.adapter.GlobalAdvisorAdapterRegistry;
+import org.springframework.core.jfr.FlightRecorderEvents;
 
 /**
  * Utility methods for use by AdviceChainFactory implementations.
@@ -48,6 +49,7 @@ public abstract class AdvisorChainFactoryUtils {
 	 * method matcher that needs evaluation at runtime)
 	 */
 	public static List calculateInterceptorsAndDynamicInterceptionAdvice(Advised config, Object proxy, Method method, Class targetClass) {
+		Object event = FlightRecorderEvents.beginAdvisorChain();
 		List interceptors = new ArrayList(config.getAdvisors().length);
 		for (int i = 0; i < config.getAdvisors().length; i++) {
 			Advisor advisor = config.getAdvisors()[i];
@@ -77,6 +79,9 @@ public abstract class AdvisorChainFactoryUtils {
 				}
 			}
 		}	// for
+		if (event != null) {
+			FlightRecorderEvents.endAdvisorChain(event, method, targetClass, config.getAdvisors().length, interceptors.size());
+		}
 		return interceptors;
 	}	// calculateInterceptorsAndDynamicInterceptionAdvice
 	
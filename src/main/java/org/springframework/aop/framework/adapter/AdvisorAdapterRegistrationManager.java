@@ -20,6 +20,7 @@ import org.springframework.aop.framework.adapter.AdvisorAdapter;
 import org.springframework.aop.framework.adapter.GlobalAdvisorAdapterRegistry;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
 
 /**
  * BeanPostProcessor implementation that "registers" instances of any non-default AdvisorAdapters
@@ -32,7 +33,14 @@ import org.springframework.beans.factory.config.BeanPostProcessor;
  * @author Dmitriy Kopylenko
  * @version $Id: AdvisorAdapterRegistrationManager.java,v 1.2 2004/03/18 02:46:09 trisberg Exp $
  */
-public class AdvisorAdapterRegistrationManager implements BeanPostProcessor {
+public class AdvisorAdapterRegistrationManager implements SelectiveBeanPostProcessor {
+
+	/**
+	 * Only AdvisorAdapters need to be registered.
+	 */
+	public boolean isApplicableTo(Class beanClass) {
+		return AdvisorAdapter.class.isAssignableFrom(beanClass);
+	}
 
 	/**
 	 * @see BeanPostProcessor#postProcessBeforeInitialization(Object, String)
@@ -21,6 +21,7 @@ import org.apache.commons.pool.PoolableObjectFactory;
 import org.apache.commons.pool.impl.GenericObjectPool;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.jfr.FlightRecorderEvents;
 
 /**
  * Jakarta Commons pooling implementation extending AbstractPoolingInvokerInterceptor
@@ -56,7 +57,15 @@ public class CommonsPoolTargetSource extends AbstractPoolingTargetSource
 	}
 
 	public Object getTarget() throws Exception {
-		return this.pool.borrowObject();
+		Object event = FlightRecorderEvents.beginTargetAcquisition();
+		try {
+			return this.pool.borrowObject();
+		}
+		finally {
+			if (event != null) {
+				FlightRecorderEvents.endTargetAcquisition(event, getTargetBeanName(), getActive(), getFree());
+			}
+		}
 	}
 
 	public void releaseTarget(Object target) throws Exception {
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.target;
+
+import org.springframework.aop.TargetSource;
+import org.springframework.beans.factory.BeanFactory;
+
+/**
+ * TargetSource that obtains its target bean from a BeanFactory on the
+ * first invocation, and keeps returning that instance afterwards.
+ * Allows for injecting a proxy instead of a bean that is expensive to
+ * create and rarely used, deferring its creation until it is needed.
+ * <p>
+ * 首次调用时才从BeanFactory获取目标bean的TargetSource。
+ *
+ * @see org.springframework.beans.factory.config.RuntimeBeanReference#isLazy
+ */
+public class LazyInitTargetSource implements TargetSource {
+
+	private final BeanFactory beanFactory;
+
+	private final String targetBeanName;
+
+	private final Class targetClass;
+
+	private volatile Object target;
+
+	/**
+	 * Create a new LazyInitTargetSource.
+	 * @param beanFactory the BeanFactory to obtain the target bean from
+	 * @param targetBeanName name of the target bean in the BeanFactory
+	 * @param targetClass class of the target bean, known before its creation
+	 */
+	public LazyInitTargetSource(BeanFactory beanFactory, String targetBeanName, Class targetClass) {
+		this.beanFactory = beanFactory;
+		this.targetBeanName = targetBeanName;
+		this.targetClass = targetClass;
+	}
+
+	public String getTargetBeanName() {
+		return targetBeanName;
+	}
+
+	public Class getTargetClass() {
+		return targetClass;
+	}
+
+	/**
+	 * Not static, as the target isn't available before the first invocation.
+	 * @see org.springframework.aop.TargetSource#isStatic()
+	 */
+	public boolean isStatic() {
+		return false;
+	}
+
+	public Object getTarget() {
+		Object target = this.target;
+		if (target == null) {
+			synchronized (this) {
+				target = this.target;
+				if (target == null) {
+					target = this.beanFactory.getBean(this.targetBeanName);
+					this.target = target;
+				}
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Return whether the target bean has been obtained yet.
+	 */
+	public boolean isInitialized() {
+		return (this.target != null);
+	}
+
+	public void releaseTarget(Object target) {
+	}
+
+	public String toString() {
+		return "Lazy init target source: target bean '" + targetBeanName + "'" +
+				(isInitialized() ? " (initialized)" : " (not initialized)");
+	}
+
+}
@@ -20,29 +20,19 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyDescriptor;
 import java.beans.PropertyEditor;
 import java.beans.PropertyEditorManager;
-import java.io.File;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
-import java.util.Properties;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
-import org.springframework.beans.propertyeditors.ClassEditor;
-import org.springframework.beans.propertyeditors.FileEditor;
-import org.springframework.beans.propertyeditors.LocaleEditor;
-import org.springframework.beans.propertyeditors.PropertiesEditor;
-import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.beans.propertyeditors.URLEditor;
 import org.springframework.util.StringUtils;
 
 /**
@@ -54,7 +44,9 @@ import org.springframework.util.StringUtils;
  * The caller is responsible for loading a target class.
  *
  * <p>Note: Auto-registers all default property editors (not the custom ones)
- * in the org.springframework.beans.propertyeditors package.
+ * in the org.springframework.beans.propertyeditors package, through the
+ * default ConversionService. Values that no custom editor applies to are
+ * converted by thread-safe Converters of the ConversionService.
  * Applications can either use a standard PropertyEditorManager to register a
  * custom editor before using a BeanWrapperImpl instance, or call the instance's
  * registerCustomEditor method to register an editor for the particular instance.
@@ -70,33 +62,21 @@ import org.springframework.util.StringUtils;
  * @since 15 April 2001
  * @version $Id: BeanWrapperImpl.java,v 1.33 2004/03/19 16:09:16 jhoeller Exp $
  * @see #registerCustomEditor
+ * @see #setConversionService
+ * @see ConversionService
  * @see PropertyEditorManager
- * @see ClassEditor
- * @see FileEditor
- * @see LocaleEditor
- * @see PropertiesEditor
- * @see StringArrayPropertyEditor
- * @see URLEditor
+ * @see org.springframework.beans.propertyeditors.ClassEditor
+ * @see org.springframework.beans.propertyeditors.FileEditor
+ * @see org.springframework.beans.propertyeditors.LocaleEditor
+ * @see org.springframework.beans.propertyeditors.PropertiesEditor
+ * @see org.springframework.beans.propertyeditors.StringArrayPropertyEditor
+ * @see org.springframework.beans.propertyeditors.URLEditor
  */
 public class BeanWrapperImpl implements BeanWrapper {
 
 	/** We'll create a lot of these objects, so we don't want a new logger every time */
 	private static final Log logger = LogFactory.getLog(BeanWrapperImpl.class);
 
-	/** Registry for default PropertyEditors */
-	private static final Map defaultEditors = new HashMap();
-
-	static {
-		// Register default editors in this class, for restricted environments.
-		// We're not using the JRE's PropertyEditorManager to avoid potential
-		// SecurityExceptions when running in a SecurityManager.
-		defaultEditors.put(Class.class, ClassEditor.class);
-		defaultEditors.put(File.class, FileEditor.class);
-		defaultEditors.put(Locale.class, LocaleEditor.class);
-		defaultEditors.put(Properties.class, PropertiesEditor.class);
-		defaultEditors.put(String[].class, StringArrayPropertyEditor.class);
-		defaultEditors.put(URL.class, URLEditor.class);
-	}
 
 
 	//---------------------------------------------------------------------
@@ -121,6 +101,12 @@ public class BeanWrapperImpl implements BeanWrapper {
 	 */
 	private CachedIntrospectionResults cachedIntrospectionResults;
 
+	/** Converters for values that no custom editor applies to */
+	private ConversionService conversionService = ConversionService.getDefault();
+
+	/** Whether to invoke read and write methods through generated accessors */
+	private boolean useGeneratedAccessors = false;
+
 
 	//---------------------------------------------------------------------
 	// Constructors
@@ -190,6 +176,37 @@ public class BeanWrapperImpl implements BeanWrapper {
 		return object.getClass();
 	}
 
+	/**
+	 * Set the ConversionService to convert values with that no custom editor
+	 * applies to. Default is the shared default ConversionService.
+	 * Applies to nested BeanWrappers created afterwards.
+	 */
+	public void setConversionService(ConversionService conversionService) {
+		if (conversionService == null) {
+			throw new IllegalArgumentException("conversionService must not be null");
+		}
+		this.conversionService = conversionService;
+	}
+
+	public ConversionService getConversionService() {
+		return conversionService;
+	}
+
+	/**
+	 * Set whether to invoke read and write methods through accessor classes
+	 * generated per property on first use, instead of via reflection.
+	 * Avoids argument arrays and reflective access checks on every access.
+	 * Properties of non-public classes or methods keep using reflection.
+	 * <p>Default is false. Applies to nested BeanWrappers created afterwards.
+	 */
+	public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+		this.useGeneratedAccessors = useGeneratedAccessors;
+	}
+
+	public boolean isUseGeneratedAccessors() {
+		return useGeneratedAccessors;
+	}
+
 	public Object getWrappedInstance() {
 		return object;
 	}
@@ -235,8 +252,9 @@ public class BeanWrapperImpl implements BeanWrapper {
 
 	public PropertyEditor findCustomEditor(Class requiredType, String propertyPath) {
 		if (propertyPath != null) {
-			BeanWrapperImpl bw = getBeanWrapperForPropertyPath(propertyPath);
-			return bw.doFindCustomEditor(requiredType, getFinalPath(propertyPath));
+			PropertyPath path = PropertyPath.forPath(propertyPath);
+			BeanWrapperImpl bw = (path.isNested() ? getBeanWrapperForPropertyPath(path) : this);
+			return bw.doFindCustomEditor(requiredType, path.getFinalToken().getPropertyPath());
 		}
 		else {
 			return doFindCustomEditor(requiredType, propertyPath);
@@ -281,16 +299,6 @@ public class BeanWrapperImpl implements BeanWrapper {
 	}
 
 
-	/**
-	 * Is the property nested? That is, does it contain the nested
-	 * property separator (usually ".").
-	 * @param path property path
-	 * @return boolean is the property nested
-	 */
-	private boolean isNestedProperty(String path) {
-		return path.indexOf(NESTED_PROPERTY_SEPARATOR) != -1;
-	}
-
 	/**
 	 * Get the last component of the path. Also works if not nested.
 	 * @param nestedPath property path we know is nested
@@ -305,23 +313,20 @@ public class BeanWrapperImpl implements BeanWrapper {
 	}
 
 	/**
-	 * Recursively navigate to return a BeanWrapper for the nested property path.
-	 * @param propertyPath property property path, which may be nested
+	 * Navigate to return a BeanWrapper for the nested property path.
+	 * @param propertyPath compiled property path, which may be nested
 	 * @return a BeanWrapper for the target bean
 	 */
-	private BeanWrapperImpl getBeanWrapperForPropertyPath(String propertyPath) {
-		int pos = propertyPath.indexOf(NESTED_PROPERTY_SEPARATOR);
-		// Handle nested properties recursively
-		if (pos > -1) {
-			String nestedProperty = propertyPath.substring(0, pos);
-			String nestedPath = propertyPath.substring(pos + 1);
-			logger.debug("Navigating to nested property '" + nestedProperty + "' of property path '" + propertyPath + "'");
-			BeanWrapperImpl nestedBw = getNestedBeanWrapper(nestedProperty);
-			return nestedBw.getBeanWrapperForPropertyPath(nestedPath);
-		}
-		else {
-			return this;
+	private BeanWrapperImpl getBeanWrapperForPropertyPath(PropertyPath propertyPath) {
+		BeanWrapperImpl bw = this;
+		for (int i = 0; i < propertyPath.size() - 1; i++) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Navigating to nested property '" + propertyPath.getToken(i).getPropertyPath() +
+				             "' of property path '" + propertyPath + "'");
+			}
+			bw = bw.getNestedBeanWrapper(propertyPath.getToken(i));
 		}
+		return bw;
 	}
 
 	/**
@@ -376,7 +381,7 @@ public class BeanWrapperImpl implements BeanWrapper {
 
 	private List getBeanWrappersForNestedProperty(String propertyPath, String nestedProperty, String nestedPath) {
 		logger.debug("Navigating to nested property '" + nestedProperty + "' of property path '" + propertyPath + "'");
-		BeanWrapperImpl nestedBw = getNestedBeanWrapper(nestedProperty);
+		BeanWrapperImpl nestedBw = getNestedBeanWrapper(PropertyPath.PropertyToken.parse(nestedProperty));
 		return nestedBw.getBeanWrappersForPropertyPath(nestedPath);
 	}
 
@@ -388,14 +393,13 @@ public class BeanWrapperImpl implements BeanWrapper {
 	 * @param nestedProperty property to create the BeanWrapper for
 	 * @return the BeanWrapper instance, either cached or newly created
 	 */
-	private BeanWrapperImpl getNestedBeanWrapper(String nestedProperty) {
+	private BeanWrapperImpl getNestedBeanWrapper(PropertyPath.PropertyToken nestedProperty) {
 		if (this.nestedBeanWrappers == null) {
 			this.nestedBeanWrappers = new HashMap();
 		}
 		// get value of bean property
-		String[] tokens = getPropertyNameTokens(nestedProperty);
-		Object propertyValue = getPropertyValue(tokens[0], tokens[1], tokens[2]);
-		String canonicalName = tokens[0];
+		Object propertyValue = getPropertyValue(nestedProperty);
+		String canonicalName = nestedProperty.getCanonicalName();
 		if (propertyValue == null) {
 			throw new NullValueInNestedPathException(getWrappedClass(), canonicalName);
 		}
@@ -405,6 +409,8 @@ public class BeanWrapperImpl implements BeanWrapper {
 		if (nestedBw == null) {
 			logger.debug("Creating new nested BeanWrapper for property '" + canonicalName + "'");
 			nestedBw = new BeanWrapperImpl(propertyValue, this.nestedPath + canonicalName + NESTED_PROPERTY_SEPARATOR);
+			nestedBw.setConversionService(this.conversionService);
+			nestedBw.setUseGeneratedAccessors(this.useGeneratedAccessors);
 			// inherit all type-specific PropertyEditors
 			if (this.customEditors != null) {
 				for (Iterator it = this.customEditors.keySet().iterator(); it.hasNext();) {
@@ -420,43 +426,30 @@ public class BeanWrapperImpl implements BeanWrapper {
 		}
 		else {
 			logger.debug("Using cached nested BeanWrapper for property '" + canonicalName + "'");
-		}
-		return nestedBw;
-	}
-
-	private String[] getPropertyNameTokens(String propertyName) {
-		String actualName = propertyName;
-		String key = null;
-		int keyStart = propertyName.indexOf('[');
-		if (keyStart != -1 && propertyName.endsWith("]")) {
-			actualName = propertyName.substring(0, keyStart);
-			key = propertyName.substring(keyStart + 1, propertyName.length() - 1);
-			if (key.startsWith("'") && key.endsWith("'")) {
-				key = key.substring(1, key.length() - 1);
-			}
-			else if (key.startsWith("\"") && key.endsWith("\"")) {
-				key = key.substring(1, key.length() - 1);
+			if (nestedBw.object != propertyValue) {
+				// the property has been set to another object since: switch the target,
+				// keeping custom editors registered for nested paths
+				nestedBw.object = propertyValue;
+				if (!nestedBw.cachedIntrospectionResults.getBeanClass().equals(propertyValue.getClass())) {
+					nestedBw.cachedIntrospectionResults = CachedIntrospectionResults.forClass(propertyValue.getClass());
+				}
 			}
 		}
-		String canonicalName = actualName;
-		if (key != null) {
-			canonicalName += "[" + key + "]";
-		}
-		return new String[] {canonicalName, actualName, key};
+		return nestedBw;
 	}
 
 
 	public Object getPropertyValue(String propertyName) throws BeansException {
-		if (isNestedProperty(propertyName)) {
-			BeanWrapper nestedBw = getBeanWrapperForPropertyPath(propertyName);
-			return nestedBw.getPropertyValue(getFinalPath(propertyName));
-		}
-		String[] tokens = getPropertyNameTokens(propertyName);
-		return getPropertyValue(tokens[0], tokens[1], tokens[2]);
+		PropertyPath path = PropertyPath.forPath(propertyName);
+		BeanWrapperImpl bw = (path.isNested() ? getBeanWrapperForPropertyPath(path) : this);
+		return bw.getPropertyValue(path.getFinalToken());
 	}
 
-	private Object getPropertyValue(String propertyName, String actualName, String key) {
-		PropertyDescriptor pd = getPropertyDescriptor(actualName);
+	private Object getPropertyValue(PropertyPath.PropertyToken token) {
+		String propertyName = token.getCanonicalName();
+		String actualName = token.getActualName();
+		String key = token.getKey();
+		PropertyDescriptor pd = this.cachedIntrospectionResults.getPropertyDescriptor(actualName);
 		Method readMethod = pd.getReadMethod();
 		if (readMethod == null) {
 			throw new FatalBeanException("Cannot get property '" + actualName + "': not readable", null);
@@ -465,7 +458,9 @@ public class BeanWrapperImpl implements BeanWrapper {
 			logger.debug("About to invoke read method [" + readMethod +
 			             "] on object of class [" + this.object.getClass().getName() + "]");
 		try {
-			Object value = readMethod.invoke(this.object, null);
+			GeneratedPropertyAccessor accessor = getGeneratedAccessor(pd);
+			Object value = (accessor != null && accessor.isReadable() ?
+			                accessor.getValue(this.object) : readMethod.invoke(this.object, null));
 			if (key != null) {
 				if (value == null) {
 					throw new FatalBeanException("Cannot access indexed value in property referenced in indexed property path '" +
@@ -473,16 +468,16 @@ public class BeanWrapperImpl implements BeanWrapper {
 				}
 				else if (value.getClass().isArray()) {
 					Object[] array = (Object[]) value;
-					return array[Integer.parseInt(key)];
+					return array[token.getIndex()];
 				}
 				else if (value instanceof List) {
 					List list = (List) value;
-					return list.get(Integer.parseInt(key));
+					return list.get(token.getIndex());
 				}
 				else if (value instanceof Set) {
 					// apply index to Iterator in case of a Set
 					Set set = (Set) value;
-					int index = Integer.parseInt(key);
+					int index = token.getIndex();
 					Iterator it = set.iterator();
 					for (int i = 0; it.hasNext(); i++) {
 						Object elem = it.next();
@@ -520,11 +515,20 @@ public class BeanWrapperImpl implements BeanWrapper {
 		}
 	}
 
+	/**
+	 * Return the generated accessor for the given property,
+	 * or null if generated accessors are off or not available for it.
+	 */
+	private GeneratedPropertyAccessor getGeneratedAccessor(PropertyDescriptor pd) {
+		return (this.useGeneratedAccessors ? this.cachedIntrospectionResults.getGeneratedAccessor(pd) : null);
+	}
+
 	public void setPropertyValue(String propertyName, Object value) throws BeansException {
-		if (isNestedProperty(propertyName)) {
+		PropertyPath path = PropertyPath.forPath(propertyName);
+		if (path.isNested()) {
 			try {
-				BeanWrapper nestedBw = getBeanWrapperForPropertyPath(propertyName);
-				nestedBw.setPropertyValue(new PropertyValue(getFinalPath(propertyName), value));
+				BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(path);
+				nestedBw.setPropertyValue(path.getFinalToken(), value);
 				return;
 			}
 			catch (NullValueInNestedPathException ex) {
@@ -536,12 +540,13 @@ public class BeanWrapperImpl implements BeanWrapper {
 				throw new NotWritablePropertyException(propertyName, getWrappedClass(), ex);
 			}
 		}
-		String[] tokens = getPropertyNameTokens(propertyName);
-		setPropertyValue(tokens[0], tokens[1], tokens[2], value);
+		setPropertyValue(path.getFinalToken(), value);
 	}
 
-	private void setPropertyValue(String propertyName, String actualName, String key, Object value)
-			throws BeansException {
+	private void setPropertyValue(PropertyPath.PropertyToken token, Object value) throws BeansException {
+		String propertyName = token.getCanonicalName();
+		String actualName = token.getActualName();
+		String key = token.getKey();
 		if (key != null) {
 			Object propValue = getPropertyValue(actualName);
 			if (propValue == null) {
@@ -550,11 +555,11 @@ public class BeanWrapperImpl implements BeanWrapper {
 			}
 			else if (propValue.getClass().isArray()) {
 				Object[] array = (Object[]) propValue;
-				array[Integer.parseInt(key)] = value;
+				array[token.getIndex()] = value;
 			}
 			else if (propValue instanceof List) {
 				List list = (List) propValue;
-				int index = Integer.parseInt(key);
+				int index = token.getIndex();
 				if (index < list.size()) {
 					list.set(index, value);
 				}
@@ -602,7 +607,13 @@ public class BeanWrapperImpl implements BeanWrapper {
 					logger.debug("About to invoke write method [" + writeMethod +
 											 "] on object of class [" + object.getClass().getName() + "]");
 				}
-				writeMethod.invoke(this.object, new Object[] { newValue });
+				GeneratedPropertyAccessor accessor = getGeneratedAccessor(pd);
+				if (accessor != null && accessor.isWritable()) {
+					accessor.setValue(this.object, newValue);
+				}
+				else {
+					writeMethod.invoke(this.object, new Object[] { newValue });
+				}
 				if (logger.isDebugEnabled()) {
 					String msg = "Invoked write method [" + writeMethod + "] with value ";
 					// only cause toString invocation of new value in case of simple property
@@ -728,8 +739,24 @@ public class BeanWrapperImpl implements BeanWrapper {
 		if (newValue != null) {
 
 			if (requiredType.isArray()) {
-				// convert individual elements to array elements
 				Class componentType = requiredType.getComponentType();
+				if (componentType.isPrimitive() && !hasCustomEditor(propertyName, requiredType) &&
+						!hasCustomEditor(null, componentType) &&
+						this.conversionService.getConverter(String.class, componentType) ==
+								PrimitiveConversions.getConverter(componentType)) {
+					// parse directly into a primitive array, without boxing
+					try {
+						Object result = PrimitiveConversions.toPrimitiveArray(newValue, componentType);
+						if (result != null) {
+							return result;
+						}
+					}
+					catch (IllegalArgumentException ex) {
+						throw new TypeMismatchException(createPropertyChangeEvent(propertyDescriptor, oldValue, newValue),
+																						requiredType, ex);
+					}
+				}
+				// convert individual elements to array elements
 				if (newValue instanceof List) {
 					List list = (List) newValue;
 					Object result = Array.newInstance(componentType, list.size());
@@ -758,30 +785,48 @@ public class BeanWrapperImpl implements BeanWrapper {
 			// value not of required type?
 			if (pe != null || !requiredType.isAssignableFrom(newValue.getClass())) {
 
-				if (newValue instanceof String[]) {
+				Converter converter = null;
+				if (pe == null) {
+					// no custom editor -> check the ConversionService
+					converter = this.conversionService.getConverter(newValue.getClass(), requiredType);
+				}
+
+				if (converter == null && newValue instanceof String[]) {
 					if (logger.isDebugEnabled()) {
 						logger.debug("Converting String array to comma-delimited String [" + newValue + "]");
 					}
 					newValue = StringUtils.arrayToCommaDelimitedString((String[]) newValue);
+					if (pe == null) {
+						converter = this.conversionService.getConverter(String.class, requiredType);
+					}
 				}
 
-				if (newValue instanceof String) {
-					if (pe == null) {
-						// no custom editor -> check BeanWrapper's default editors
-						pe = findDefaultEditor(requiredType);
-						if (pe == null) {
-							// no BeanWrapper default editor -> check standard JavaBean editors
-							pe = PropertyEditorManager.findEditor(requiredType);
-						}
+				if (converter != null) {
+					// stateless converter: no locking needed
+					if (logger.isDebugEnabled()) {
+						logger.debug("Converting value to [" + requiredType + "] using converter [" + converter + "]");
+					}
+					try {
+						newValue = converter.convert(newValue);
+					}
+					catch (IllegalArgumentException ex) {
+						throw new TypeMismatchException(createPropertyChangeEvent(propertyDescriptor, oldValue, newValue),
+																						requiredType, ex);
 					}
+				}
+
+				else if (newValue instanceof String) {
 					if (pe != null) {
 						// use PropertyEditor's setAsText in case of a String value
 						if (logger.isDebugEnabled()) {
 							logger.debug("Converting String to [" + requiredType + "] using property editor [" + pe + "]");
 						}
 						try {
-							pe.setAsText((String) newValue);
-							newValue = pe.getValue();
+							// custom editors may be shared with other BeanWrappers
+							synchronized (pe) {
+								pe.setAsText((String) newValue);
+								newValue = pe.getValue();
+							}
 						}
 						catch (IllegalArgumentException ex) {
 							throw new TypeMismatchException(createPropertyChangeEvent(propertyDescriptor, oldValue, newValue),
@@ -800,8 +845,10 @@ public class BeanWrapperImpl implements BeanWrapper {
 					// we just want to allow special PropertyEditors to override setValue
 					// for type conversion from non-String values to the required type.
 					try {
-						pe.setValue(newValue);
-						newValue = pe.getValue();
+						synchronized (pe) {
+							pe.setValue(newValue);
+							newValue = pe.getValue();
+						}
 					}
 					catch (IllegalArgumentException ex) {
 						throw new TypeMismatchException(createPropertyChangeEvent(propertyDescriptor, oldValue, newValue),
@@ -823,14 +870,13 @@ public class BeanWrapperImpl implements BeanWrapper {
 		return newValue;
 	}
 
-	private PropertyEditor findDefaultEditor(Class type) {
-		Class editorClass = (Class) defaultEditors.get(type);
-		if (editorClass != null) {
-			return (PropertyEditor) BeanUtils.instantiateClass(editorClass);
-		}
-		else {
-			return null;
-		}
+
+	/**
+	 * Return whether a custom editor is registered for the given type or property.
+	 */
+	private boolean hasCustomEditor(String propertyName, Class requiredType) {
+		return (this.customEditors != null && (this.customEditors.containsKey(requiredType) ||
+				(propertyName != null && this.customEditors.containsKey(propertyName))));
 	}
 
 
@@ -842,9 +888,10 @@ public class BeanWrapperImpl implements BeanWrapper {
 		if (propertyName == null) {
 			throw new FatalBeanException("Can't find property descriptor for null property");
 		}
-		if (isNestedProperty(propertyName)) {
-			BeanWrapper nestedBw = getBeanWrapperForPropertyPath(propertyName);
-			return nestedBw.getPropertyDescriptor(getFinalPath(propertyName));
+		PropertyPath path = PropertyPath.forPath(propertyName);
+		if (path.isNested()) {
+			BeanWrapperImpl nestedBw = getBeanWrapperForPropertyPath(path);
+			return nestedBw.getPropertyDescriptor(path.getFinalToken().getPropertyPath());
 		}
 		return this.cachedIntrospectionResults.getPropertyDescriptor(propertyName);
 	}
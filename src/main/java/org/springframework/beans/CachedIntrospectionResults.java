@@ -22,6 +22,7 @@ import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,6 +40,10 @@ import org.apache.commons.logging.LogFactory;
  * implements the factory design pattern, using a private constructor
  * and a public static forClass() method to obtain instances.
  *
+ * <p>The cache is attached to the introspected classes via a ClassValue:
+ * lookups need no locking, and cached results don't keep classes from
+ * being unloaded.
+ *
  * @author Rod Johnson
  * @since 05 May 2001
 *  @version $Id: CachedIntrospectionResults.java,v 1.8 2004/03/19 07:40:13 jhoeller Exp $
@@ -47,27 +52,24 @@ final class CachedIntrospectionResults {
 
 	private static final Log logger = LogFactory.getLog(CachedIntrospectionResults.class);
 
-	/** Map keyed by class containing CachedIntrospectionResults */
-	private static HashMap classCache = new HashMap();
+	/**
+	 * Holder of the CachedIntrospectionResults of each class. Values are
+	 * attached to the Class object itself, so they go away together with
+	 * the class and its ClassLoader, e.g. on redeployment of a web app.
+	 */
+	private static final ClassValue classCache = new ClassValue() {
+		protected Object computeValue(Class clazz) {
+			return new ResultsHolder(clazz);
+		}
+	};
 
 	/**
-	 * We might use this from the EJB tier, so we don't want to use synchronization.
-	 * Object references are atomic, so we can live with doing the occasional
-	 * unnecessary lookup at startup only.
+	 * Return the introspection results of the given class, introspecting it
+	 * on first access. Safe for concurrent use without locking once cached;
+	 * concurrent first accesses introspect the class only once.
 	 */
 	protected static CachedIntrospectionResults forClass(Class clazz) throws BeansException {
-		Object results = classCache.get(clazz);
-		if (results == null) {
-			// can throw BeansException
-			results = new CachedIntrospectionResults(clazz);
-			classCache.put(clazz, results);
-		}
-		else {
-			if (logger.isDebugEnabled()) {
-				logger.debug("Using cached introspection results for class " + clazz.getName());
-			}
-		}
-		return (CachedIntrospectionResults) results;
+		return ((ResultsHolder) classCache.get(clazz)).getResults();
 	}
 
 
@@ -76,6 +78,12 @@ final class CachedIntrospectionResults {
 	/** Property descriptors keyed by property name */
 	private Map propertyDescriptorMap;
 
+	/**
+	 * GeneratedPropertyAccessors keyed by property name, generated on first use.
+	 * Properties without generated accessor map to the PropertyDescriptor itself.
+	 */
+	private final Map generatedAccessors = new ConcurrentHashMap();
+
 	/**
 	 * Create new CachedIntrospectionResults instance fot the given class.
 	 */
@@ -115,4 +123,54 @@ final class CachedIntrospectionResults {
 		return pd;
 	}
 
+	/**
+	 * Return the generated accessor for the given property, generating it on
+	 * first access.
+	 * @return the accessor, or null if the property has to be accessed via reflection
+	 */
+	protected GeneratedPropertyAccessor getGeneratedAccessor(PropertyDescriptor pd) {
+		Object accessor = this.generatedAccessors.get(pd.getName());
+		if (accessor == null) {
+			accessor = GeneratedPropertyAccessor.forProperty(getBeanClass(), pd);
+			if (accessor == null) {
+				accessor = pd;
+			}
+			this.generatedAccessors.put(pd.getName(), accessor);
+		}
+		return (accessor instanceof GeneratedPropertyAccessor ? (GeneratedPropertyAccessor) accessor : null);
+	}
+
+
+	/**
+	 * Lazily introspects a class once. ClassValue may compute several holders
+	 * for a class under contention, but only one of them ever gets used.
+	 */
+	private static class ResultsHolder {
+
+		private final Class clazz;
+
+		private volatile CachedIntrospectionResults results;
+
+		private ResultsHolder(Class clazz) {
+			this.clazz = clazz;
+		}
+
+		private CachedIntrospectionResults getResults() throws BeansException {
+			CachedIntrospectionResults results = this.results;
+			if (results != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Using cached introspection results for class " + this.clazz.getName());
+				}
+				return results;
+			}
+			synchronized (this) {
+				if (this.results == null) {
+					// can throw BeansException, to be retried on next access
+					this.results = new CachedIntrospectionResults(this.clazz);
+				}
+				return this.results;
+			}
+		}
+	}
+
 }
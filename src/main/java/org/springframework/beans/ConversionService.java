@@ -0,0 +1,332 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.beans;
+
+import java.beans.PropertyEditor;
+import java.beans.PropertyEditorManager;
+import java.io.File;
+import java.net.URL;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.propertyeditors.ClassEditor;
+import org.springframework.beans.propertyeditors.DateTimeFormatConverter;
+import org.springframework.beans.propertyeditors.FileEditor;
+import org.springframework.beans.propertyeditors.LocaleEditor;
+import org.springframework.beans.propertyeditors.PropertiesEditor;
+import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.beans.propertyeditors.URLEditor;
+
+/**
+ * Thread-safe registry of Converters keyed by source and target type, used by
+ * BeanWrapperImpl for values that no custom PropertyEditor applies to.
+ *
+ * <p>The converter for a pair of types is resolved once and cached: converters
+ * registered for the source type or one of its supertypes or interfaces,
+ * else for String values the default editors of BeanWrapperImpl and the
+ * standard JavaBeans editors found by PropertyEditorManager. Such editors are
+ * stateful, so each thread gets its own editor instance, reused for all
+ * conversions on that thread. Conversions thus need no locking and, once
+ * resolved, don't allocate anything beyond the converted value.
+ *
+ * <p>Resolved converters are attached to the source types via a ClassValue,
+ * so they don't keep classes from being unloaded.
+ *
+ * <p>A shared default instance is used by all BeanWrappers unless configured
+ * otherwise. It cannot be modified: create a ConversionService of your own to
+ * register converters. As it lives as long as this class, it caches editors
+ * found by PropertyEditorManager and missing converters only for target types
+ * loaded by the bootstrap ClassLoader, which can't pin an application's
+ * ClassLoader. For other target types, it looks up the editor on every
+ * conversion, picking up editors registered with PropertyEditorManager later on.
+ * <p>
+ * 按(源类型, 目标类型)缓存转换器的线程安全转换服务。
+ *
+ * @see BeanWrapperImpl#setConversionService
+ * @see org.springframework.beans.factory.support.AbstractBeanFactory#setConversionService
+ */
+public class ConversionService {
+
+	private static final ConversionService defaultInstance = new ConversionService(true);
+
+	/** Marker for type pairs without converter */
+	private static final Object NO_CONVERTER = new Object();
+
+	/** Converter that returns the value itself, for assignable types */
+	private static final Converter IDENTITY = new Converter() {
+		public Object convert(Object source) {
+			return source;
+		}
+	};
+
+	/**
+	 * Return the shared default ConversionService, with the default converters only.
+	 */
+	public static ConversionService getDefault() {
+		return defaultInstance;
+	}
+
+
+	/** Whether this is the shared default instance */
+	private final boolean shared;
+
+	/** Registered converters: source type --> Map from target type to Converter */
+	private final ConcurrentHashMap converters = new ConcurrentHashMap();
+
+	/**
+	 * Resolved converters: source type --> Map from target type to Converter or
+	 * NO_CONVERTER. Replaced as a whole when converters get registered.
+	 */
+	private volatile ClassValue resolvedConverters = newResolvedConverters();
+
+
+	/**
+	 * Create a new ConversionService with the default converters, i.e. the
+	 * default PropertyEditors of BeanWrapperImpl for String values, and
+	 * editor-free converters of Strings to int, long, double and boolean
+	 * and their wrappers, and ISO-8601 converters of Strings to LocalDate,
+	 * LocalDateTime and Instant.
+	 */
+	public ConversionService() {
+		this(false);
+	}
+
+	private ConversionService(boolean shared) {
+		this.shared = shared;
+		registerConverter(String.class, int.class, PrimitiveConversions.INT_CONVERTER);
+		registerConverter(String.class, Integer.class, PrimitiveConversions.INT_CONVERTER);
+		registerConverter(String.class, long.class, PrimitiveConversions.LONG_CONVERTER);
+		registerConverter(String.class, Long.class, PrimitiveConversions.LONG_CONVERTER);
+		registerConverter(String.class, double.class, PrimitiveConversions.DOUBLE_CONVERTER);
+		registerConverter(String.class, Double.class, PrimitiveConversions.DOUBLE_CONVERTER);
+		registerConverter(String.class, boolean.class, PrimitiveConversions.BOOLEAN_CONVERTER);
+		registerConverter(String.class, Boolean.class, PrimitiveConversions.BOOLEAN_CONVERTER);
+		ZoneId zone = ZoneId.systemDefault();
+		registerConverter(String.class, LocalDate.class,
+				new DateTimeFormatConverter(LocalDate.class, DateTimeFormatter.ISO_LOCAL_DATE, zone, false));
+		registerConverter(String.class, LocalDateTime.class,
+				new DateTimeFormatConverter(LocalDateTime.class, DateTimeFormatter.ISO_LOCAL_DATE_TIME, zone, false));
+		registerConverter(String.class, Instant.class,
+				new DateTimeFormatConverter(Instant.class, DateTimeFormatter.ISO_INSTANT, zone, false));
+
+		// We're not using the JRE's PropertyEditorManager for these to avoid
+		// potential SecurityExceptions when running in a SecurityManager.
+		addEditorConverter(Class.class, ClassEditor.class);
+		addEditorConverter(File.class, FileEditor.class);
+		addEditorConverter(Locale.class, LocaleEditor.class);
+		addEditorConverter(Properties.class, PropertiesEditor.class);
+		addEditorConverter(String[].class, StringArrayPropertyEditor.class);
+		addEditorConverter(URL.class, URLEditor.class);
+	}
+
+	private void addEditorConverter(Class targetType, final Class editorClass) {
+		registerConverter(String.class, targetType, new EditorConverter(new Supplier() {
+			public Object get() {
+				return BeanUtils.instantiateClass(editorClass);
+			}
+		}));
+	}
+
+	/**
+	 * Register a converter for the given source and target type. Also applies to
+	 * subclasses and implementations of the source type, unless overridden there.
+	 * <p>Converters are meant to be registered before the service is used.
+	 * @param sourceType type of the values the converter accepts
+	 * @param targetType type the converter converts to
+	 * @param converter the thread-safe converter
+	 * @throws UnsupportedOperationException if this is the shared default instance
+	 */
+	public void addConverter(Class sourceType, Class targetType, Converter converter) {
+		if (this.shared) {
+			throw new UnsupportedOperationException(
+					"Cannot modify the shared default ConversionService: create a new ConversionService instead");
+		}
+		registerConverter(sourceType, targetType, converter);
+	}
+
+	private void registerConverter(Class sourceType, Class targetType, Converter converter) {
+		Map targetConverters = (Map) this.converters.get(sourceType);
+		if (targetConverters == null) {
+			targetConverters = new ConcurrentHashMap();
+			Map existing = (Map) this.converters.putIfAbsent(sourceType, targetConverters);
+			if (existing != null) {
+				targetConverters = existing;
+			}
+		}
+		targetConverters.put(targetType, converter);
+		// converters resolved so far may be superseded
+		this.resolvedConverters = newResolvedConverters();
+	}
+
+	/**
+	 * Return the converter for values of the given source type to the given
+	 * target type. Returns a converter returning the value itself if the target
+	 * type is assignable from the source type and no converter is registered.
+	 * @return the converter, or null if the value cannot be converted
+	 */
+	public Converter getConverter(Class sourceType, Class targetType) {
+		Map targetConverters = (Map) this.resolvedConverters.get(sourceType);
+		Object converter = targetConverters.get(targetType);
+		if (converter == null) {
+			converter = resolveRegisteredConverter(sourceType, targetType);
+			if (converter != null) {
+				targetConverters.put(targetType, converter);
+			}
+			else {
+				// JDK types can't pin any ClassLoader, so even the shared instance may cache them
+				boolean cacheable = (!this.shared || targetType.getClassLoader() == null);
+				converter = findEditorConverter(sourceType, targetType, cacheable);
+				if (cacheable) {
+					targetConverters.put(targetType, (converter != null ? converter : NO_CONVERTER));
+				}
+			}
+		}
+		return (converter != NO_CONVERTER ? (Converter) converter : null);
+	}
+
+	/**
+	 * Return whether values of the given source type can be converted to the given target type.
+	 */
+	public boolean canConvert(Class sourceType, Class targetType) {
+		return (getConverter(sourceType, targetType) != null);
+	}
+
+	/**
+	 * Convert the given value to the given target type.
+	 * @throws IllegalArgumentException if there's no converter for the value,
+	 * or if the converter cannot convert it
+	 */
+	public Object convert(Object value, Class targetType) throws IllegalArgumentException {
+		if (value == null) {
+			return null;
+		}
+		Converter converter = getConverter(value.getClass(), targetType);
+		if (converter == null) {
+			throw new IllegalArgumentException("No converter from [" + value.getClass().getName() +
+			                                   "] to [" + targetType.getName() + "]");
+		}
+		return converter.convert(value);
+	}
+
+	/**
+	 * Resolve a registered converter, or the identity converter for assignable types.
+	 * Such converters only refer to types that the source type or this service
+	 * refer to anyway, so they can be cached in any instance.
+	 */
+	private Converter resolveRegisteredConverter(Class sourceType, Class targetType) {
+		List hierarchy = new ArrayList();
+		collectTypeHierarchy(sourceType, hierarchy);
+		for (int i = 0; i < hierarchy.size(); i++) {
+			Map targetConverters = (Map) this.converters.get(hierarchy.get(i));
+			if (targetConverters != null && targetConverters.containsKey(targetType)) {
+				return (Converter) targetConverters.get(targetType);
+			}
+		}
+		if (targetType.isAssignableFrom(sourceType)) {
+			return IDENTITY;
+		}
+		return null;
+	}
+
+	/**
+	 * Find a standard JavaBeans editor for String values via PropertyEditorManager.
+	 * @param cacheable whether the converter will be cached, and thus has to
+	 * create an editor per thread instead of using the editor found
+	 */
+	private Converter findEditorConverter(Class sourceType, Class targetType, boolean cacheable) {
+		if (String.class.equals(sourceType)) {
+			final Class editorType = targetType;
+			final PropertyEditor editor = PropertyEditorManager.findEditor(editorType);
+			if (editor != null && !cacheable) {
+				// not cached: use the editor found for this conversion only
+				return new Converter() {
+					public Object convert(Object source) throws IllegalArgumentException {
+						editor.setAsText((String) source);
+						return editor.getValue();
+					}
+				};
+			}
+			if (editor != null) {
+				return new EditorConverter(new Supplier() {
+					public Object get() {
+						return PropertyEditorManager.findEditor(editorType);
+					}
+				});
+			}
+		}
+		return null;
+	}
+
+	private static ClassValue newResolvedConverters() {
+		return new ClassValue() {
+			protected Object computeValue(Class sourceType) {
+				return new ConcurrentHashMap();
+			}
+		};
+	}
+
+	/**
+	 * Collect the given type, its superclasses and its interfaces, most specific first.
+	 */
+	private static void collectTypeHierarchy(Class type, List hierarchy) {
+		for (Class clazz = type; clazz != null; clazz = clazz.getSuperclass()) {
+			hierarchy.add(clazz);
+		}
+		for (int i = 0; i < hierarchy.size(); i++) {
+			Class[] interfaces = ((Class) hierarchy.get(i)).getInterfaces();
+			for (int j = 0; j < interfaces.length; j++) {
+				if (!hierarchy.contains(interfaces[j])) {
+					hierarchy.add(interfaces[j]);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Converter for String values using a PropertyEditor per thread.
+	 */
+	private static class EditorConverter implements Converter {
+
+		private final ThreadLocal editors;
+
+		private EditorConverter(Supplier editorFactory) {
+			this.editors = ThreadLocal.withInitial(editorFactory);
+		}
+
+		public Object convert(Object source) throws IllegalArgumentException {
+			PropertyEditor editor = (PropertyEditor) this.editors.get();
+			editor.setAsText((String) source);
+			return editor.getValue();
+		}
+
+		public String toString() {
+			return "EditorConverter for [" + this.editors.get() + "]";
+		}
+	}
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.beans;
+
+/**
+ * Stateless converter of a value to a target type, registered with a
+ * ConversionService for a pair of source and target types.
+ * Unlike PropertyEditors, implementations must be thread-safe: the same
+ * converter gets used concurrently by all BeanWrappers sharing the service.
+ * <p>
+ * 无状态、线程安全的类型转换器。
+ *
+ * @see ConversionService#addConverter
+ */
+public interface Converter {
+
+	/**
+	 * Convert the given value, never null, to the target type.
+	 * @param source the value to convert
+	 * @return the converted value
+	 * @throws IllegalArgumentException if the value cannot be converted,
+	 * to be reported as TypeMismatchException
+	 */
+	Object convert(Object source) throws IllegalArgumentException;
+
+}
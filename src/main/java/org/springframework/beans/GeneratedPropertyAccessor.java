@@ -0,0 +1,143 @@
+package org.springframework.beans;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Accessor for a bean property that invokes its read and write methods through
+ * classes generated by LambdaMetafactory instead of reflection: no argument
+ * arrays, no access checks, and calls the JIT compiler can inline.
+ * <p>
+ * Only available for public methods of public classes visible from the
+ * ClassLoader of this class; other properties keep using reflection.
+ * <p>
+ * 通过LambdaMetafactory生成的类直接调用属性读写方法，替代反射调用。
+ *
+ * @see BeanWrapperImpl#setUseGeneratedAccessors
+ * @see CachedIntrospectionResults#getGeneratedAccessor
+ */
+final class GeneratedPropertyAccessor {
+
+	private static final MethodType READER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodType WRITER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	/** Generated getter, or null if not readable */
+	private final Function reader;
+
+	/** Generated setter, or null if not writable */
+	private final BiConsumer writer;
+
+
+	/**
+	 * Generate an accessor for the given property of the given class.
+	 * @return the accessor, or null if neither the read method nor the write
+	 * method can be invoked through a generated class
+	 */
+	static GeneratedPropertyAccessor forProperty(Class beanClass, PropertyDescriptor pd) {
+		if (!isVisible(beanClass)) {
+			return null;
+		}
+		Function reader = null;
+		BiConsumer writer = null;
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			Method readMethod = pd.getReadMethod();
+			if (isAccessible(readMethod)) {
+				MethodHandle handle = lookup.unreflect(readMethod);
+				CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+						READER_TYPE, handle, MethodType.methodType(wrap(readMethod.getReturnType()), readMethod.getDeclaringClass()));
+				reader = (Function) site.getTarget().invoke();
+			}
+			Method writeMethod = pd.getWriteMethod();
+			if (isAccessible(writeMethod)) {
+				MethodHandle handle = lookup.unreflect(writeMethod);
+				CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+						WRITER_TYPE, handle, MethodType.methodType(void.class, writeMethod.getDeclaringClass(),
+								wrap(writeMethod.getParameterTypes()[0])));
+				writer = (BiConsumer) site.getTarget().invoke();
+			}
+		}
+		catch (Throwable ex) {
+			// fall back to reflection for this property
+			return null;
+		}
+		return (reader != null || writer != null ? new GeneratedPropertyAccessor(reader, writer) : null);
+	}
+
+	/**
+	 * Check whether classes generated for our lookup can link to the given class.
+	 */
+	private static boolean isVisible(Class beanClass) {
+		try {
+			return (Class.forName(beanClass.getName(), false, GeneratedPropertyAccessor.class.getClassLoader()) == beanClass);
+		}
+		catch (Throwable ex) {
+			return false;
+		}
+	}
+
+	private static boolean isAccessible(Method method) {
+		return (method != null && Modifier.isPublic(method.getModifiers()) &&
+				Modifier.isPublic(method.getDeclaringClass().getModifiers()));
+	}
+
+	private static Class wrap(Class type) {
+		if (!type.isPrimitive()) {
+			return type;
+		}
+		return MethodType.methodType(type).wrap().returnType();
+	}
+
+
+	private GeneratedPropertyAccessor(Function reader, BiConsumer writer) {
+		this.reader = reader;
+		this.writer = writer;
+	}
+
+	public boolean isReadable() {
+		return (this.reader != null);
+	}
+
+	public boolean isWritable() {
+		return (this.writer != null);
+	}
+
+	/**
+	 * Invoke the read method on the given bean.
+	 * @throws InvocationTargetException wrapping any exception thrown by the
+	 * read method, like reflective invocation
+	 */
+	public Object getValue(Object bean) throws InvocationTargetException {
+		try {
+			return this.reader.apply(bean);
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+	/**
+	 * Invoke the write method on the given bean.
+	 * @throws InvocationTargetException wrapping any exception thrown by the
+	 * write method, or a ClassCastException if the value is of the wrong type
+	 */
+	public void setValue(Object bean, Object value) throws InvocationTargetException {
+		try {
+			this.writer.accept(bean, value);
+		}
+		catch (Throwable ex) {
+			throw new InvocationTargetException(ex);
+		}
+	}
+
+}
@@ -18,11 +18,11 @@
 package org.springframework.beans;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.util.StringUtils;
 
@@ -30,19 +30,44 @@ import org.springframework.util.StringUtils;
  * Default implementation of the PropertyValues interface.
  * Allows simple manipulation of properties, and provides constructors
  * to support deep copy and construction from a Map.
+ *
+ * <p>Lookups by property name use a hash index once there are enough
+ * property values for a linear scan to get expensive, e.g. for beans
+ * with hundreds of properties. Insertion order is kept either way.
  * @author Rod Johnson
  * @since 13 May 2001
  */
 public class MutablePropertyValues implements PropertyValues, Serializable {
 
-	/** List of PropertyValue objects */
-	private List propertyValueList = new ArrayList();
+	/** Shared by all empty instances, replaced on first write */
+	private static final PropertyValue[] EMPTY_PROPERTY_VALUES = new PropertyValue[0];
+
+	/** Number of property values from which on lookups by name use nameIndex */
+	private static final int INDEX_THRESHOLD = 16;
+
+	/**
+	 * The PropertyValue objects, in the order they were added, followed by
+	 * spare capacity for further additions. Replaced by a new array on removals.
+	 */
+	private PropertyValue[] propertyValueArray = EMPTY_PROPERTY_VALUES;
+
+	/** Number of PropertyValue objects in propertyValueArray */
+	private int propertyValueCount;
+
+	/** The PropertyValue objects trimmed to their number, or null if not built yet */
+	private transient PropertyValue[] trimmedPropertyValues;
 
 	/**
-	 * Cached PropertyValues for quicker access.
-	 * Updated on writes.
+	 * Property name --> Integer position in propertyValueArray, or null below
+	 * INDEX_THRESHOLD property values. Copies of this object start out sharing
+	 * the index of their source. Entries are only ever added or overwritten, never
+	 * removed, so a copy can rely on a name missing from a shared index; positions
+	 * found are checked against propertyValueArray.
 	 */
-	private PropertyValue[] propertyValueArray = new PropertyValue[0];
+	private transient Map nameIndex;
+
+	/** Whether nameIndex is the index of the source of this copy, to be copied before writing */
+	private transient boolean nameIndexShared;
 
 	/**
 	 * Creates a new empty MutablePropertyValues object.
@@ -65,11 +90,37 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 		// there is no replacement of existing property values
 		if (source != null) {
 			PropertyValue[] pvs = source.getPropertyValues();
-			this.propertyValueArray = new PropertyValue[pvs.length];
-			for (int i = 0; i < pvs.length; i++) {
-				PropertyValue newPv = new PropertyValue(pvs[i].getName(), pvs[i].getValue());
-				propertyValueArray[i] = newPv;
-				propertyValueList.add(newPv);
+			if (pvs.length > 0) {
+				this.propertyValueArray = new PropertyValue[pvs.length];
+				for (int i = 0; i < pvs.length; i++) {
+					this.propertyValueArray[i] = new PropertyValue(pvs[i].getName(), pvs[i].getValue());
+				}
+				this.propertyValueCount = pvs.length;
+				if (source instanceof MutablePropertyValues && ((MutablePropertyValues) source).nameIndex != null) {
+					// same names at the same positions: share the index instead of rebuilding it
+					this.nameIndex = ((MutablePropertyValues) source).nameIndex;
+					this.nameIndexShared = true;
+				}
+				else if (pvs.length >= INDEX_THRESHOLD) {
+					buildNameIndex();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Construct a new PropertyValues object using the given List of
+	 * PropertyValue objects as-is, without copying them.
+	 * <p>Intended for callers that have already built independent
+	 * PropertyValue instances, with unique property names.
+	 * @param propertyValueList List of PropertyValue objects
+	 */
+	public MutablePropertyValues(List propertyValueList) {
+		if (propertyValueList != null && !propertyValueList.isEmpty()) {
+			this.propertyValueArray = (PropertyValue[]) propertyValueList.toArray(new PropertyValue[propertyValueList.size()]);
+			this.propertyValueCount = this.propertyValueArray.length;
+			if (this.propertyValueCount >= INDEX_THRESHOLD) {
+				buildNameIndex();
 			}
 		}
 	}
@@ -82,14 +133,6 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 	 */
 	public MutablePropertyValues(Map source) {
 		addPropertyValues(source);
-		recache();
-	}
-
-	/**
-	 * Rebuild the cached array
-	 */
-	private void recache() {
-		this.propertyValueArray = (PropertyValue[]) this.propertyValueList.toArray(new PropertyValue[propertyValueList.size()]);
 	}
 
 	/**
@@ -104,7 +147,6 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 			for (int i = 0; i < pvs.length; i++) {
 				addPropertyValue(new PropertyValue(pvs[i].getName(), pvs[i].getValue()));
 			}
-			recache();
 		}
 	}
 
@@ -120,7 +162,6 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 				String key = (String) it.next();
 				addPropertyValue(new PropertyValue(key, source.get(key)));
 			}
-			recache();
 		}
 	}
 
@@ -130,15 +171,24 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 	 * @param pv PropertyValue object to add
 	 */
 	public void addPropertyValue(PropertyValue pv) {
-		for (int i = 0; i < this.propertyValueList.size(); i++) {
-			PropertyValue currentPv = (PropertyValue) this.propertyValueList.get(i);
-			if (currentPv.getName().equals(pv.getName())) {
-				setPropertyValueAt(pv, i);
-				return;
-			}
+		int existing = indexOf(pv.getName());
+		if (existing != -1) {
+			setPropertyValueAt(pv, existing);
+			return;
+		}
+		int position = this.propertyValueCount;
+		if (position == this.propertyValueArray.length) {
+			this.propertyValueArray = Arrays.copyOf(this.propertyValueArray, Math.max(4, position * 2));
+		}
+		this.propertyValueArray[position] = pv;
+		this.propertyValueCount = position + 1;
+		this.trimmedPropertyValues = null;
+		if (this.nameIndex != null) {
+			getWritableNameIndex().put(pv.getName(), Integer.valueOf(position));
+		}
+		else if (this.propertyValueCount >= INDEX_THRESHOLD) {
+			buildNameIndex();
 		}
-		this.propertyValueList.add(pv);
-		recache();
 	}
 
 	/**
@@ -157,8 +207,25 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 	 * @param pv the PropertyValue to remove
 	 */
 	public void removePropertyValue(PropertyValue pv) {
-		this.propertyValueList.remove(pv);
-		recache();
+		for (int i = 0; i < this.propertyValueCount; i++) {
+			if (this.propertyValueArray[i].equals(pv)) {
+				// new array: arrays returned by getPropertyValues stay unchanged
+				PropertyValue[] newArray = (this.propertyValueCount == 1 ? EMPTY_PROPERTY_VALUES :
+						new PropertyValue[this.propertyValueCount - 1]);
+				System.arraycopy(this.propertyValueArray, 0, newArray, 0, i);
+				System.arraycopy(this.propertyValueArray, i + 1, newArray, i, newArray.length - i);
+				this.propertyValueArray = newArray;
+				this.propertyValueCount = newArray.length;
+				this.trimmedPropertyValues = null;
+				// positions have shifted
+				this.nameIndex = null;
+				this.nameIndexShared = false;
+				if (newArray.length >= INDEX_THRESHOLD) {
+					buildNameIndex();
+				}
+				return;
+			}
+		}
 	}
 
 	/**
@@ -176,21 +243,74 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 	 * Indexed from 0.
 	 */
 	public void setPropertyValueAt(PropertyValue pv, int i) {
-		this.propertyValueList.set(i, pv);
+		if (i >= this.propertyValueCount) {
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+		PropertyValue oldPv = this.propertyValueArray[i];
 		this.propertyValueArray[i] = pv;
+		if (this.trimmedPropertyValues != null) {
+			this.trimmedPropertyValues[i] = pv;
+		}
+		if (this.nameIndex != null && !oldPv.getName().equals(pv.getName())) {
+			// the entry of the old name goes stale, to be detected on lookup
+			getWritableNameIndex().put(pv.getName(), Integer.valueOf(i));
+		}
 	}
 
 	public PropertyValue[] getPropertyValues() {
-		return propertyValueArray;
+		if (this.propertyValueCount == this.propertyValueArray.length) {
+			return this.propertyValueArray;
+		}
+		if (this.trimmedPropertyValues == null) {
+			this.trimmedPropertyValues = Arrays.copyOf(this.propertyValueArray, this.propertyValueCount);
+		}
+		return this.trimmedPropertyValues;
 	}
 
 	public PropertyValue getPropertyValue(String propertyName) {
-		for (int i = 0; i < this.propertyValueArray.length; i++) {
-			if (propertyValueArray[i].getName().equals(propertyName)) {
-				return propertyValueArray[i];
+		int i = indexOf(propertyName);
+		return (i != -1 ? this.propertyValueArray[i] : null);
+	}
+
+	/**
+	 * Return the position of the property value with the given name, or -1 if none.
+	 */
+	private int indexOf(String propertyName) {
+		if (this.nameIndex != null) {
+			Integer index = (Integer) this.nameIndex.get(propertyName);
+			if (index == null) {
+				return -1;
+			}
+			int i = index.intValue();
+			if (i < this.propertyValueCount && this.propertyValueArray[i].getName().equals(propertyName)) {
+				return i;
 			}
+			// index out of date: scan instead
+		}
+		for (int i = 0; i < this.propertyValueCount; i++) {
+			if (this.propertyValueArray[i].getName().equals(propertyName)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void buildNameIndex() {
+		Map index = new ConcurrentHashMap(this.propertyValueCount * 2);
+		for (int i = this.propertyValueCount - 1; i >= 0; i--) {
+			// first occurrence wins, as with a linear scan
+			index.put(this.propertyValueArray[i].getName(), Integer.valueOf(i));
+		}
+		this.nameIndex = index;
+		this.nameIndexShared = false;
+	}
+
+	private Map getWritableNameIndex() {
+		if (this.nameIndexShared) {
+			this.nameIndex = new ConcurrentHashMap(this.nameIndex);
+			this.nameIndexShared = false;
 		}
-		return null;
+		return this.nameIndex;
 	}
 
 	public boolean contains(String propertyName) {
@@ -203,7 +323,7 @@ public class MutablePropertyValues implements PropertyValues, Serializable {
 			return changes;
 
 		// for each property value in the new set
-		for (int i = 0; i < this.propertyValueArray.length; i++) {
+		for (int i = 0; i < this.propertyValueCount; i++) {
 			PropertyValue newPv = propertyValueArray[i];
 			// if there wasn't an old one, add it
 			PropertyValue pvOld = old.getPropertyValue(newPv.getName());
@@ -0,0 +1,262 @@
+package org.springframework.beans;
+
+import java.util.List;
+
+/**
+ * Conversion routines for primitive values and primitive arrays that parse
+ * directly into the target, without PropertyEditors: array elements are
+ * neither boxed nor set via java.lang.reflect.Array, and comma-delimited
+ * Strings get parsed in place instead of being split into substrings.
+ * <p>
+ * Parsing follows the standard JavaBeans editors for int, long, double and
+ * boolean: integers may be given in decimal, hex or octal notation like
+ * with Integer.decode, and booleans as "true" or "false" in any case.
+ * <p>
+ * 基本类型及基本类型数组的直接转换，避免装箱与反射设置数组元素。
+ *
+ * @see ConversionService
+ * @see BeanWrapperImpl#doTypeConversionIfNecessary
+ */
+final class PrimitiveConversions {
+
+	static final Converter INT_CONVERTER = new Converter() {
+		public Object convert(Object source) {
+			String text = (String) source;
+			return Integer.valueOf((int) parseLong(text, 0, text.length(), Integer.MIN_VALUE, Integer.MAX_VALUE));
+		}
+	};
+
+	static final Converter LONG_CONVERTER = new Converter() {
+		public Object convert(Object source) {
+			String text = (String) source;
+			return Long.valueOf(parseLong(text, 0, text.length(), Long.MIN_VALUE, Long.MAX_VALUE));
+		}
+	};
+
+	static final Converter DOUBLE_CONVERTER = new Converter() {
+		public Object convert(Object source) {
+			return Double.valueOf((String) source);
+		}
+	};
+
+	static final Converter BOOLEAN_CONVERTER = new Converter() {
+		public Object convert(Object source) {
+			String text = (String) source;
+			return (parseBoolean(text, 0, text.length()) ? Boolean.TRUE : Boolean.FALSE);
+		}
+	};
+
+
+	/**
+	 * Return the converter for Strings to the given primitive type,
+	 * or null if not one of int, long, double and boolean.
+	 */
+	static Converter getConverter(Class primitiveType) {
+		if (primitiveType == int.class) {
+			return INT_CONVERTER;
+		}
+		else if (primitiveType == long.class) {
+			return LONG_CONVERTER;
+		}
+		else if (primitiveType == double.class) {
+			return DOUBLE_CONVERTER;
+		}
+		else if (primitiveType == boolean.class) {
+			return BOOLEAN_CONVERTER;
+		}
+		return null;
+	}
+
+	/**
+	 * Convert the given value to an array of the given primitive type.
+	 * Supports comma-delimited Strings, String arrays, and Lists and Object
+	 * arrays of Strings or of the corresponding wrapper type.
+	 * @param source the value to convert
+	 * @param componentType int, long, double or boolean
+	 * @return the primitive array, or null if the value is not supported
+	 * @throws IllegalArgumentException if an element cannot be parsed
+	 */
+	static Object toPrimitiveArray(Object source, Class componentType) throws IllegalArgumentException {
+		if (getConverter(componentType) == null) {
+			return null;
+		}
+		if (source instanceof String) {
+			return parseDelimited((String) source, componentType);
+		}
+		if (source instanceof Object[]) {
+			Object[] elements = (Object[]) source;
+			Object result = newArray(componentType, elements.length);
+			for (int i = 0; i < elements.length; i++) {
+				if (!setElement(result, componentType, i, elements[i])) {
+					return null;
+				}
+			}
+			return result;
+		}
+		if (source instanceof List) {
+			List elements = (List) source;
+			Object result = newArray(componentType, elements.size());
+			for (int i = 0; i < elements.size(); i++) {
+				if (!setElement(result, componentType, i, elements.get(i))) {
+					return null;
+				}
+			}
+			return result;
+		}
+		return null;
+	}
+
+	private static Object newArray(Class componentType, int length) {
+		if (componentType == int.class) {
+			return new int[length];
+		}
+		else if (componentType == long.class) {
+			return new long[length];
+		}
+		else if (componentType == double.class) {
+			return new double[length];
+		}
+		else {
+			return new boolean[length];
+		}
+	}
+
+	/**
+	 * Set the array element at the given index from the given String or wrapper.
+	 * @return false if the element is of another type
+	 */
+	private static boolean setElement(Object array, Class componentType, int index, Object element) {
+		if (element instanceof String) {
+			String text = (String) element;
+			setElement(array, componentType, index, text, 0, text.length());
+			return true;
+		}
+		if (componentType == int.class && element instanceof Integer) {
+			((int[]) array)[index] = ((Integer) element).intValue();
+		}
+		else if (componentType == long.class && element instanceof Long) {
+			((long[]) array)[index] = ((Long) element).longValue();
+		}
+		else if (componentType == double.class && element instanceof Double) {
+			((double[]) array)[index] = ((Double) element).doubleValue();
+		}
+		else if (componentType == boolean.class && element instanceof Boolean) {
+			((boolean[]) array)[index] = ((Boolean) element).booleanValue();
+		}
+		else {
+			return false;
+		}
+		return true;
+	}
+
+	private static void setElement(Object array, Class componentType, int index, String text, int start, int end) {
+		if (componentType == int.class) {
+			((int[]) array)[index] = (int) parseLong(text, start, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+		}
+		else if (componentType == long.class) {
+			((long[]) array)[index] = parseLong(text, start, end, Long.MIN_VALUE, Long.MAX_VALUE);
+		}
+		else if (componentType == double.class) {
+			String element = (start == 0 && end == text.length() ? text : text.substring(start, end));
+			((double[]) array)[index] = Double.parseDouble(element);
+		}
+		else {
+			((boolean[]) array)[index] = parseBoolean(text, start, end);
+		}
+	}
+
+	/**
+	 * Parse a comma-delimited String in place, ignoring whitespace around elements.
+	 */
+	private static Object parseDelimited(String text, Class componentType) {
+		int start = skipWhitespace(text, 0, text.length());
+		if (start == text.length()) {
+			return newArray(componentType, 0);
+		}
+		int count = 1;
+		for (int i = text.indexOf(','); i != -1; i = text.indexOf(',', i + 1)) {
+			count++;
+		}
+		Object result = newArray(componentType, count);
+		int index = 0;
+		while (index < count) {
+			int delimiter = text.indexOf(',', start);
+			int end = (delimiter != -1 ? delimiter : text.length());
+			int elementStart = skipWhitespace(text, start, end);
+			int elementEnd = end;
+			while (elementEnd > elementStart && Character.isWhitespace(text.charAt(elementEnd - 1))) {
+				elementEnd--;
+			}
+			setElement(result, componentType, index++, text, elementStart, elementEnd);
+			start = end + 1;
+		}
+		return result;
+	}
+
+	private static int skipWhitespace(String text, int start, int end) {
+		while (start < end && Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+		return start;
+	}
+
+	//---------------------------------------------------------------------
+	// Parsing of a range of a String
+	//---------------------------------------------------------------------
+
+	/**
+	 * Parse an integer within the given bounds, like Long.decode but without substring.
+	 * @throws NumberFormatException if not a valid number within the bounds
+	 */
+	static long parseLong(String text, int start, int end, long min, long max) throws NumberFormatException {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = (text.charAt(i) == '-');
+			i++;
+		}
+		if (i == end) {
+			throw new NumberFormatException("For input string: \"" + text.substring(start, end) + "\"");
+		}
+		if (text.charAt(i) == '#' || (text.charAt(i) == '0' && i + 1 < end)) {
+			// hex or octal notation: rare, so leave it to Long.decode
+			long value = Long.decode(text.substring(start, end)).longValue();
+			if (value < min || value > max) {
+				throw new NumberFormatException("Value out of range: \"" + text.substring(start, end) + "\"");
+			}
+			return value;
+		}
+		// accumulate negatively, as the negative range is larger
+		long limit = (negative ? min : -max);
+		long multiplyLimit = limit / 10;
+		long result = 0;
+		for (; i < end; i++) {
+			int digit = Character.digit(text.charAt(i), 10);
+			if (digit < 0 || result < multiplyLimit) {
+				throw new NumberFormatException("For input string: \"" + text.substring(start, end) + "\"");
+			}
+			result *= 10;
+			if (result < limit + digit) {
+				throw new NumberFormatException("For input string: \"" + text.substring(start, end) + "\"");
+			}
+			result -= digit;
+		}
+		return (negative ? result : -result);
+	}
+
+	/**
+	 * Parse "true" or "false", ignoring case.
+	 * @throws IllegalArgumentException if neither
+	 */
+	static boolean parseBoolean(String text, int start, int end) throws IllegalArgumentException {
+		int length = end - start;
+		if (length == 4 && text.regionMatches(true, start, "true", 0, 4)) {
+			return true;
+		}
+		else if (length == 5 && text.regionMatches(true, start, "false", 0, 5)) {
+			return false;
+		}
+		throw new IllegalArgumentException("Invalid boolean value [" + text.substring(start, end) + "]");
+	}
+
+}
@@ -0,0 +1,175 @@
+package org.springframework.beans;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A property path like "spouse.friends[3].name", parsed once into its tokens:
+ * the property names, keys and list or array indexes of each nested property.
+ * Compiled paths are cached by path, so binding the same paths over and over
+ * doesn't tokenize them or parse their indexes again.
+ * <p>
+ * The tokens don't depend on the class of the bean the path gets applied to:
+ * the property descriptors of each class on the path are already cached by
+ * CachedIntrospectionResults.
+ * <p>
+ * 解析一次并缓存的属性路径。
+ *
+ * @see BeanWrapperImpl#getPropertyValue
+ * @see BeanWrapperImpl#setPropertyValue
+ */
+final class PropertyPath {
+
+	/** Maximum number of cached paths, to protect against arbitrary paths from user input */
+	private static final int CACHE_LIMIT = 4096;
+
+	/** Path --> PropertyPath */
+	private static final ConcurrentHashMap cache = new ConcurrentHashMap();
+
+
+	/**
+	 * Return the compiled form of the given property path.
+	 */
+	static PropertyPath forPath(String path) {
+		PropertyPath propertyPath = (PropertyPath) cache.get(path);
+		if (propertyPath == null) {
+			propertyPath = new PropertyPath(path);
+			if (cache.size() < CACHE_LIMIT) {
+				cache.put(path, propertyPath);
+			}
+		}
+		return propertyPath;
+	}
+
+
+	private final String path;
+
+	private final PropertyToken[] tokens;
+
+	private PropertyPath(String path) {
+		List tokenList = new ArrayList(4);
+		int start = 0;
+		int pos;
+		while ((pos = path.indexOf(BeanWrapper.NESTED_PROPERTY_SEPARATOR, start)) != -1) {
+			tokenList.add(PropertyToken.parse(path.substring(start, pos)));
+			start = pos + 1;
+		}
+		tokenList.add(PropertyToken.parse(path.substring(start)));
+		this.path = path;
+		this.tokens = (PropertyToken[]) tokenList.toArray(new PropertyToken[tokenList.size()]);
+	}
+
+	public boolean isNested() {
+		return (this.tokens.length > 1);
+	}
+
+	/**
+	 * Return the number of nested properties on the path.
+	 */
+	public int size() {
+		return this.tokens.length;
+	}
+
+	public PropertyToken getToken(int index) {
+		return this.tokens[index];
+	}
+
+	/**
+	 * Return the token of the property on the target bean, i.e. the last one.
+	 */
+	public PropertyToken getFinalToken() {
+		return this.tokens[this.tokens.length - 1];
+	}
+
+	public String toString() {
+		return this.path;
+	}
+
+
+	/**
+	 * A single property on a path, possibly indexed or mapped.
+	 */
+	static final class PropertyToken {
+
+		/** Property name as given on the path, e.g. "friends[3]" */
+		private final String propertyPath;
+
+		/** Property name with unquoted key, e.g. "map[key]" */
+		private final String canonicalName;
+
+		/** Name of the bean property, e.g. "friends" */
+		private final String actualName;
+
+		/** Key or index, without quotes, or null */
+		private final String key;
+
+		/** Key parsed as index, or null if not a number */
+		private final Integer index;
+
+		/**
+		 * Parse the given property, which must not be nested.
+		 */
+		static PropertyToken parse(String propertyName) {
+			String actualName = propertyName;
+			String key = null;
+			int keyStart = propertyName.indexOf('[');
+			if (keyStart != -1 && propertyName.endsWith("]")) {
+				actualName = propertyName.substring(0, keyStart);
+				key = propertyName.substring(keyStart + 1, propertyName.length() - 1);
+				if (key.startsWith("'") && key.endsWith("'")) {
+					key = key.substring(1, key.length() - 1);
+				}
+				else if (key.startsWith("\"") && key.endsWith("\"")) {
+					key = key.substring(1, key.length() - 1);
+				}
+			}
+			return new PropertyToken(propertyName, actualName, key);
+		}
+
+		private PropertyToken(String propertyPath, String actualName, String key) {
+			this.propertyPath = propertyPath;
+			this.canonicalName = (key != null ? actualName + "[" + key + "]" : actualName);
+			this.actualName = actualName;
+			this.key = key;
+			Integer index = null;
+			if (key != null) {
+				try {
+					index = new Integer(key);
+				}
+				catch (NumberFormatException ex) {
+					// map key
+				}
+			}
+			this.index = index;
+		}
+
+		public String getPropertyPath() {
+			return propertyPath;
+		}
+
+		public String getCanonicalName() {
+			return canonicalName;
+		}
+
+		public String getActualName() {
+			return actualName;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * Return the key as list or array index.
+		 * @throws NumberFormatException if the key is not a number
+		 */
+		public int getIndex() throws NumberFormatException {
+			if (this.index == null) {
+				throw new NumberFormatException("For input string: \"" + this.key + "\"");
+			}
+			return this.index.intValue();
+		}
+	}
+
+}
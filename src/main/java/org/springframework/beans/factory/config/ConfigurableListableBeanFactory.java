@@ -1,5 +1,6 @@
 package org.springframework.beans.factory.config;
 
+import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.ListableBeanFactory;
 
 public interface ConfigurableListableBeanFactory
@@ -11,4 +12,25 @@ public interface ConfigurableListableBeanFactory
 	 */
 	void preInstantiateSingletons();
 
+	/**
+	 * Clear the metadata that the factory derives from its bean definitions,
+	 * like type indexes, to be rebuilt on next access. To be called after
+	 * bean definitions have been modified, e.g. by BeanFactoryPostProcessors.
+	 */
+	void clearMetadataCache();
+
+	/**
+	 * Freeze the bean definitions of this factory, signalling that they are not
+	 * expected to change anymore. Allows the factory to serve lookups from
+	 * read-only snapshots. Typically invoked before pre-instantiating singletons.
+	 * @throws BeansException if a bean definition turns out to be invalid,
+	 * e.g. a singleton refers to a non-existing init or destroy method
+	 */
+	void freezeConfiguration() throws BeansException;
+
+	/**
+	 * Return whether the bean definitions of this factory have been frozen.
+	 */
+	boolean isConfigurationFrozen();
+
 }
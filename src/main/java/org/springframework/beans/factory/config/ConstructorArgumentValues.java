@@ -16,6 +16,7 @@
 
 package org.springframework.beans.factory.config;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,9 +35,11 @@ import java.util.Set;
  */
 public class ConstructorArgumentValues {
 
-	private Map indexedArgumentValues = new HashMap();
+	/** Integer index --> ValueHolder, allocated on first addition */
+	private Map indexedArgumentValues;
 
-	private Set genericArgumentValues = new HashSet();
+	/** Set of ValueHolders, allocated on first addition */
+	private Set genericArgumentValues;
 
 
 	/**
@@ -58,8 +61,12 @@ public class ConstructorArgumentValues {
 	 */
 	public void addArgumentValues(ConstructorArgumentValues other) {
 		if (other != null) {
-			this.genericArgumentValues.addAll(other.genericArgumentValues);
-			this.indexedArgumentValues.putAll(other.indexedArgumentValues);
+			if (other.genericArgumentValues != null && !other.genericArgumentValues.isEmpty()) {
+				getOrCreateGenericArgumentValues().addAll(other.genericArgumentValues);
+			}
+			if (other.indexedArgumentValues != null && !other.indexedArgumentValues.isEmpty()) {
+				getOrCreateIndexedArgumentValues().putAll(other.indexedArgumentValues);
+			}
 		}
 	}
 	/**
@@ -68,7 +75,7 @@ public class ConstructorArgumentValues {
 	 * @param value the argument value
 	 */
 	public void addIndexedArgumentValue(int index, Object value) {
-		this.indexedArgumentValues.put(new Integer(index), new ValueHolder(value));
+		getOrCreateIndexedArgumentValues().put(new Integer(index), new ValueHolder(value));
 	}
 
 	/**
@@ -77,7 +84,7 @@ public class ConstructorArgumentValues {
 	 * @param value the argument value
 	 */
 	public void addIndexedArgumentValue(int index, Object value, String type) {
-		this.indexedArgumentValues.put(new Integer(index), new ValueHolder(value, type));
+		getOrCreateIndexedArgumentValues().put(new Integer(index), new ValueHolder(value, type));
 	}
 
 	/**
@@ -86,6 +93,9 @@ public class ConstructorArgumentValues {
 	 * @return the ValueHolder for the argument, or null if none set
 	 */
 	public ValueHolder getIndexedArgumentValue(int index, Class requiredType) {
+		if (this.indexedArgumentValues == null) {
+			return null;
+		}
 		ValueHolder valueHolder = (ValueHolder) this.indexedArgumentValues.get(new Integer(index));
 		if (valueHolder != null) {
 			if (valueHolder.getType() == null || requiredType.getName().equals(valueHolder.getType())) {
@@ -97,11 +107,12 @@ public class ConstructorArgumentValues {
 
 	/**
 	 * Return the map of indexed argument values.
+	 * Immutable and shared while no indexed argument values have been added.
 	 * @return Map with Integer indizes as keys and ValueHolders as values
 	 * @see ValueHolder
 	 */
 	public Map getIndexedArgumentValues() {
-		return indexedArgumentValues;
+		return (this.indexedArgumentValues != null ? this.indexedArgumentValues : Collections.EMPTY_MAP);
 	}
 
 	/**
@@ -109,7 +120,7 @@ public class ConstructorArgumentValues {
 	 * @param value the argument value
 	 */
 	public void addGenericArgumentValue(Object value) {
-		this.genericArgumentValues.add(new ValueHolder(value));
+		getOrCreateGenericArgumentValues().add(new ValueHolder(value));
 	}
 
 	/**
@@ -117,7 +128,7 @@ public class ConstructorArgumentValues {
 	 * @param value the argument value
 	 */
 	public void addGenericArgumentValue(Object value, String type) {
-		this.genericArgumentValues.add(new ValueHolder(value, type));
+		getOrCreateGenericArgumentValues().add(new ValueHolder(value, type));
 	}
 
 	/**
@@ -126,6 +137,9 @@ public class ConstructorArgumentValues {
 	 * @return the ValueHolder for the argument, or null if none set
 	 */
 	public ValueHolder getGenericArgumentValue(Class requiredType) {
+		if (this.genericArgumentValues == null) {
+			return null;
+		}
 		for (Iterator it = this.genericArgumentValues.iterator(); it.hasNext();) {
 			ValueHolder valueHolder = (ValueHolder) it.next();
 			Object value = valueHolder.getValue();
@@ -143,11 +157,12 @@ public class ConstructorArgumentValues {
 
 	/**
 	 * Return the set of generic argument values.
+	 * Immutable and shared while no generic argument values have been added.
 	 * @return Set of ValueHolders
 	 * @see ValueHolder
 	 */
 	public Set getGenericArgumentValues() {
-		return this.genericArgumentValues;
+		return (this.genericArgumentValues != null ? this.genericArgumentValues : Collections.EMPTY_SET);
 	}
 
 	/**
@@ -169,7 +184,7 @@ public class ConstructorArgumentValues {
 	 * Return the number of arguments held in this instance.
 	 */
 	public int getNrOfArguments() {
-		return this.indexedArgumentValues.size() + this.genericArgumentValues.size();
+		return getIndexedArgumentValues().size() + getGenericArgumentValues().size();
 	}
 
 	/**
@@ -177,7 +192,21 @@ public class ConstructorArgumentValues {
 	 * neither indexed ones nor generic ones.
 	 */
 	public boolean isEmpty() {
-		return this.indexedArgumentValues.isEmpty() && this.genericArgumentValues.isEmpty();
+		return getIndexedArgumentValues().isEmpty() && getGenericArgumentValues().isEmpty();
+	}
+
+	private Map getOrCreateIndexedArgumentValues() {
+		if (this.indexedArgumentValues == null) {
+			this.indexedArgumentValues = new HashMap(4);
+		}
+		return this.indexedArgumentValues;
+	}
+
+	private Set getOrCreateGenericArgumentValues() {
+		if (this.genericArgumentValues == null) {
+			this.genericArgumentValues = new HashSet(4);
+		}
+		return this.genericArgumentValues;
 	}
 
 
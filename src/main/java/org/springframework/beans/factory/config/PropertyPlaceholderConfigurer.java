@@ -244,7 +244,7 @@ public class PropertyPlaceholderConfigurer extends PropertyResourceConfigurer {
       RuntimeBeanReference ref = (RuntimeBeanReference) value;
       String newBeanName = parseString(props, ref.getBeanName(), null);
 			if (!newBeanName.equals(ref.getBeanName())) {
-				return new RuntimeBeanReference(newBeanName);
+				return new RuntimeBeanReference(newBeanName, ref.isLazy());
 			}
 		}
 		else if (value instanceof List) {
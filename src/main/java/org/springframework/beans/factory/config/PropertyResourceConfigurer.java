@@ -136,6 +136,8 @@ public abstract class PropertyResourceConfigurer implements BeanFactoryPostProce
 		}
 
 		processProperties(beanFactory, props);
+		// bean definitions may have been modified in place
+		beanFactory.clearMetadataCache();
 	}
 
 	/**
@@ -26,12 +26,25 @@ public class RuntimeBeanReference {
 	
 	private final String beanName;
 
+	private final boolean lazy;
+
 	/**
 	 * Create a new RuntimeBeanReference to the given bean name.
 	 * @param beanName name of the target bean
 	 */
 	public RuntimeBeanReference(String beanName) {
+		this(beanName, false);
+	}
+
+	/**
+	 * Create a new RuntimeBeanReference to the given bean name.
+	 * @param beanName name of the target bean
+	 * @param lazy whether to inject a proxy that obtains the target bean
+	 * on its first invocation, instead of the target bean itself
+	 */
+	public RuntimeBeanReference(String beanName, boolean lazy) {
 		this.beanName = beanName;
+		this.lazy = lazy;
 	}
 
 	/**
@@ -41,6 +54,14 @@ public class RuntimeBeanReference {
 		return beanName;
 	}
 
+	/**
+	 * Return whether the target bean gets resolved on first invocation
+	 * of the injected proxy rather than on injection.
+	 */
+	public boolean isLazy() {
+		return lazy;
+	}
+
 	public String toString() {
 	   return '<' + getBeanName() + '>';
 	}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.config;
+
+/**
+ * Subinterface of {@link BeanPostProcessor} that declares which beans it applies to.
+ * <p>
+ * Bean factories determine the applicable post-processors once per bean class
+ * and skip the others for all beans of that class, including every instance of a
+ * prototype. Typically implemented by post-processors that only act on beans
+ * implementing certain marker interfaces.
+ * <p>
+ * 声明适用bean类型的BeanPostProcessor，工厂按bean类缓存适用的后置处理器。
+ *
+ * @see org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory#applyBeanPostProcessorsBeforeInitialization
+ * @see org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory#applyBeanPostProcessorsAfterInitialization
+ */
+public interface SelectiveBeanPostProcessor extends BeanPostProcessor {
+
+    /**
+     * Return whether this post-processor may act on beans of the given class.
+     * If not, neither of its callbacks gets invoked for such beans.
+     * <p>Must only depend on the given class, as the result gets cached.
+     *
+     * @param beanClass the class of the bean instance
+     * @return whether to invoke this post-processor for beans of the given class
+     */
+    boolean isApplicableTo(Class beanClass);
+
+}
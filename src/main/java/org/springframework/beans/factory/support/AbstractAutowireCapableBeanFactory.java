@@ -17,6 +17,9 @@
 package org.springframework.beans.factory.support;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.framework.support.AopUtils;
+import org.springframework.aop.target.LazyInitTargetSource;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeanWrapper;
 import org.springframework.beans.BeanWrapperImpl;
@@ -25,22 +28,24 @@ import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.PropertyValue;
 import org.springframework.beans.PropertyValues;
 import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.UnsatisfiedDependencyException;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
-import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.core.jfr.FlightRecorderEvents;
 
 import java.beans.PropertyDescriptor;
+import java.beans.PropertyEditor;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -52,6 +57,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Abstract BeanFactory superclass that implements default bean creation.
@@ -88,6 +95,23 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
     private final Set disposableInnerBeans = Collections.synchronizedSet(new HashSet());
 
+    /**
+     * Inner beans being created for singletons: inner bean name --> name of the
+     * containing singleton, that the references of the inner bean get registered for
+     */
+    private final Map innerBeanContainers = new ConcurrentHashMap();
+
+    /**
+     * Generation of the cached instantiation recipes; recipes built in an
+     * earlier generation are stale
+     */
+    private final AtomicInteger recipeGeneration = new AtomicInteger();
+
+    /**
+     * Custom init and destroy methods, resolved once per bean class
+     */
+    private final LifecycleMethods lifecycleMethods = new LifecycleMethods();
+
     public AbstractAutowireCapableBeanFactory() {
     }
 
@@ -126,12 +150,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         if (log.isDebugEnabled()) {
             log.debug("Invoking BeanPostProcessors before initialization of bean '" + name + "'");
         }
-        Object result = bean;
-        for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext(); ) {
-            BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
-            result = beanProcessor.postProcessBeforeInitialization(result, name);
-        }
-        return result;
+        return getApplicableBeanPostProcessors().applyBeforeInitialization(bean, name);
     }
 
     @Override
@@ -139,12 +158,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         if (log.isDebugEnabled()) {
             log.debug("Invoking BeanPostProcessors after initialization of bean '" + name + "'");
         }
-        Object result = bean;
-        for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext(); ) {
-            BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
-            result = beanProcessor.postProcessAfterInitialization(result, name);
-        }
-        return result;
+        return getApplicableBeanPostProcessors().applyAfterInitialization(bean, name);
     }
 
 
@@ -154,6 +168,29 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
     @Override
     protected Object createBean(String beanName, RootBeanDefinition mergedBeanDefinition) throws BeansException {
+        Object event = FlightRecorderEvents.beginBeanCreation();
+        StartupTimeline timeline = getStartupTimeline();
+        StartupTimeline.Step creation = (timeline != null ? timeline.start("bean.create", beanName) : null);
+        try {
+            return doCreateBean(beanName, mergedBeanDefinition, timeline);
+        } finally {
+            if (creation != null) {
+                creation.end();
+            }
+            if (event != null) {
+                FlightRecorderEvents.endBeanCreation(event, beanName,
+                        mergedBeanDefinition.hasBeanClass() ? mergedBeanDefinition.getBeanClass() : null,
+                        mergedBeanDefinition.isSingleton());
+            }
+        }
+    }
+
+    /**
+     * Actually create the given bean, recording the creation phases as steps
+     * of the given timeline, if any.
+     */
+    private Object doCreateBean(String beanName, RootBeanDefinition mergedBeanDefinition, StartupTimeline timeline)
+            throws BeansException {
         if (log.isDebugEnabled()) {
             log.debug("Creating instance of bean '" + beanName + "' with merged definition [" + mergedBeanDefinition + "]");
         }
@@ -161,28 +198,48 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             for (int i = 0; i < mergedBeanDefinition.getDependsOn().length; i++) {
                 // guarantee initialization of beans that the current one depends on
                 getBean(mergedBeanDefinition.getDependsOn()[i]);
+                registerDependentBeanIfSingleton(mergedBeanDefinition.getDependsOn()[i], beanName, mergedBeanDefinition);
             }
         }
 
         BeanWrapper instanceWrapper = null;
-        //自动装配类型为构造函数
-        if (mergedBeanDefinition.getResolvedAutowireMode() == RootBeanDefinition.AUTOWIRE_CONSTRUCTOR ||
+        Object bean = null;
+        StartupTimeline.Step step = (timeline != null ? timeline.start("bean.instantiate", beanName) : null);
+        if (mergedBeanDefinition.getInstanceSupplier() != null) {
+            //由回调创建，不经过反射
+            bean = obtainFromSupplier(beanName, mergedBeanDefinition);
+        } else if (mergedBeanDefinition.getResolvedAutowireMode() == RootBeanDefinition.AUTOWIRE_CONSTRUCTOR ||
                 mergedBeanDefinition.hasConstructorArgumentValues()) {
+            //自动装配类型为构造函数
             instanceWrapper = autowireConstructor(beanName, mergedBeanDefinition);
+            bean = instanceWrapper.getWrappedInstance();
         } else {
             //其他
             instanceWrapper = new BeanWrapperImpl(mergedBeanDefinition.getBeanClass());
             initBeanWrapper(instanceWrapper);
+            bean = instanceWrapper.getWrappedInstance();
+        }
+        if (step != null) {
+            step.end();
         }
-        Object bean = instanceWrapper.getWrappedInstance();
 
         // Eagerly cache singletons to be able to resolve circular references
         // even when triggered by lifecycle interfaces like BeanFactoryAware.
         if (mergedBeanDefinition.isSingleton()) {
-            addSingleton(beanName, bean);
+            addEarlySingleton(beanName, bean);
+        }
+        if (instanceWrapper == null && isPopulationRequired(mergedBeanDefinition)) {
+            instanceWrapper = new BeanWrapperImpl(bean);
+            initBeanWrapper(instanceWrapper);
+        }
+        if (instanceWrapper != null) {
+            step = (timeline != null ? timeline.start("bean.populate", beanName) : null);
+//            使用属性值填充给定的BeanWrapper中的bean实例
+            populateBean(beanName, mergedBeanDefinition, instanceWrapper);
+            if (step != null) {
+                step.end();
+            }
         }
-//        使用属性值填充给定的BeanWrapper中的bean实例
-        populateBean(beanName, mergedBeanDefinition, instanceWrapper);
 
         try {
             if (bean instanceof BeanNameAware) {
@@ -201,10 +258,22 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 
 
             //将BeanPostProcessors应用于给定的现有bean实例，调用他们的postProcessBeforeInitialization方法。 返回的bean实例可能是原始的包装器。
+            step = (timeline != null ? timeline.start("bean.postProcessBeforeInitialization", beanName) : null);
             bean = applyBeanPostProcessorsBeforeInitialization(bean, beanName);
+            if (step != null) {
+                step.end();
+                step = timeline.start("bean.init", beanName);
+            }
             invokeInitMethods(bean, beanName, mergedBeanDefinition);
             //将BeanPostProcessors应用于给定的现有bean实例，调用他们的applyBeanPostProcessorsAfterInitialization方法。 返回的bean实例可能是原始的包装器。
+            if (step != null) {
+                step.end();
+                step = timeline.start("bean.postProcessAfterInitialization", beanName);
+            }
             bean = applyBeanPostProcessorsAfterInitialization(bean, beanName);
+            if (step != null) {
+                step.end();
+            }
         } catch (InvocationTargetException ex) {
             throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
                     "Initialization of bean failed", ex.getTargetException());
@@ -216,35 +285,74 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
     }
 
 
+    /**
+     * Create the bean instance through the instance supplier of the given bean definition.
+     *
+     * @see AbstractBeanDefinition#setInstanceSupplier
+     */
+    protected Object obtainFromSupplier(String beanName, RootBeanDefinition mergedBeanDefinition)
+            throws BeansException {
+        Object bean;
+        try {
+            bean = mergedBeanDefinition.getInstanceSupplier().get();
+        } catch (BeansException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
+                    "Instance supplier threw exception", ex);
+        }
+        if (bean == null) {
+            throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
+                    "Instance supplier returned null");
+        }
+        return bean;
+    }
+
+    /**
+     * Return whether a bean created by an instance supplier still needs to be
+     * populated through a BeanWrapper: if the bean definition has property values,
+     * or asks for autowiring by name or type, or for a dependency check.
+     */
+    private boolean isPopulationRequired(RootBeanDefinition mergedBeanDefinition) {
+        return (mergedBeanDefinition.getPropertyValues().getPropertyValues().length > 0 ||
+                mergedBeanDefinition.getAutowireMode() != RootBeanDefinition.AUTOWIRE_NO ||
+                mergedBeanDefinition.getDependencyCheck() != RootBeanDefinition.DEPENDENCY_CHECK_NONE);
+    }
+
     protected BeanWrapper autowireConstructor(String beanName, RootBeanDefinition mergedBeanDefinition)
             throws BeansException {
 
+        BeanWrapperImpl bw = new BeanWrapperImpl();
+        initBeanWrapper(bw);
+
+        // constructor already chosen on first creation?
+        InstantiationRecipe recipe = getInstantiationRecipe(mergedBeanDefinition);
+        Constructor resolvedConstructor = recipe.getConstructor();
+        if (resolvedConstructor != null) {
+            Object[] args = recipe.getConstructorArguments();
+            if (args == null) {
+                ConstructorArgumentValues resolvedValues = resolveConstructorArguments(beanName, mergedBeanDefinition);
+                args = createArgumentArray(beanName, mergedBeanDefinition, resolvedConstructor.getParameterTypes(),
+                        resolvedValues, bw);
+            }
+            bw.setWrappedInstance(BeanUtils.instantiateClass(resolvedConstructor, args));
+            if (log.isDebugEnabled()) {
+                log.debug("Bean '" + beanName + "' instantiated via resolved constructor [" + resolvedConstructor + "]");
+            }
+            return bw;
+        }
+
         ConstructorArgumentValues cargs = mergedBeanDefinition.getConstructorArgumentValues();
-        ConstructorArgumentValues resolvedValues = new ConstructorArgumentValues();
+        ConstructorArgumentValues resolvedValues = resolveConstructorArguments(beanName, mergedBeanDefinition);
 
         int minNrOfArgs = 0;
         if (cargs != null) {
             minNrOfArgs = cargs.getNrOfArguments();
-            for (Iterator it = cargs.getIndexedArgumentValues().entrySet().iterator(); it.hasNext(); ) {
-                Map.Entry entry = (Map.Entry) it.next();
-                int index = ((Integer) entry.getKey()).intValue();
-                if (index < 0) {
-                    throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
-                            "Invalid constructor argument index: " + index);
-                }
+            for (Iterator it = cargs.getIndexedArgumentValues().keySet().iterator(); it.hasNext(); ) {
+                int index = ((Integer) it.next()).intValue();
                 if (index > minNrOfArgs) {
                     minNrOfArgs = index + 1;
                 }
-                String argName = "constructor argument with index " + index;
-                ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) entry.getValue();
-                Object resolvedValue = resolveValueIfNecessary(beanName, mergedBeanDefinition, argName, valueHolder.getValue());
-                resolvedValues.addIndexedArgumentValue(index, resolvedValue, valueHolder.getType());
-            }
-            for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext(); ) {
-                ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) it.next();
-                String argName = "constructor argument";
-                Object resolvedValue = resolveValueIfNecessary(beanName, mergedBeanDefinition, argName, valueHolder.getValue());
-                resolvedValues.addGenericArgumentValue(resolvedValue, valueHolder.getType());
             }
         }
 
@@ -255,8 +363,6 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             return (new Integer(c1pl)).compareTo(new Integer(c2pl)) * -1;
         });
 
-        BeanWrapperImpl bw = new BeanWrapperImpl();
-        initBeanWrapper(bw);
         Constructor constructorToUse = null;
         Object[] argsToUse = null;
         int minTypeDiffWeight = Integer.MAX_VALUE;
@@ -269,35 +375,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
                                     beanName + "' (hint: specify index arguments for simple parameters to avoid type ambiguities)");
                 }
                 Class[] argTypes = constructor.getParameterTypes();
-                Object[] args = new Object[argTypes.length];
-                for (int j = 0; j < argTypes.length; j++) {
-                    ConstructorArgumentValues.ValueHolder valueHolder = resolvedValues.getArgumentValue(j, argTypes[j]);
-                    if (valueHolder != null) {
-                        // synchronize if custom editors are registered
-                        // necessary because PropertyEditors are not thread-safe
-                        if (!getCustomEditors().isEmpty()) {
-                            synchronized (this) {
-                                args[j] = bw.doTypeConversionIfNecessary(valueHolder.getValue(), argTypes[j]);
-                            }
-                        } else {
-                            args[j] = bw.doTypeConversionIfNecessary(valueHolder.getValue(), argTypes[j]);
-                        }
-                    } else {
-                        if (mergedBeanDefinition.getResolvedAutowireMode() != RootBeanDefinition.AUTOWIRE_CONSTRUCTOR) {
-                            throw new UnsatisfiedDependencyException(beanName, j, argTypes[j],
-                                    "Did you specify the correct bean references as generic constructor arguments?");
-                        }
-                        Map matchingBeans = findMatchingBeans(argTypes[j]);
-                        if (matchingBeans == null || matchingBeans.size() != 1) {
-                            throw new UnsatisfiedDependencyException(beanName, j, argTypes[j],
-                                    "There are " + matchingBeans.size() + " beans of type [" + argTypes[j] + "] for autowiring constructor. " +
-                                            "There should have been 1 to be able to autowire constructor of bean '" + beanName + "'.");
-                        }
-                        args[j] = matchingBeans.values().iterator().next();
-                        log.info("Autowiring by type from bean name '" + beanName +
-                                "' via constructor to bean named '" + matchingBeans.keySet().iterator().next() + "'");
-                    }
-                }
+                Object[] args = createArgumentArray(beanName, mergedBeanDefinition, argTypes, resolvedValues, bw);
                 int typeDiffWeight = getTypeDifferenceWeight(argTypes, args);
                 if (typeDiffWeight < minTypeDiffWeight) {
                     constructorToUse = constructor;
@@ -322,11 +400,108 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
                     "Could not resolve matching constructor");
         }
+        recipe.setConstructor(constructorToUse,
+                (isConstantArguments(cargs, constructorToUse.getParameterTypes(), resolvedValues, argsToUse) ? argsToUse : null));
         bw.setWrappedInstance(BeanUtils.instantiateClass(constructorToUse, argsToUse));
         log.info("Bean '" + beanName + "' instantiated via constructor [" + constructorToUse + "]");
         return bw;
     }
 
+    /**
+     * Resolve the constructor argument values of the given bean definition,
+     * resolving any references to other beans.
+     */
+    private ConstructorArgumentValues resolveConstructorArguments(String beanName, RootBeanDefinition mergedBeanDefinition)
+            throws BeansException {
+        ConstructorArgumentValues cargs = mergedBeanDefinition.getConstructorArgumentValues();
+        ConstructorArgumentValues resolvedValues = new ConstructorArgumentValues();
+        if (cargs != null) {
+            for (Iterator it = cargs.getIndexedArgumentValues().entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                int index = ((Integer) entry.getKey()).intValue();
+                if (index < 0) {
+                    throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
+                            "Invalid constructor argument index: " + index);
+                }
+                String argName = "constructor argument with index " + index;
+                ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) entry.getValue();
+                Object resolvedValue = resolveValueIfNecessary(beanName, mergedBeanDefinition, argName, valueHolder.getValue());
+                resolvedValues.addIndexedArgumentValue(index, resolvedValue, valueHolder.getType());
+            }
+            for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext(); ) {
+                ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) it.next();
+                String argName = "constructor argument";
+                Object resolvedValue = resolveValueIfNecessary(beanName, mergedBeanDefinition, argName, valueHolder.getValue());
+                resolvedValues.addGenericArgumentValue(resolvedValue, valueHolder.getType());
+            }
+        }
+        return resolvedValues;
+    }
+
+    /**
+     * Create the arguments for a constructor with the given parameter types,
+     * converting the resolved argument values and autowiring missing ones if allowed.
+     */
+    private Object[] createArgumentArray(String beanName, RootBeanDefinition mergedBeanDefinition, Class[] argTypes,
+                                         ConstructorArgumentValues resolvedValues, BeanWrapperImpl bw)
+            throws BeansException {
+        Object[] args = new Object[argTypes.length];
+        for (int j = 0; j < argTypes.length; j++) {
+            ConstructorArgumentValues.ValueHolder valueHolder = resolvedValues.getArgumentValue(j, argTypes[j]);
+            if (valueHolder != null) {
+                // no locking: BeanWrapperImpl synchronizes on shared custom editors only
+                args[j] = bw.doTypeConversionIfNecessary(valueHolder.getValue(), argTypes[j]);
+            } else {
+                if (mergedBeanDefinition.getResolvedAutowireMode() != RootBeanDefinition.AUTOWIRE_CONSTRUCTOR) {
+                    throw new UnsatisfiedDependencyException(beanName, j, argTypes[j],
+                            "Did you specify the correct bean references as generic constructor arguments?");
+                }
+                Map matchingBeans = findMatchingBeans(argTypes[j]);
+                if (matchingBeans == null || matchingBeans.size() != 1) {
+                    throw new UnsatisfiedDependencyException(beanName, j, argTypes[j],
+                            "There are " + matchingBeans.size() + " beans of type [" + argTypes[j] + "] for autowiring constructor. " +
+                                    "There should have been 1 to be able to autowire constructor of bean '" + beanName + "'.");
+                }
+                args[j] = matchingBeans.values().iterator().next();
+                registerDependentBeanIfSingleton((String) matchingBeans.keySet().iterator().next(), beanName,
+                        mergedBeanDefinition);
+                log.info("Autowiring by type from bean name '" + beanName +
+                        "' via constructor to bean named '" + matchingBeans.keySet().iterator().next() + "'");
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Determine whether the given constructor arguments may be reused for every
+     * instance: all of them specified as constant values in the bean definition,
+     * and converted into shareable objects.
+     */
+    private boolean isConstantArguments(ConstructorArgumentValues cargs, Class[] argTypes,
+                                        ConstructorArgumentValues resolvedValues, Object[] args) {
+        if (cargs == null) {
+            return (args.length == 0);
+        }
+        for (Iterator it = cargs.getIndexedArgumentValues().values().iterator(); it.hasNext(); ) {
+            if (InstantiationRecipe.isResolutionRequired(((ConstructorArgumentValues.ValueHolder) it.next()).getValue())) {
+                return false;
+            }
+        }
+        for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext(); ) {
+            if (InstantiationRecipe.isResolutionRequired(((ConstructorArgumentValues.ValueHolder) it.next()).getValue())) {
+                return false;
+            }
+        }
+        for (int j = 0; j < args.length; j++) {
+            ConstructorArgumentValues.ValueHolder valueHolder = resolvedValues.getArgumentValue(j, argTypes[j]);
+            if (valueHolder == null || !InstantiationRecipe.isShareable(valueHolder.getValue(), args[j])) {
+                // autowired or converted into a mutable object
+                return false;
+            }
+        }
+        return true;
+    }
+
 
     private int getTypeDifferenceWeight(Class[] argTypes, Object[] args) {
         int result = 0;
@@ -402,6 +577,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             if (containsBean(propertyName)) {
                 Object bean = getBean(propertyName);
                 pvs.addPropertyValue(propertyName, bean);
+                registerDependentBeanIfSingleton(propertyName, beanName, mergedBeanDefinition);
                 if (log.isDebugEnabled()) {
                     log.debug("Added autowiring by name from bean name '" + beanName +
                             "' via property '" + propertyName + "' to bean named '" + propertyName + "'");
@@ -437,6 +613,8 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             Map matchingBeans = findMatchingBeans(requiredType);
             if (matchingBeans != null && matchingBeans.size() == 1) {
                 pvs.addPropertyValue(propertyName, matchingBeans.values().iterator().next());
+                registerDependentBeanIfSingleton((String) matchingBeans.keySet().iterator().next(), beanName,
+                        mergedBeanDefinition);
                 if (log.isDebugEnabled()) {
                     log.debug("Autowiring by type from bean name '" + beanName +
                             "' via property '" + propertyName + "' to bean named '" +
@@ -525,6 +703,11 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         if (pvs == null) {
             return;
         }
+        if (pvs == mergedBeanDefinition.getPropertyValues()) {
+            // the bean definition's own property values: apply the compiled ones
+            applyCompiledPropertyValues(beanName, mergedBeanDefinition, bw, pvs);
+            return;
+        }
         MutablePropertyValues deepCopy = new MutablePropertyValues(pvs);
         PropertyValue[] pvals = deepCopy.getPropertyValues();
         for (int i = 0; i < pvals.length; i++) {
@@ -535,16 +718,43 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
             deepCopy.setPropertyValueAt(pv, i);
         }
         // set our (possibly massaged) deepCopy
-        try {
-            // synchronize if custom editors are registered
-            // necessary because PropertyEditors are not thread-safe
-            if (!getCustomEditors().isEmpty()) {
-                synchronized (this) {
-                    bw.setPropertyValues(deepCopy);
+        setPropertyValues(beanName, mergedBeanDefinition, bw, deepCopy);
+    }
+
+    /**
+     * Apply the property values of the given bean definition, as compiled
+     * into its instantiation recipe on first creation: constant values are
+     * converted once, only references to other beans get resolved.
+     */
+    private void applyCompiledPropertyValues(String beanName, RootBeanDefinition mergedBeanDefinition, BeanWrapper bw,
+                                             PropertyValues pvs) throws BeansException {
+        InstantiationRecipe recipe = getInstantiationRecipe(mergedBeanDefinition);
+        PropertyValue[] source = pvs.getPropertyValues();
+        InstantiationRecipe.CompiledPropertyValues compiled = recipe.getPropertyValues(source);
+        if (compiled == null) {
+            compiled = recipe.compilePropertyValues(source, bw);
+        }
+        PropertyValues pvsToApply = compiled.getConstantPropertyValues();
+        if (pvsToApply == null) {
+            List pvList = new ArrayList(compiled.size());
+            for (int i = 0; i < compiled.size(); i++) {
+                PropertyValue pv = compiled.get(i);
+                if (compiled.isResolutionRequired(i)) {
+                    pv = new PropertyValue(pv.getName(),
+                            resolveValueIfNecessary(beanName, mergedBeanDefinition, pv.getName(), pv.getValue()));
                 }
-            } else {
-                bw.setPropertyValues(deepCopy);
+                pvList.add(pv);
             }
+            pvsToApply = new MutablePropertyValues(pvList);
+        }
+        setPropertyValues(beanName, mergedBeanDefinition, bw, pvsToApply);
+    }
+
+    private void setPropertyValues(String beanName, RootBeanDefinition mergedBeanDefinition, BeanWrapper bw,
+                                   PropertyValues pvs) throws BeansException {
+        try {
+            // no locking: BeanWrapperImpl synchronizes on shared custom editors only
+            bw.setPropertyValues(pvs);
         } catch (BeansException ex) {
             // improve the message by showing the context
             throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
@@ -579,7 +789,18 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
                 ((AbstractBeanDefinition) bd).setSingleton(false);
             }
             String innerBeanName = "(inner bean for property '" + beanName + "." + argName + "')";
-            Object bean = createBean(innerBeanName, getMergedBeanDefinition(innerBeanName, bd));
+            String containingBeanName = getContainingSingletonName(beanName, mergedBeanDefinition);
+            if (containingBeanName != null) {
+                this.innerBeanContainers.put(innerBeanName, containingBeanName);
+            }
+            Object bean;
+            try {
+                bean = createBean(innerBeanName, getMergedBeanDefinition(innerBeanName, bd));
+            } finally {
+                if (containingBeanName != null) {
+                    this.innerBeanContainers.remove(innerBeanName);
+                }
+            }
             if (bean instanceof DisposableBean) {
                 // keep reference to inner bean, to be able to destroy it on factory shutdown
                 this.disposableInnerBeans.add(bean);
@@ -615,7 +836,20 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         try {
             log.debug("Resolving reference from property '" + argName + "' in bean '" +
                     beanName + "' to bean '" + ref.getBeanName() + "'");
-            return getBean(ref.getBeanName());
+            Object bean = null;
+            if (isLazyResolution(ref)) {
+                bean = createLazyResolutionProxy(ref.getBeanName());
+                if (bean != null && !isAssignableToProperty(mergedBeanDefinition, argName, bean)) {
+                    log.debug("Lazy resolution proxy for bean '" + ref.getBeanName() + "' doesn't match type of " +
+                            "property '" + argName + "' in bean '" + beanName + "': resolving it immediately");
+                    bean = null;
+                }
+            }
+            if (bean == null) {
+                bean = getBean(ref.getBeanName());
+            }
+            registerDependentBeanIfSingleton(ref.getBeanName(), beanName, mergedBeanDefinition);
+            return bean;
         } catch (BeansException ex) {
             throw new BeanCreationException(mergedBeanDefinition.getResourceDescription(), beanName,
                     "Can't resolve reference to bean '" + ref.getBeanName() +
@@ -623,6 +857,73 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         }
     }
 
+    /**
+     * Determine whether the given reference should be resolved lazily, either
+     * because the reference itself or the referenced bean definition says so.
+     */
+    private boolean isLazyResolution(RuntimeBeanReference ref) {
+        if (ref.isLazy()) {
+            return true;
+        }
+        String refName = transformedBeanName(ref.getBeanName());
+        return (!isFactoryDereference(ref.getBeanName()) && containsBeanDefinition(refName) &&
+                getMergedBeanDefinition(refName, false).isLazyResolution());
+    }
+
+    /**
+     * Check whether the given value can be set on the bean property of the given
+     * name, if the bean class has such a property. Constructor arguments and
+     * collection elements are not checked.
+     */
+    private boolean isAssignableToProperty(RootBeanDefinition mergedBeanDefinition, String argName, Object value) {
+        if (!mergedBeanDefinition.hasBeanClass()) {
+            return true;
+        }
+        PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mergedBeanDefinition.getBeanClass());
+        for (int i = 0; i < pds.length; i++) {
+            if (pds[i].getName().equals(argName) && pds[i].getPropertyType() != null) {
+                return pds[i].getPropertyType().isInstance(value);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Create a proxy for the given bean that obtains the bean on its first
+     * invocation, proxying all interfaces of the bean class. The bean class
+     * itself is not proxied: a CGLIB subclass would run its constructor on
+     * creation of the proxy, and final methods would act on the proxy itself.
+     * <p>Returns null if the bean should rather be resolved immediately: if it
+     * already exists as a singleton, if its type can't be determined without
+     * creating it, like for FactoryBeans and factory methods, or if it doesn't
+     * implement any interfaces.
+     *
+     * @param refName the name of the referenced bean
+     * @return the proxy, or null to resolve the bean immediately
+     */
+    protected Object createLazyResolutionProxy(String refName) throws BeansException {
+        String name = transformedBeanName(refName);
+        if (isFactoryDereference(refName) || containsSingleton(name)) {
+            return null;
+        }
+        RootBeanDefinition mbd = getMergedBeanDefinition(name, true);
+        if (mbd.isAbstract() || !mbd.hasBeanClass() || mbd.getFactoryMethodName() != null ||
+                FactoryBean.class.isAssignableFrom(mbd.getBeanClass())) {
+            log.debug("Type of bean '" + name + "' not known before its creation: resolving it immediately");
+            return null;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTargetSource(new LazyInitTargetSource(this, refName, mbd.getBeanClass()));
+        Class[] interfaces = AopUtils.getAllInterfacesForClass(mbd.getBeanClass());
+        if (interfaces.length == 0) {
+            log.debug("Bean '" + name + "' doesn't implement any interfaces: resolving it immediately");
+            return null;
+        }
+        proxyFactory.setInterfaces(interfaces);
+        log.debug("Creating lazy resolution proxy for bean '" + name + "'");
+        return proxyFactory.getProxy();
+    }
+
     /**
      * For each element in the ManagedList, resolve reference if necessary.
      */
@@ -661,6 +962,32 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         return resolved;
     }
 
+    /**
+     * Record that the given singleton depends on the given bean, to destroy it
+     * before that bean. Dependencies of inner beans count for the singleton
+     * containing them. Prototypes are not tracked, as they are never destroyed.
+     *
+     * @param name     the (possibly aliased) name of the bean depended on
+     * @param beanName the name of the bean that depends on it
+     */
+    private void registerDependentBeanIfSingleton(String name, String beanName, RootBeanDefinition mergedBeanDefinition) {
+        String containingBeanName = getContainingSingletonName(beanName, mergedBeanDefinition);
+        if (containingBeanName != null) {
+            registerDependentBean(transformedBeanName(name), containingBeanName);
+        }
+    }
+
+    /**
+     * Return the name of the singleton that the given bean is, or that contains
+     * the given inner bean, or null if neither.
+     */
+    private String getContainingSingletonName(String beanName, RootBeanDefinition mergedBeanDefinition) {
+        if (mergedBeanDefinition.isSingleton()) {
+            return beanName;
+        }
+        return (String) this.innerBeanContainers.get(beanName);
+    }
+
     /**
      * Give a bean a chance to react now all its properties are set,
      * and a chance to know about its owning bean factory (this object).
@@ -680,8 +1007,81 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
         if (mergedBeanDefinition.getInitMethodName() != null) {
             log.debug("Calling custom init method '" + mergedBeanDefinition.getInitMethodName() +
                     "' on bean with beanName '" + beanName + "'");
-            bean.getClass().getMethod(mergedBeanDefinition.getInitMethodName(), null).invoke(bean, null);
+            this.lifecycleMethods.getInitMethod(bean.getClass(), mergedBeanDefinition.getInitMethodName()).invoke(bean);
+        }
+    }
+
+    /**
+     * Resolve the custom init and destroy methods of the given bean definition
+     * up front, if the class of its instances is known, to report missing
+     * methods before any bean gets created.
+     * <p>Fails for eagerly initialized singletons only, which would fail on
+     * pre-instantiation anyway. Prototypes and lazy-init singletons just get
+     * a warning, and keep failing on creation.
+     *
+     * @throws BeanDefinitionStoreException if a method of an eagerly
+     *                                      initialized singleton can't be resolved
+     * @see DefaultListableBeanFactory#freezeConfiguration
+     */
+    void resolveLifecycleMethods(String beanName, RootBeanDefinition mergedBeanDefinition)
+            throws BeanDefinitionStoreException {
+        if (mergedBeanDefinition.isAbstract() || !mergedBeanDefinition.hasBeanClass() ||
+                mergedBeanDefinition.getFactoryMethodName() != null ||
+                mergedBeanDefinition.getInstanceSupplier() != null) {
+            // instances may be of a different class
+            return;
+        }
+        try {
+            if (mergedBeanDefinition.getInitMethodName() != null) {
+                this.lifecycleMethods.getInitMethod(mergedBeanDefinition.getBeanClass(),
+                        mergedBeanDefinition.getInitMethodName());
+            }
+            if (mergedBeanDefinition.getDestroyMethodName() != null) {
+                this.lifecycleMethods.getDestroyMethod(mergedBeanDefinition.getBeanClass(),
+                        mergedBeanDefinition.getDestroyMethodName());
+            }
+        } catch (NoSuchMethodException ex) {
+            if (mergedBeanDefinition.isSingleton() && !mergedBeanDefinition.isLazyInit()) {
+                throw new BeanDefinitionStoreException(mergedBeanDefinition.getResourceDescription(), beanName,
+                        ex.getMessage());
+            }
+            log.warn("Invalid bean definition with name '" + beanName + "': " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Return the instantiation recipe of the given merged bean definition,
+     * replacing it with an empty one if it has not been built by this factory
+     * or has been built before the last invalidation.
+     */
+    private InstantiationRecipe getInstantiationRecipe(RootBeanDefinition mergedBeanDefinition) {
+        int generation = this.recipeGeneration.get();
+        InstantiationRecipe recipe = mergedBeanDefinition.instantiationRecipe;
+        if (recipe == null || !recipe.isValidFor(this, generation)) {
+            recipe = new InstantiationRecipe(this, generation);
+            mergedBeanDefinition.instantiationRecipe = recipe;
         }
+        return recipe;
+    }
+
+    /**
+     * Also invalidates the instantiation recipes cached on bean definitions,
+     * as those may have been modified in place.
+     */
+    @Override
+    protected void clearMergedBeanDefinitions() {
+        super.clearMergedBeanDefinitions();
+        this.recipeGeneration.incrementAndGet();
+    }
+
+    /**
+     * Also invalidates the instantiation recipes, as constant property values
+     * have been converted with the previously registered editors.
+     */
+    @Override
+    public void registerCustomEditor(Class requiredType, PropertyEditor propertyEditor) {
+        super.registerCustomEditor(requiredType, propertyEditor);
+        this.recipeGeneration.incrementAndGet();
     }
 
     public void destroySingletons() {
@@ -734,46 +1134,24 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
      * methods with arguments.
      */
     protected void invokeCustomDestroyMethod(String beanName, Object bean, String destroyMethodName) {
-        Method[] methods = bean.getClass().getMethods();
-        Method targetMethod = null;
-        for (int i = 0; i < methods.length; i++) {
-            if (methods[i].getName().equals(destroyMethodName)) {
-                if (targetMethod == null ||
-                        methods[i].getParameterTypes().length < targetMethod.getParameterTypes().length) {
-                    targetMethod = methods[i];
-                }
-            }
+        LifecycleMethods.LifecycleMethod destroyMethod;
+        try {
+            destroyMethod = this.lifecycleMethods.getDestroyMethod(bean.getClass(), destroyMethodName);
+        } catch (NoSuchMethodException ex) {
+            log.error(ex.getMessage() + " (bean with name '" + beanName + "')");
+            return;
         }
-        if (targetMethod == null) {
-            log.error("Couldn't find a method named '" + destroyMethodName +
-                    "' on bean with name '" + beanName + "'");
-        } else {
-            Class[] paramTypes = targetMethod.getParameterTypes();
-            if (paramTypes.length > 1) {
-                log.error("Method '" + destroyMethodName + "' of bean '" + beanName +
-                        "' has more than one parameter - not supported as destroy method");
-            } else if (paramTypes.length == 1 && !paramTypes[0].equals(boolean.class)) {
-                log.error("Method '" + destroyMethodName + "' of bean '" + beanName +
-                        "' has a non-boolean parameter - not supported as destroy method");
-            } else {
-                Object[] args = new Object[paramTypes.length];
-                if (paramTypes.length == 1) {
-                    args[0] = Boolean.TRUE;
-                }
-                try {
-                    targetMethod.invoke(bean, args);
-                } catch (InvocationTargetException ex) {
-                    log.error("Couldn't invoke destroy method '" + destroyMethodName +
-                            "' of bean with name '" + beanName + "'", ex.getTargetException());
-                } catch (Exception ex) {
-                    log.error("Couldn't invoke destroy method '" + destroyMethodName +
-                            "' of bean with name '" + beanName + "'", ex);
-                }
-            }
+        try {
+            destroyMethod.invoke(bean);
+        } catch (InvocationTargetException ex) {
+            log.error("Couldn't invoke destroy method '" + destroyMethodName +
+                    "' of bean with name '" + beanName + "'", ex.getTargetException());
+        } catch (Exception ex) {
+            log.error("Couldn't invoke destroy method '" + destroyMethodName +
+                    "' of bean with name '" + beanName + "'", ex);
         }
     }
 
-
     //---------------------------------------------------------------------
     // Abstract methods to be implemented by concrete subclasses
     //---------------------------------------------------------------------
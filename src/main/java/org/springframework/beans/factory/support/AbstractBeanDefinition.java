@@ -5,6 +5,7 @@ import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
 
 import java.lang.reflect.Constructor;
+import java.util.function.Supplier;
 
 public abstract class AbstractBeanDefinition implements BeanDefinition {
 
@@ -36,10 +37,14 @@ public abstract class AbstractBeanDefinition implements BeanDefinition {
 
     private boolean lazyInit = false;
 
+    private boolean lazyResolution = false;
+
     private ConstructorArgumentValues constructorArgumentValues;
 
     private MutablePropertyValues propertyValues;
 
+    private Supplier instanceSupplier;
+
 //    private MethodOverrides methodOverrides = new MethodOverrides();
 
     private String initMethodName;
@@ -70,10 +75,12 @@ public abstract class AbstractBeanDefinition implements BeanDefinition {
         setAbstract(other.isAbstract());
         setSingleton(other.isSingleton());
         setLazyInit(other.isLazyInit());
+        setLazyResolution(other.isLazyResolution());
 
         setConstructorArgumentValues(new ConstructorArgumentValues(other.getConstructorArgumentValues()));
         setPropertyValues(new MutablePropertyValues(other.getPropertyValues()));
 //        setMethodOverrides(new MethodOverrides(other.getMethodOverrides()));
+        setInstanceSupplier(other.getInstanceSupplier());
 
         setInitMethodName(other.getInitMethodName());
         setDestroyMethodName(other.getDestroyMethodName());
@@ -94,9 +101,13 @@ public abstract class AbstractBeanDefinition implements BeanDefinition {
         setAbstract(other.isAbstract());
         setSingleton(other.isSingleton());
         setLazyInit(other.isLazyInit());
+        setLazyResolution(other.isLazyResolution());
         getConstructorArgumentValues().addArgumentValues(other.getConstructorArgumentValues());
         getPropertyValues().addPropertyValues(other.getPropertyValues());
 //        getMethodOverrides().addOverrides(other.getMethodOverrides());
+        if (other.getInstanceSupplier() != null) {
+            setInstanceSupplier(other.getInstanceSupplier());
+        }
         if (other.getInitMethodName() != null) {
             setInitMethodName(other.getInitMethodName());
         }
@@ -174,6 +185,21 @@ public abstract class AbstractBeanDefinition implements BeanDefinition {
         return lazyInit;
     }
 
+    /**
+     * Set whether references to this bean get resolved lazily: other beans get
+     * a proxy injected that obtains this bean on its first invocation.
+     * Applies to references from bean definitions only, not to getBean calls.
+     *
+     * @see org.springframework.beans.factory.config.RuntimeBeanReference#isLazy
+     */
+    public void setLazyResolution(boolean lazyResolution) {
+        this.lazyResolution = lazyResolution;
+    }
+
+    public boolean isLazyResolution() {
+        return lazyResolution;
+    }
+
 
     public ConstructorArgumentValues getConstructorArgumentValues() {
         return constructorArgumentValues;
@@ -193,6 +219,19 @@ public abstract class AbstractBeanDefinition implements BeanDefinition {
         return propertyValues;
     }
 
+    /**
+     * Set a callback that creates the bean instance, instead of instantiating
+     * the bean class through reflection. Constructor argument values and
+     * constructor autowiring don't apply then.
+     */
+    public void setInstanceSupplier(Supplier instanceSupplier) {
+        this.instanceSupplier = instanceSupplier;
+    }
+
+    public Supplier getInstanceSupplier() {
+        return instanceSupplier;
+    }
+
 
     public void setInitMethodName(String initMethodName) {
         this.initMethodName = initMethodName;
@@ -2,7 +2,9 @@ package org.springframework.beans.factory.support;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.ConversionService;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.BeanFactory;
@@ -17,21 +19,38 @@ import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 
 import java.beans.PropertyEditor;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 @Slf4j
 public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, HierarchicalBeanFactory {
 
+    /**
+     * Maximum number of cached names of missing beans per factory
+     */
+    private static final int MISSING_BEAN_NAMES_LIMIT = 1024;
 
     private BeanFactory parentBeanFactory;
 
+    /**
+     * Incremented on every registration of a bean name in this factory and on
+     * change of its parent, invalidating the missing bean names of this factory
+     * and its descendants
+     */
+    private final AtomicLong registrationStamp = new AtomicLong();
+
 
     private Map customEditors = new HashMap();
 
@@ -41,11 +60,121 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
 
     private final List beanPostProcessors = new ArrayList();
 
+    /**
+     * The BeanPostProcessors applicable to each bean class, rebuilt on change
+     */
+    private volatile ApplicableBeanPostProcessors applicableBeanPostProcessors;
+
+
+    /**
+     * alias --> canonical bean name, read without locking
+     */
+    private final Map aliasMap = new ConcurrentHashMap();
+
+    /**
+     * canonical bean name --> String[] of its aliases, in registration order
+     */
+    private final Map aliasesByBeanName = new ConcurrentHashMap();
+
+    /**
+     * Names of beans found neither in this factory nor in its ancestors: bean name --> Boolean
+     */
+    private final Map missingBeanNames = new ConcurrentHashMap();
+
+    /**
+     * The registration stamps of this factory and its ancestors, from this factory
+     * up, that the missing bean names are valid for
+     */
+    private volatile long[] missingBeanNamesStamps;
+
+
+    /**
+     * Cache of fully initialized singletons: bean name --> bean instance
+     */
+    private final Map singletonCache = new ConcurrentHashMap();
+
+    /**
+     * Merged bean definitions of child bean definitions: bean name --> RootBeanDefinition
+     */
+    private final Map mergedBeanDefinitions = new ConcurrentHashMap();
+
+    /**
+     * Index of the singleton cache by type of the singleton objects
+     */
+    private final BeanTypeIndex singletonTypeIndex = new BeanTypeIndex();
+
+    /**
+     * Eagerly cached singletons that are still being created, to resolve circular references
+     */
+    private final Map earlySingletonCache = new ConcurrentHashMap();
+
+    /**
+     * Singleton creation locks: bean name --> ReentrantLock
+     */
+    private final Map singletonLocks = new ConcurrentHashMap();
+
+    /**
+     * Threads currently creating a singleton: bean name --> Thread
+     */
+    private final Map singletonCreators = new ConcurrentHashMap();
+
+    /**
+     * Threads blocked on a singleton creation lock while creating another singleton:
+     * Thread --> bean name
+     */
+    private final Map singletonWaiters = new ConcurrentHashMap();
+
+    /**
+     * Names of the singletons that the current thread is creating
+     */
+    private final ThreadLocal singletonsInCreation = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * Whether the singletons are being destroyed, rejecting the creation of new ones
+     */
+    private volatile boolean singletonsInDestruction = false;
+
+    /**
+     * Monitor serializing destructions of the singletons
+     */
+    private final Object destructionMonitor = new Object();
+
+    /**
+     * Cache of the objects created by singleton FactoryBeans: FactoryBean name --> object
+     */
+    private final Map factoryBeanObjectCache = new ConcurrentHashMap();
+
+    /**
+     * Names of the singletons that depend on a bean: bean name --> Set of dependent bean names
+     */
+    private final ConcurrentHashMap dependentBeanMap = new ConcurrentHashMap();
+
+    /**
+     * Names of the beans that a singleton depends on: bean name --> Set of bean names
+     */
+    private final ConcurrentHashMap dependenciesForBeanMap = new ConcurrentHashMap();
+
+
+    private int destructionParallelism = 1;
 
-    private final Map aliasMap = Collections.synchronizedMap(new HashMap());
+    private long beanDestructionTimeout = 0;
 
+    private long destructionTimeout = 0;
 
-    private final Map singletonCache = Collections.synchronizedMap(new HashMap());
+    /**
+     * Timeline to record bean creation in, if any
+     */
+    private volatile StartupTimeline startupTimeline;
+
+    /**
+     * ConversionService for BeanWrappers, or null for the default one
+     */
+    private ConversionService conversionService;
+
+    /**
+     * Whether BeanWrappers invoke property accessors through generated classes
+     */
+    private boolean useGeneratedAccessors = false;
 
 
     public AbstractBeanFactory() {
@@ -59,6 +188,104 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
     }
 
 
+    /**
+     * Set the number of threads to use for destroying singletons.
+     * <p>Default is 1, destroying the singletons one after the other on the calling
+     * thread. A higher value destroys independent singletons in parallel, each one
+     * after the singletons registered as depending on it.
+     *
+     * @see #destroySingletons
+     */
+    public void setDestructionParallelism(int destructionParallelism) {
+        if (destructionParallelism < 1) {
+            throw new IllegalArgumentException("destructionParallelism must be at least 1");
+        }
+        this.destructionParallelism = destructionParallelism;
+    }
+
+    public int getDestructionParallelism() {
+        return destructionParallelism;
+    }
+
+    /**
+     * Set the maximum time in milliseconds to wait for the destruction of a single
+     * bean. A destruction that takes longer is left running in the background and
+     * reported, without delaying the destruction of the beans it depends on.
+     * <p>Default is 0, i.e. no limit. Destroys singletons on separate threads if set.
+     *
+     * @see #setDestructionParallelism
+     */
+    public void setBeanDestructionTimeout(long beanDestructionTimeout) {
+        this.beanDestructionTimeout = beanDestructionTimeout;
+    }
+
+    public long getBeanDestructionTimeout() {
+        return beanDestructionTimeout;
+    }
+
+    /**
+     * Set the maximum time in milliseconds for destroying all singletons.
+     * Singletons whose destruction has not started when it has elapsed are
+     * removed without being destroyed, and reported.
+     * <p>Default is 0, i.e. no limit. Destroys singletons on separate threads if set.
+     *
+     * @see #setDestructionParallelism
+     */
+    public void setDestructionTimeout(long destructionTimeout) {
+        this.destructionTimeout = destructionTimeout;
+    }
+
+    public long getDestructionTimeout() {
+        return destructionTimeout;
+    }
+
+    /**
+     * Set the timeline to record the creation of beans in, or null to record nothing,
+     * which is the default.
+     *
+     * @see StartupTimeline
+     */
+    public void setStartupTimeline(StartupTimeline startupTimeline) {
+        this.startupTimeline = startupTimeline;
+    }
+
+    public StartupTimeline getStartupTimeline() {
+        return startupTimeline;
+    }
+
+    /**
+     * Set the ConversionService to convert property values and constructor
+     * arguments with, where no custom editor applies. Its converters are
+     * thread-safe, so unlike custom editors they are used without locking.
+     * <p>Default is the shared default ConversionService, which cannot be
+     * modified: set a ConversionService of your own to register converters.
+     *
+     * @see ConversionService#getDefault
+     */
+    public void setConversionService(ConversionService conversionService) {
+        this.conversionService = conversionService;
+    }
+
+    public ConversionService getConversionService() {
+        return conversionService;
+    }
+
+    /**
+     * Set whether to populate beans through accessor classes generated per
+     * bean property on first use, instead of invoking setters via reflection.
+     * <p>Default is false.
+     *
+     * @see org.springframework.beans.BeanWrapperImpl#setUseGeneratedAccessors
+     */
+    public void setUseGeneratedAccessors(boolean useGeneratedAccessors) {
+        this.useGeneratedAccessors = useGeneratedAccessors;
+    }
+
+    public boolean isUseGeneratedAccessors() {
+        return useGeneratedAccessors;
+    }
+
+
     //---------------------------------------------------------------------
     // Implementation of BeanFactory
     //---------------------------------------------------------------------
@@ -80,6 +307,10 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
         } else {
             // check if bean definition exists
             //检查bean定义是否存在
+            if (this.parentBeanFactory != null && !containsBeanDefinition(beanName)) {
+                // not found -> check parent, without a NoSuchBeanDefinitionException on the way
+                return this.parentBeanFactory.getBean(name);
+            }
             RootBeanDefinition mergedBeanDefinition = null;
             try {
                 mergedBeanDefinition = getMergedBeanDefinition(beanName, false);
@@ -94,15 +325,7 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
             // create bean instance
             //如果是单例，则实例化bean
             if (mergedBeanDefinition.isSingleton()) {
-                synchronized (this.singletonCache) {
-                    // re-check singleton cache within synchronized block
-                    sharedInstance = this.singletonCache.get(beanName);
-                    if (sharedInstance == null) {
-                        log.info("Creating shared instance of singleton bean '" + beanName + "'");
-                        sharedInstance = createBean(beanName, mergedBeanDefinition);
-                        addSingleton(beanName, sharedInstance);
-                    }
-                }
+                sharedInstance = getSingleton(beanName, mergedBeanDefinition);
                 return getObjectForSharedInstance(name, sharedInstance);
             } else {
                 return createBean(name, mergedBeanDefinition);
@@ -122,24 +345,34 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
     @Override
     public boolean containsBean(String name) {
         String beanName = transformedBeanName(name);
-        if (this.singletonCache.containsKey(beanName)) {
+        if (this.singletonCache.containsKey(beanName) || containsBeanDefinition(beanName)) {
             return true;
         }
-        if (containsBeanDefinition(beanName)) {
+        if (this.parentBeanFactory == null) {
+            return false;
+        }
+        if (this.missingBeanNames.containsKey(beanName) && isCurrent(this.missingBeanNamesStamps)) {
+            return false;
+        }
+        // read before looking up again, so that registrations during the lookup invalidate its result
+        long[] stamps = getRegistrationStamps();
+        if (this.singletonCache.containsKey(beanName) || containsBeanDefinition(beanName) ||
+                this.parentBeanFactory.containsBean(beanName)) {
             return true;
-        } else {
-            // not found -> check parent
-            if (this.parentBeanFactory != null) {
-                return this.parentBeanFactory.containsBean(beanName);
-            } else {
-                return false;
-            }
         }
+        if (stamps != null) {
+            addMissingBeanName(beanName, stamps);
+        }
+        return false;
     }
 
     @Override
     public boolean isSingleton(String name) throws NoSuchBeanDefinitionException {
         String beanName = transformedBeanName(name);
+        if (this.parentBeanFactory != null && !this.singletonCache.containsKey(beanName) &&
+                !containsBeanDefinition(beanName)) {
+            return this.parentBeanFactory.isSingleton(beanName);
+        }
         try {
             Class beanClass = null;
             boolean singleton = true;
@@ -173,15 +406,9 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
         String beanName = transformedBeanName(name);
         // check if bean actually exists in this bean factory
         if (this.singletonCache.containsKey(beanName) || containsBeanDefinition(beanName)) {
-            // if found, gather aliases
-            List aliases = new ArrayList();
-            for (Iterator it = this.aliasMap.entrySet().iterator(); it.hasNext(); ) {
-                Map.Entry entry = (Map.Entry) it.next();
-                if (entry.getValue().equals(beanName)) {
-                    aliases.add(entry.getKey());
-                }
-            }
-            return (String[]) aliases.toArray(new String[aliases.size()]);
+            // if found, return aliases
+            String[] aliases = (String[]) this.aliasesByBeanName.get(beanName);
+            return (aliases != null ? aliases.clone() : new String[0]);
         } else {
             // not found -> check parent
             if (this.parentBeanFactory != null) {
@@ -207,6 +434,7 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
     @Override
     public void setParentBeanFactory(BeanFactory parentBeanFactory) {
         this.parentBeanFactory = parentBeanFactory;
+        beanNamesChanged();
     }
 
     @Override
@@ -240,6 +468,7 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
     @Override
     public void addBeanPostProcessor(BeanPostProcessor beanPostProcessor) {
         this.beanPostProcessors.add(beanPostProcessor);
+        this.applicableBeanPostProcessors = null;
     }
 
     /**
@@ -251,30 +480,58 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
         return beanPostProcessors;
     }
 
+    /**
+     * Return the BeanPostProcessors of this factory, with the ones applicable
+     * to each bean class cached.
+     *
+     * @see org.springframework.beans.factory.config.SelectiveBeanPostProcessor
+     */
+    ApplicableBeanPostProcessors getApplicableBeanPostProcessors() {
+        ApplicableBeanPostProcessors applicable = this.applicableBeanPostProcessors;
+        if (applicable == null || !applicable.isSnapshotOf(this.beanPostProcessors)) {
+            applicable = new ApplicableBeanPostProcessors(this.beanPostProcessors);
+            this.applicableBeanPostProcessors = applicable;
+        }
+        return applicable;
+    }
+
     @Override
     public void registerAlias(String beanName, String alias) throws BeanDefinitionStoreException {
         log.debug("Registering alias '" + alias + "' for bean with name '" + beanName + "'");
-        synchronized (this.aliasMap) {
-            Object registeredName = this.aliasMap.get(alias);
-            if (registeredName != null) {
-                throw new BeanDefinitionStoreException("Cannot register alias '" + alias + "' for bean name '" + beanName +
-                        "': it's already registered for bean name '" + registeredName + "'");
+        Object registeredName = this.aliasMap.putIfAbsent(alias, beanName);
+        if (registeredName != null) {
+            throw new BeanDefinitionStoreException("Cannot register alias '" + alias + "' for bean name '" + beanName +
+                    "': it's already registered for bean name '" + registeredName + "'");
+        }
+        synchronized (this.aliasesByBeanName) {
+            String[] aliases = (String[]) this.aliasesByBeanName.get(beanName);
+            String[] newAliases = new String[aliases != null ? aliases.length + 1 : 1];
+            if (aliases != null) {
+                System.arraycopy(aliases, 0, newAliases, 0, aliases.length);
             }
-            this.aliasMap.put(alias, beanName);
+            newAliases[newAliases.length - 1] = alias;
+            this.aliasesByBeanName.put(beanName, newAliases);
         }
+        beanNamesChanged();
     }
 
     @Override
     public void registerSingleton(String beanName, Object singletonObject) throws BeanDefinitionStoreException {
-        synchronized (this.singletonCache) {
-            Object oldObject = this.singletonCache.get(beanName);
-            if (oldObject != null) {
-                throw new BeanDefinitionStoreException("Could not register object [" + singletonObject +
-                        "] under bean name '" + beanName + "': there's already object [" +
-                        oldObject + " bound");
-            }
-            addSingleton(beanName, singletonObject);
+        Object oldObject = this.singletonCache.putIfAbsent(beanName, singletonObject);
+        if (oldObject != null) {
+            throw new BeanDefinitionStoreException("Could not register object [" + singletonObject +
+                    "] under bean name '" + beanName + "': there's already object [" +
+                    oldObject + " bound");
         }
+        this.singletonTypeIndex.put(beanName, singletonObject.getClass());
+        beanNamesChanged();
+    }
+
+    /**
+     * Return whether a singleton instance with the given name has already been created.
+     */
+    protected boolean containsSingleton(String beanName) {
+        return this.singletonCache.containsKey(beanName);
     }
 
     /**
@@ -288,6 +545,139 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
 
     protected void addSingleton(String beanName, Object singletonObject) {
         this.singletonCache.put(beanName, singletonObject);
+        this.singletonTypeIndex.put(beanName, singletonObject.getClass());
+        this.earlySingletonCache.remove(beanName);
+    }
+
+    /**
+     * Add the given singleton object, which is still being created, to the
+     * early singleton cache of this factory. Early references are only exposed
+     * to the thread creating the singleton, to be able to resolve circular
+     * references, and to threads that would otherwise deadlock on it.
+     *
+     * @param beanName        the name of the bean
+     * @param singletonObject the singleton object, not yet fully initialized
+     */
+    protected void addEarlySingleton(String beanName, Object singletonObject) {
+        this.earlySingletonCache.put(beanName, singletonObject);
+    }
+
+    /**
+     * Return the shared instance of the given singleton, creating it if necessary.
+     * <p>Creation is guarded by a lock per bean name, so that unrelated singletons
+     * can be created in parallel, while fully initialized instances are read
+     * without any locking.
+     *
+     * @param beanName             the name of the bean
+     * @param mergedBeanDefinition the merged bean definition for the bean
+     * @return the shared instance (possibly an early reference in case of a circular reference)
+     */
+    protected Object getSingleton(String beanName, RootBeanDefinition mergedBeanDefinition) throws BeansException {
+        Object sharedInstance = this.singletonCache.get(beanName);
+        if (sharedInstance != null) {
+            return sharedInstance;
+        }
+        ReentrantLock lock = (ReentrantLock) this.singletonLocks.computeIfAbsent(beanName, key -> new ReentrantLock());
+        Set inCreation = (Set) this.singletonsInCreation.get();
+        if (!lockForCreation(beanName, lock, inCreation)) {
+            Object earlyReference = this.earlySingletonCache.get(beanName);
+            if (earlyReference == null) {
+                throw new BeanCreationException(null, beanName,
+                        "Circular reference between singletons created by different threads, " +
+                                "with no early reference available (constructor injection?)");
+            }
+            log.debug("Returning early reference to singleton bean '" + beanName +
+                    "' that is currently being created by another thread");
+            return earlyReference;
+        }
+        try {
+            sharedInstance = this.singletonCache.get(beanName);
+            if (sharedInstance == null) {
+                // circular reference from within our own creation of this singleton?
+                sharedInstance = this.earlySingletonCache.get(beanName);
+            }
+            if (sharedInstance == null) {
+                if (this.singletonsInDestruction) {
+                    throw new BeanCreationException(null, beanName,
+                            "Singleton bean creation not allowed while the singletons of this factory are being destroyed");
+                }
+                log.info("Creating shared instance of singleton bean '" + beanName + "'");
+                inCreation.add(beanName);
+                this.singletonCreators.put(beanName, Thread.currentThread());
+                try {
+                    sharedInstance = createBean(beanName, mergedBeanDefinition);
+                    addSingleton(beanName, sharedInstance);
+                } finally {
+                    this.singletonCreators.remove(beanName);
+                    this.earlySingletonCache.remove(beanName);
+                    inCreation.remove(beanName);
+                }
+            }
+            return sharedInstance;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquire the creation lock of the given singleton.
+     *
+     * @param inCreation the names of the singletons the current thread is creating
+     * @return true if the lock has been acquired, false if waiting for it would deadlock
+     */
+    private boolean lockForCreation(String beanName, ReentrantLock lock, Set inCreation) throws BeansException {
+        if (inCreation.isEmpty() || lock.isHeldByCurrentThread()) {
+            // we don't hold any other creation lock -> we can't be part of a deadlock
+            lock.lock();
+            return true;
+        }
+        return lockForNestedCreation(beanName, lock);
+    }
+
+    /**
+     * Acquire the creation lock of the given singleton while the current thread
+     * is already creating other singletons. Detects circular references between
+     * singletons created by different threads, which would otherwise deadlock.
+     *
+     * @return true if the lock has been acquired, false if waiting for it would deadlock
+     */
+    private boolean lockForNestedCreation(String beanName, ReentrantLock lock) throws BeansException {
+        Thread currentThread = Thread.currentThread();
+        this.singletonWaiters.put(currentThread, beanName);
+        try {
+            while (!lock.tryLock(50, TimeUnit.MILLISECONDS)) {
+                if (isWaitingForCurrentThread(beanName)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BeanCreationException(null, beanName, "Interrupted while waiting for singleton creation", ex);
+        } finally {
+            this.singletonWaiters.remove(currentThread);
+        }
+    }
+
+    /**
+     * Check whether the thread creating the given singleton (transitively)
+     * waits for a singleton that the current thread is creating.
+     */
+    private boolean isWaitingForCurrentThread(String beanName) {
+        Thread currentThread = Thread.currentThread();
+        Set visited = new HashSet();
+        String name = beanName;
+        while (name != null && visited.add(name)) {
+            Thread creator = (Thread) this.singletonCreators.get(name);
+            if (creator == null) {
+                return false;
+            }
+            if (creator == currentThread) {
+                return true;
+            }
+            name = (String) this.singletonWaiters.get(creator);
+        }
+        return false;
     }
 
     @Override
@@ -295,10 +685,38 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
         if (log.isInfoEnabled()) {
             log.info("Destroying singletons in factory {" + this + "}");
         }
-        synchronized (this.singletonCache) {
-            Set singletonCacheKeys = new HashSet(this.singletonCache.keySet());
-            for (Iterator it = singletonCacheKeys.iterator(); it.hasNext(); ) {
-                destroySingleton((String) it.next());
+        synchronized (this.destructionMonitor) {
+            this.singletonsInDestruction = true;
+            try {
+                awaitSingletonCreations();
+                if (this.destructionParallelism > 1 || this.beanDestructionTimeout > 0 || this.destructionTimeout > 0) {
+                    new ParallelSingletonDestroyer(this, this.destructionParallelism, this.beanDestructionTimeout,
+                            this.destructionTimeout).destroy(new ArrayList(this.singletonCache.keySet()));
+                } else {
+                    Set singletonCacheKeys = new HashSet(this.singletonCache.keySet());
+                    for (Iterator it = singletonCacheKeys.iterator(); it.hasNext(); ) {
+                        destroySingleton((String) it.next());
+                    }
+                }
+                this.factoryBeanObjectCache.clear();
+                this.dependentBeanMap.clear();
+                this.dependenciesForBeanMap.clear();
+            } finally {
+                this.singletonsInDestruction = false;
+            }
+        }
+    }
+
+    /**
+     * Wait for the singletons being created by other threads, which started
+     * before the creation of new ones was rejected.
+     */
+    private void awaitSingletonCreations() {
+        for (Iterator it = this.singletonLocks.values().iterator(); it.hasNext(); ) {
+            ReentrantLock lock = (ReentrantLock) it.next();
+            if (!lock.isHeldByCurrentThread()) {
+                lock.lock();
+                lock.unlock();
             }
         }
     }
@@ -313,7 +731,86 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
     protected void destroySingleton(String beanName) {
         Object singletonInstance = this.singletonCache.remove(beanName);
         if (singletonInstance != null) {
+            this.singletonTypeIndex.remove(beanName);
+            this.factoryBeanObjectCache.remove(beanName);
             destroyBean(beanName, singletonInstance);
+            removeDependentBeans(beanName);
+        }
+    }
+
+    /**
+     * Remove the given singleton from the cache without destroying it.
+     */
+    void removeSingleton(String beanName) {
+        if (this.singletonCache.remove(beanName) != null) {
+            this.singletonTypeIndex.remove(beanName);
+            this.factoryBeanObjectCache.remove(beanName);
+        }
+    }
+
+    /**
+     * Register a dependent bean for the given bean,
+     * to be destroyed before the given bean is destroyed.
+     * <p>
+     * 记录依赖关系：dependentBeanName依赖于beanName。
+     *
+     * @param beanName          the canonical name of the bean
+     * @param dependentBeanName the name of the singleton that depends on it
+     */
+    protected void registerDependentBean(String beanName, String dependentBeanName) {
+        Set dependentBeans = (Set) this.dependentBeanMap.get(beanName);
+        if (dependentBeans == null) {
+            Set newSet = Collections.synchronizedSet(new LinkedHashSet());
+            dependentBeans = (Set) this.dependentBeanMap.putIfAbsent(beanName, newSet);
+            if (dependentBeans == null) {
+                dependentBeans = newSet;
+            }
+        }
+        dependentBeans.add(dependentBeanName);
+
+        Set dependencies = (Set) this.dependenciesForBeanMap.get(dependentBeanName);
+        if (dependencies == null) {
+            Set newSet = Collections.synchronizedSet(new LinkedHashSet());
+            dependencies = (Set) this.dependenciesForBeanMap.putIfAbsent(dependentBeanName, newSet);
+            if (dependencies == null) {
+                dependencies = newSet;
+            }
+        }
+        dependencies.add(beanName);
+    }
+
+    /**
+     * Return the names of the singletons registered as depending on the given bean.
+     *
+     * @param beanName the canonical name of the bean
+     * @return the names of the dependent beans, in registration order
+     * @see #registerDependentBean
+     */
+    protected String[] getDependentBeans(String beanName) {
+        Set dependentBeans = (Set) this.dependentBeanMap.get(beanName);
+        if (dependentBeans == null) {
+            return new String[0];
+        }
+        synchronized (dependentBeans) {
+            return (String[]) dependentBeans.toArray(new String[dependentBeans.size()]);
+        }
+    }
+
+    /**
+     * Remove all dependency information of the given bean, after it has been destroyed.
+     */
+    private void removeDependentBeans(String beanName) {
+        this.dependentBeanMap.remove(beanName);
+        Set dependencies = (Set) this.dependenciesForBeanMap.remove(beanName);
+        if (dependencies != null) {
+            synchronized (dependencies) {
+                for (Iterator it = dependencies.iterator(); it.hasNext(); ) {
+                    Set dependentBeans = (Set) this.dependentBeanMap.get(it.next());
+                    if (dependentBeans != null) {
+                        dependentBeans.remove(beanName);
+                    }
+                }
+            }
         }
     }
 
@@ -351,6 +848,14 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
 
 
     protected void initBeanWrapper(BeanWrapper bw) {
+        if (bw instanceof BeanWrapperImpl) {
+            if (this.conversionService != null) {
+                ((BeanWrapperImpl) bw).setConversionService(this.conversionService);
+            }
+            if (this.useGeneratedAccessors) {
+                ((BeanWrapperImpl) bw).setUseGeneratedAccessors(true);
+            }
+        }
         for (Iterator it = this.customEditors.keySet().iterator(); it.hasNext(); ) {
             Class clazz = (Class) it.next();
             bw.registerCustomEditor(clazz, (PropertyEditor) this.customEditors.get(clazz));
@@ -358,18 +863,14 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
     }
 
 
+    /**
+     * Return the names of the singletons in the singleton cache that match
+     * the given type, using an index maintained on singleton registration.
+     *
+     * @param type the type to match, or null for all singletons
+     */
     public String[] getSingletonNames(Class type) {
-        Set keys = this.singletonCache.keySet();
-        Set matches = new HashSet();
-        Iterator itr = keys.iterator();
-        while (itr.hasNext()) {
-            String name = (String) itr.next();
-            Object singletonObject = this.singletonCache.get(name);
-            if (type == null || type.isAssignableFrom(singletonObject.getClass())) {
-                matches.add(name);
-            }
-        }
-        return (String[]) matches.toArray(new String[matches.size()]);
+        return this.singletonTypeIndex.getNames(type);
     }
 
 
@@ -390,18 +891,10 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
             if (!isFactoryDereference(name)) {
                 // return bean instance from factory
                 FactoryBean factory = (FactoryBean) beanInstance;
-                log.debug("Bean with name '" + beanName + "' is a factory bean");
-                try {
-                    beanInstance = factory.getObject();
-                } catch (BeansException ex) {
-                    throw ex;
-                } catch (Exception ex) {
-                    throw new BeanCreationException("FactoryBean threw exception on object creation", ex);
-                }
-                if (beanInstance == null) {
-                    throw new FactoryBeanCircularReferenceException(
-                            "Factory bean '" + beanName + "' returned null object - " +
-                                    "possible cause: not fully initialized due to circular bean reference");
+                if (factory.isSingleton() && this.singletonCache.get(beanName) == factory) {
+                    beanInstance = getSingletonObjectFromFactoryBean(beanName, factory);
+                } else {
+                    beanInstance = getObjectFromFactoryBean(beanName, factory);
                 }
             } else {
                 // the user wants the factory itself
@@ -413,10 +906,92 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
     }
 
 
+    /**
+     * Return the object created by the given fully initialized singleton FactoryBean,
+     * creating it only once. Creation is guarded by the creation lock of the FactoryBean.
+     * Fails like {@link #getSingleton} if waiting for another thread creating the
+     * object would deadlock, as there is no early reference to the object.
+     *
+     * @param beanName the name of the FactoryBean
+     * @param factory  the FactoryBean instance
+     * @return the cached object
+     */
+    private Object getSingletonObjectFromFactoryBean(String beanName, FactoryBean factory) throws BeansException {
+        Object object = this.factoryBeanObjectCache.get(beanName);
+        if (object != null) {
+            return object;
+        }
+        ReentrantLock lock = (ReentrantLock) this.singletonLocks.computeIfAbsent(beanName, key -> new ReentrantLock());
+        Set inCreation = (Set) this.singletonsInCreation.get();
+        if (!lockForCreation(beanName, lock, inCreation)) {
+            // waiting for the other thread would deadlock, and there's no object to share yet
+            throw new FactoryBeanCircularReferenceException(
+                    "Circular reference involving FactoryBean '" + beanName + "' between singletons " +
+                            "created by different threads: its object is not available yet");
+        }
+        try {
+            object = this.factoryBeanObjectCache.get(beanName);
+            if (object == null) {
+                boolean added = inCreation.add(beanName);
+                if (added) {
+                    this.singletonCreators.put(beanName, Thread.currentThread());
+                }
+                try {
+                    object = getObjectFromFactoryBean(beanName, factory);
+                    this.factoryBeanObjectCache.put(beanName, object);
+                } finally {
+                    if (added) {
+                        this.singletonCreators.remove(beanName);
+                        inCreation.remove(beanName);
+                    }
+                }
+            }
+            return object;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Object getObjectFromFactoryBean(String beanName, FactoryBean factory) throws BeansException {
+        log.debug("Bean with name '" + beanName + "' is a factory bean");
+        Object object;
+        try {
+            object = factory.getObject();
+        } catch (BeansException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new BeanCreationException("FactoryBean threw exception on object creation", ex);
+        }
+        if (object == null) {
+            throw new FactoryBeanCircularReferenceException(
+                    "Factory bean '" + beanName + "' returned null object - " +
+                            "possible cause: not fully initialized due to circular bean reference");
+        }
+        return object;
+    }
+
+    /**
+     * Return a RootBeanDefinition for the given bean name, merging a child
+     * bean definition with its parent if necessary. Merged definitions are
+     * cached until {@link #clearMergedBeanDefinitions} is called.
+     *
+     * @param beanName           the name of the bean
+     * @param includingAncestors whether to ask the parent bean factory if not found
+     * @return the merged bean definition, to be treated as read-only
+     */
     public RootBeanDefinition getMergedBeanDefinition(String beanName, boolean includingAncestors)
             throws BeansException {
+        RootBeanDefinition mergedBeanDefinition = (RootBeanDefinition) this.mergedBeanDefinitions.get(beanName);
+        if (mergedBeanDefinition != null) {
+            return mergedBeanDefinition;
+        }
         try {
-            return getMergedBeanDefinition(beanName, getBeanDefinition(beanName));
+            BeanDefinition bd = getBeanDefinition(beanName);
+            mergedBeanDefinition = getMergedBeanDefinition(beanName, bd);
+            if (mergedBeanDefinition != bd && isLocalDefinitionHierarchy(bd)) {
+                this.mergedBeanDefinitions.put(beanName, mergedBeanDefinition);
+            }
+            return mergedBeanDefinition;
         } catch (NoSuchBeanDefinitionException ex) {
             if (includingAncestors && getParentBeanFactory() instanceof AbstractAutowireCapableBeanFactory) {
                 return ((AbstractAutowireCapableBeanFactory) getParentBeanFactory()).getMergedBeanDefinition(beanName, true);
@@ -426,6 +1001,102 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
         }
     }
 
+    /**
+     * Check whether all parents of the given bean definition are defined in this
+     * factory, so that a merged definition can't be invalidated by a parent factory.
+     */
+    boolean isLocalDefinitionHierarchy(BeanDefinition bd) {
+        Set visited = new HashSet();
+        while (bd instanceof ChildBeanDefinition) {
+            String parentName = ((ChildBeanDefinition) bd).getParentName();
+            if (!visited.add(parentName) || !containsBeanDefinition(parentName)) {
+                return false;
+            }
+            bd = getBeanDefinition(parentName);
+        }
+        return true;
+    }
+
+    /**
+     * Remove all cached merged bean definitions, e.g. after a bean definition
+     * has been registered or modified. They will be re-merged on next access.
+     */
+    protected void clearMergedBeanDefinitions() {
+        if (!this.mergedBeanDefinitions.isEmpty()) {
+            this.mergedBeanDefinitions.clear();
+        }
+    }
+
+    /**
+     * Signal that a bean name has been registered with this factory, or that
+     * its parent has changed. Invalidates the cached names of missing beans of
+     * this factory and of its descendants, which check the stamps of their ancestors.
+     */
+    protected void beanNamesChanged() {
+        this.registrationStamp.incrementAndGet();
+    }
+
+    /**
+     * Return the current registration stamps of this factory and its ancestors,
+     * from this factory up, or null if not all ancestors are bean factories of
+     * this kind, which signal their registrations.
+     */
+    private long[] getRegistrationStamps() {
+        int depth = 0;
+        for (BeanFactory bf = this; bf != null; bf = ((AbstractBeanFactory) bf).parentBeanFactory) {
+            if (!(bf instanceof AbstractBeanFactory)) {
+                return null;
+            }
+            depth++;
+        }
+        long[] stamps = new long[depth];
+        AbstractBeanFactory bf = this;
+        for (int i = 0; i < depth; i++) {
+            stamps[i] = bf.registrationStamp.get();
+            bf = (AbstractBeanFactory) bf.parentBeanFactory;
+        }
+        return stamps;
+    }
+
+    /**
+     * Check whether no bean name has been registered with this factory or its
+     * ancestors since the given stamps were taken. As a change of parent changes
+     * the stamp of the child, equal stamps also mean the same ancestors.
+     */
+    private boolean isCurrent(long[] stamps) {
+        if (stamps == null) {
+            return false;
+        }
+        BeanFactory bf = this;
+        for (int i = 0; i < stamps.length; i++) {
+            if (!(bf instanceof AbstractBeanFactory) ||
+                    ((AbstractBeanFactory) bf).registrationStamp.get() != stamps[i]) {
+                return false;
+            }
+            bf = ((AbstractBeanFactory) bf).parentBeanFactory;
+        }
+        return (bf == null);
+    }
+
+    /**
+     * Remember that the given bean name is neither defined in this factory nor in
+     * its ancestors, if no bean name has been registered since the given stamps
+     * were taken.
+     */
+    private void addMissingBeanName(String beanName, long[] stamps) {
+        synchronized (this.missingBeanNames) {
+            if (!isCurrent(stamps)) {
+                return;
+            }
+            if (!Arrays.equals(this.missingBeanNamesStamps, stamps) ||
+                    this.missingBeanNames.size() >= MISSING_BEAN_NAMES_LIMIT) {
+                this.missingBeanNames.clear();
+                this.missingBeanNamesStamps = stamps;
+            }
+            this.missingBeanNames.put(beanName, Boolean.TRUE);
+        }
+    }
+
 
     protected RootBeanDefinition getMergedBeanDefinition(String beanName, BeanDefinition bd) {
         if (bd instanceof RootBeanDefinition) {
@@ -441,6 +1112,7 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory, Hi
             // override settings
             rbd.setSingleton(cbd.isSingleton());
             rbd.setLazyInit(cbd.isLazyInit());
+            rbd.setLazyResolution(cbd.isLazyResolution());
             rbd.setResourceDescription(cbd.getResourceDescription());
             return rbd;
         } else {
@@ -0,0 +1,106 @@
+package org.springframework.beans.factory.support;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshot of the BeanPostProcessors of a bean factory, caching the ones that
+ * apply to each bean class.
+ * <p>
+ * Plain BeanPostProcessors apply to every bean; {@link SelectiveBeanPostProcessor}s
+ * only to the classes they accept. If a post-processor returns an object of another
+ * class, e.g. a proxy, the remaining post-processors are chosen for that class.
+ * <p>
+ * 按bean类缓存适用的BeanPostProcessor。
+ *
+ * @see AbstractBeanFactory#getApplicableBeanPostProcessors
+ */
+class ApplicableBeanPostProcessors {
+
+    private final BeanPostProcessor[] beanPostProcessors;
+
+    /**
+     * bean class --> int[] with the indexes of the applicable post-processors
+     */
+    private final Map indexesByClass = new ConcurrentHashMap();
+
+
+    ApplicableBeanPostProcessors(List beanPostProcessors) {
+        this.beanPostProcessors = (BeanPostProcessor[])
+                beanPostProcessors.toArray(new BeanPostProcessor[beanPostProcessors.size()]);
+    }
+
+
+    /**
+     * Return whether this snapshot still reflects the given list of post-processors,
+     * i.e. whether it contains the same post-processors in the same order.
+     */
+    public boolean isSnapshotOf(List beanPostProcessors) {
+        if (this.beanPostProcessors.length != beanPostProcessors.size()) {
+            return false;
+        }
+        for (int i = 0; i < this.beanPostProcessors.length; i++) {
+            if (this.beanPostProcessors[i] != beanPostProcessors.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Object applyBeforeInitialization(Object bean, String name) throws BeansException {
+        return apply(bean, name, true);
+    }
+
+    public Object applyAfterInitialization(Object bean, String name) throws BeansException {
+        return apply(bean, name, false);
+    }
+
+    private Object apply(Object bean, String name, boolean beforeInitialization) {
+        if (bean == null) {
+            return null;
+        }
+        Object result = bean;
+        Class beanClass = bean.getClass();
+        int[] indexes = getIndexes(beanClass);
+        for (int k = 0; k < indexes.length; k++) {
+            int i = indexes[k];
+            BeanPostProcessor beanProcessor = this.beanPostProcessors[i];
+            result = (beforeInitialization ? beanProcessor.postProcessBeforeInitialization(result, name) :
+                    beanProcessor.postProcessAfterInitialization(result, name));
+            if (result != null && result.getClass() != beanClass) {
+                // continue with the post-processors after i that apply to the new class
+                beanClass = result.getClass();
+                indexes = getIndexes(beanClass);
+                k = -1;
+                while (k + 1 < indexes.length && indexes[k + 1] <= i) {
+                    k++;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int[] getIndexes(Class beanClass) {
+        int[] indexes = (int[]) this.indexesByClass.get(beanClass);
+        if (indexes == null) {
+            int[] candidates = new int[this.beanPostProcessors.length];
+            int count = 0;
+            for (int i = 0; i < this.beanPostProcessors.length; i++) {
+                if (!(this.beanPostProcessors[i] instanceof SelectiveBeanPostProcessor) ||
+                        ((SelectiveBeanPostProcessor) this.beanPostProcessors[i]).isApplicableTo(beanClass)) {
+                    candidates[count++] = i;
+                }
+            }
+            indexes = new int[count];
+            System.arraycopy(candidates, 0, indexes, 0, count);
+            this.indexesByClass.put(beanClass, indexes);
+        }
+        return indexes;
+    }
+
+}
@@ -0,0 +1,130 @@
+package org.springframework.beans.factory.support;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Map;
+
+/**
+ * Reduces the heap footprint of bean definitions by interning the strings they
+ * hold: class names, method names, property names, bean references and String
+ * values. Large sets of bean definitions, typically generated or parsed from
+ * many similar files, repeat the same few strings over and over.
+ * <p>
+ * Inner bean definitions and managed collections are compacted as well. Only
+ * the strings get replaced, the bean definitions themselves stay independent.
+ * <p>
+ * 通过字符串驻留压缩bean定义的内存占用。
+ *
+ * @see DefaultListableBeanFactory#setCompactBeanDefinitions
+ */
+abstract class BeanDefinitionCompactor {
+
+    /**
+     * Intern the strings held by the given bean definition, in place.
+     */
+    public static void compact(BeanDefinition bd) {
+        if (bd instanceof AbstractBeanDefinition) {
+            AbstractBeanDefinition abd = (AbstractBeanDefinition) bd;
+            if (!abd.hasBeanClass() && abd.getBeanClassName() != null) {
+                abd.setBeanClassName(abd.getBeanClassName().intern());
+            }
+            abd.setInitMethodName(intern(abd.getInitMethodName()));
+            abd.setDestroyMethodName(intern(abd.getDestroyMethodName()));
+            abd.setFactoryMethodName(intern(abd.getFactoryMethodName()));
+            abd.setFactoryBeanName(intern(abd.getFactoryBeanName()));
+            abd.setResourceDescription(intern(abd.getResourceDescription()));
+            String[] dependsOn = abd.getDependsOn();
+            if (dependsOn != null) {
+                for (int i = 0; i < dependsOn.length; i++) {
+                    dependsOn[i] = intern(dependsOn[i]);
+                }
+            }
+        }
+        compactPropertyValues(bd.getPropertyValues());
+        compactConstructorArgumentValues(bd.getConstructorArgumentValues());
+    }
+
+    private static void compactPropertyValues(MutablePropertyValues pvs) {
+        if (pvs == null) {
+            return;
+        }
+        PropertyValue[] pvArray = pvs.getPropertyValues();
+        for (int i = 0; i < pvArray.length; i++) {
+            String name = pvArray[i].getName().intern();
+            Object value = compactValue(pvArray[i].getValue());
+            if (name != pvArray[i].getName() || value != pvArray[i].getValue()) {
+                pvs.setPropertyValueAt(new PropertyValue(name, value), i);
+            }
+        }
+    }
+
+    private static void compactConstructorArgumentValues(ConstructorArgumentValues cargs) {
+        if (cargs == null) {
+            return;
+        }
+        for (Iterator it = cargs.getIndexedArgumentValues().values().iterator(); it.hasNext(); ) {
+            compactValueHolder((ConstructorArgumentValues.ValueHolder) it.next());
+        }
+        for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext(); ) {
+            compactValueHolder((ConstructorArgumentValues.ValueHolder) it.next());
+        }
+    }
+
+    private static void compactValueHolder(ConstructorArgumentValues.ValueHolder valueHolder) {
+        Object value = compactValue(valueHolder.getValue());
+        if (value != valueHolder.getValue()) {
+            valueHolder.setValue(value);
+        }
+    }
+
+    /**
+     * Return the compacted version of the given bean definition value:
+     * either the value itself, compacted in place, or an interned replacement.
+     */
+    private static Object compactValue(Object value) {
+        if (value instanceof String) {
+            return ((String) value).intern();
+        } else if (value instanceof RuntimeBeanReference) {
+            RuntimeBeanReference ref = (RuntimeBeanReference) value;
+            String beanName = ref.getBeanName();
+            return (beanName.intern() == beanName ? value : new RuntimeBeanReference(beanName.intern(), ref.isLazy()));
+        } else if (value instanceof BeanDefinition) {
+            compact((BeanDefinition) value);
+        } else if (value instanceof ManagedList) {
+            for (ListIterator it = ((ManagedList) value).listIterator(); it.hasNext(); ) {
+                Object element = it.next();
+                Object compacted = compactValue(element);
+                if (compacted != element) {
+                    it.set(compacted);
+                }
+            }
+        } else if (value instanceof ManagedSet) {
+            // set elements can't be replaced in place: just compact nested structures
+            for (Iterator it = ((ManagedSet) value).iterator(); it.hasNext(); ) {
+                Object element = it.next();
+                if (!(element instanceof String) && !(element instanceof RuntimeBeanReference)) {
+                    compactValue(element);
+                }
+            }
+        } else if (value instanceof ManagedMap) {
+            for (Iterator it = ((ManagedMap) value).entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                Object compacted = compactValue(entry.getValue());
+                if (compacted != entry.getValue()) {
+                    entry.setValue(compacted);
+                }
+            }
+        }
+        return value;
+    }
+
+    private static String intern(String value) {
+        return (value != null ? value.intern() : null);
+    }
+
+}
@@ -0,0 +1,18 @@
+package org.springframework.beans.factory.support;
+
+/**
+ * Callback for customizing a bean definition that is registered programmatically,
+ * e.g. to make it a prototype or to add property values.
+ * <p>
+ * 以编程方式注册bean时用于定制bean定义的回调。
+ *
+ * @see DefaultListableBeanFactory#registerBean(String, Class, java.util.function.Supplier, BeanDefinitionCustomizer)
+ */
+public interface BeanDefinitionCustomizer {
+
+    /**
+     * Customize the given bean definition before it gets registered.
+     */
+    void customize(AbstractBeanDefinition bd);
+
+}
@@ -0,0 +1,249 @@
+package org.springframework.beans.factory.support;
+
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates the heap occupied by a bean definition, including its property
+ * values, constructor argument values, inner bean definitions and managed
+ * collections. Values of other types are counted with their shallow size only.
+ * <p>
+ * The estimate assumes a 64-bit JVM with compressed object pointers, and
+ * counts objects shared between bean definitions, like interned strings,
+ * for every bean definition that refers to them.
+ * <p>
+ * 估算bean定义占用的堆内存。
+ *
+ * @see DefaultListableBeanFactory#getBeanDefinitionFootprints
+ */
+class BeanDefinitionFootprint {
+
+    private static final int OBJECT_HEADER = 12;
+
+    private static final int ARRAY_HEADER = 16;
+
+    private static final int REFERENCE = 4;
+
+    /**
+     * Size of a HashMap entry: header, hash, key, value and next references
+     */
+    private static final int HASH_MAP_ENTRY = 32;
+
+    /**
+     * Class --> Long shallow size of its instances
+     */
+    private static final Map shallowSizes = new ConcurrentHashMap();
+
+
+    /**
+     * Objects counted so far, to count objects referenced twice only once
+     */
+    private final Map visited = new IdentityHashMap();
+
+    private long size;
+
+
+    /**
+     * Return the estimated number of bytes occupied by the given bean definition.
+     */
+    public static long estimate(BeanDefinition bd) {
+        BeanDefinitionFootprint footprint = new BeanDefinitionFootprint();
+        footprint.addBeanDefinition(bd);
+        return footprint.size;
+    }
+
+    private void addBeanDefinition(BeanDefinition bd) {
+        if (!visit(bd)) {
+            return;
+        }
+        this.size += shallowSize(bd.getClass());
+        if (bd instanceof AbstractBeanDefinition) {
+            AbstractBeanDefinition abd = (AbstractBeanDefinition) bd;
+            if (!abd.hasBeanClass()) {
+                addString(abd.getBeanClassName());
+            }
+            addString(abd.getInitMethodName());
+            addString(abd.getDestroyMethodName());
+            addString(abd.getFactoryMethodName());
+            addString(abd.getFactoryBeanName());
+            addString(abd.getResourceDescription());
+            String[] dependsOn = abd.getDependsOn();
+            if (dependsOn != null && visit(dependsOn)) {
+                this.size += arraySize(REFERENCE, dependsOn.length);
+                for (int i = 0; i < dependsOn.length; i++) {
+                    addString(dependsOn[i]);
+                }
+            }
+        }
+        if (bd instanceof ChildBeanDefinition) {
+            addString(((ChildBeanDefinition) bd).getParentName());
+        }
+        addPropertyValues(bd.getPropertyValues());
+        addConstructorArgumentValues(bd.getConstructorArgumentValues());
+    }
+
+    private void addPropertyValues(MutablePropertyValues pvs) {
+        if (!visit(pvs)) {
+            return;
+        }
+        this.size += shallowSize(pvs.getClass());
+        PropertyValue[] pvArray = pvs.getPropertyValues();
+        if (pvArray.length > 0 && visit(pvArray)) {
+            this.size += arraySize(REFERENCE, pvArray.length);
+            for (int i = 0; i < pvArray.length; i++) {
+                if (visit(pvArray[i])) {
+                    this.size += shallowSize(PropertyValue.class);
+                    addString(pvArray[i].getName());
+                    addValue(pvArray[i].getValue());
+                }
+            }
+        }
+    }
+
+    private void addConstructorArgumentValues(ConstructorArgumentValues cargs) {
+        if (!visit(cargs)) {
+            return;
+        }
+        this.size += shallowSize(cargs.getClass());
+        Map indexed = cargs.getIndexedArgumentValues();
+        if (!indexed.isEmpty()) {
+            this.size += shallowSize(HashMap.class) + hashTableSize(indexed.size());
+            for (Iterator it = indexed.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                if (((Integer) entry.getKey()).intValue() > 127) {
+                    // smaller indexes use cached Integer instances
+                    this.size += shallowSize(Integer.class);
+                }
+                addValueHolder((ConstructorArgumentValues.ValueHolder) entry.getValue());
+            }
+        }
+        if (!cargs.getGenericArgumentValues().isEmpty()) {
+            this.size += shallowSize(HashSet.class) + shallowSize(HashMap.class) +
+                    hashTableSize(cargs.getGenericArgumentValues().size());
+            for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext(); ) {
+                addValueHolder((ConstructorArgumentValues.ValueHolder) it.next());
+            }
+        }
+    }
+
+    private void addValueHolder(ConstructorArgumentValues.ValueHolder valueHolder) {
+        if (visit(valueHolder)) {
+            this.size += shallowSize(ConstructorArgumentValues.ValueHolder.class);
+            addString(valueHolder.getType());
+            addValue(valueHolder.getValue());
+        }
+    }
+
+    private void addValue(Object value) {
+        if (value instanceof String) {
+            addString((String) value);
+        } else if (value instanceof BeanDefinition) {
+            addBeanDefinition((BeanDefinition) value);
+        } else if (!visit(value)) {
+            return;
+        } else if (value instanceof RuntimeBeanReference) {
+            this.size += shallowSize(RuntimeBeanReference.class);
+            addString(((RuntimeBeanReference) value).getBeanName());
+        } else if (value instanceof ManagedList) {
+            ManagedList list = (ManagedList) value;
+            this.size += shallowSize(ManagedList.class) + arraySize(REFERENCE, list.size());
+            for (Iterator it = list.iterator(); it.hasNext(); ) {
+                addValue(it.next());
+            }
+        } else if (value instanceof ManagedSet) {
+            ManagedSet set = (ManagedSet) value;
+            this.size += shallowSize(ManagedSet.class) + shallowSize(HashMap.class) + hashTableSize(set.size());
+            for (Iterator it = set.iterator(); it.hasNext(); ) {
+                addValue(it.next());
+            }
+        } else if (value instanceof ManagedMap) {
+            ManagedMap map = (ManagedMap) value;
+            this.size += shallowSize(ManagedMap.class) + hashTableSize(map.size());
+            for (Iterator it = map.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                addValue(entry.getKey());
+                addValue(entry.getValue());
+            }
+        } else {
+            this.size += shallowSize(value.getClass());
+        }
+    }
+
+    private void addString(String value) {
+        if (value != null && visit(value)) {
+            this.size += shallowSize(String.class) + arraySize(2, value.length());
+        }
+    }
+
+    private boolean visit(Object obj) {
+        return (obj != null && this.visited.put(obj, Boolean.TRUE) == null);
+    }
+
+    //---------------------------------------------------------------------
+    // Size calculation
+    //---------------------------------------------------------------------
+
+    /**
+     * Return the size of the table and entries of a HashMap with the
+     * given number of entries, not including the keys and values.
+     */
+    private static long hashTableSize(int entries) {
+        int tableSize = 16;
+        while (tableSize * 3 / 4 < entries) {
+            tableSize *= 2;
+        }
+        return arraySize(REFERENCE, tableSize) + (long) entries * HASH_MAP_ENTRY;
+    }
+
+    private static long arraySize(int elementSize, int length) {
+        return align(ARRAY_HEADER + (long) elementSize * length);
+    }
+
+    private static long shallowSize(Class clazz) {
+        Long size = (Long) shallowSizes.get(clazz);
+        if (size == null) {
+            long fieldSize = 0;
+            for (Class c = clazz; c != null; c = c.getSuperclass()) {
+                Field[] fields = c.getDeclaredFields();
+                for (int i = 0; i < fields.length; i++) {
+                    if (!Modifier.isStatic(fields[i].getModifiers())) {
+                        fieldSize += fieldSize(fields[i].getType());
+                    }
+                }
+            }
+            size = new Long(align(OBJECT_HEADER + fieldSize));
+            shallowSizes.put(clazz, size);
+        }
+        return size.longValue();
+    }
+
+    private static int fieldSize(Class type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        } else {
+            return REFERENCE;
+        }
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,164 @@
+package org.springframework.beans.factory.support;
+
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index from types to the names of the beans that are assignable to them.
+ * <p>
+ * Every bean name is indexed under its bean class, all superclasses and all
+ * implemented interfaces, so that a lookup by type is a single map access.
+ * Names are returned in the order in which they were first added, independent
+ * of later re-indexing.
+ * <p>
+ * 类型到bean名称的索引，包括父类和接口。
+ *
+ * @see DefaultListableBeanFactory#getBeanDefinitionNames(Class)
+ * @see AbstractBeanFactory#getSingletonNames(Class)
+ */
+class BeanTypeIndex {
+
+    /**
+     * bean name --> Integer slot, determining the order of returned names
+     */
+    private final Map slots = new HashMap();
+
+    /**
+     * slot --> bean name
+     */
+    private final List names = new ArrayList();
+
+    /**
+     * bean name --> Set of the types the bean name is indexed under
+     */
+    private final Map typesByName = new HashMap();
+
+    /**
+     * type --> BitSet of the slots of the assignable bean names
+     */
+    private final Map slotsByType = new HashMap();
+
+
+    /**
+     * Reserve the position of the given bean name in lookup results,
+     * without indexing it under any type yet.
+     */
+    public synchronized void reserve(String name) {
+        getSlot(name);
+    }
+
+    /**
+     * Index the given bean name under the given bean class and all of its
+     * supertypes, replacing any previous entry for that name.
+     */
+    public synchronized void put(String name, Class beanClass) {
+        put(name, getAllTypes(beanClass));
+    }
+
+    /**
+     * Index all given bean names under their bean classes, in the iteration
+     * order of the given Map.
+     *
+     * @param beanClasses Map with bean names as keys and bean classes as values
+     */
+    public synchronized void putAll(Map beanClasses) {
+        // bean class --> Set of all its types, typically shared by many bean names
+        Map typesByClass = new HashMap();
+        for (Iterator it = beanClasses.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            Set types = (Set) typesByClass.get(entry.getValue());
+            if (types == null) {
+                types = getAllTypes((Class) entry.getValue());
+                typesByClass.put(entry.getValue(), types);
+            }
+            put((String) entry.getKey(), types);
+        }
+    }
+
+    private void put(String name, Set types) {
+        removeTypes(name);
+        int slot = getSlot(name);
+        for (Iterator it = types.iterator(); it.hasNext(); ) {
+            Class type = (Class) it.next();
+            BitSet typeSlots = (BitSet) this.slotsByType.get(type);
+            if (typeSlots == null) {
+                typeSlots = new BitSet();
+                this.slotsByType.put(type, typeSlots);
+            }
+            typeSlots.set(slot);
+        }
+        this.typesByName.put(name, types);
+    }
+
+    /**
+     * Remove the given bean name from the index. Keeps its position,
+     * in case the name gets indexed again.
+     */
+    public synchronized void remove(String name) {
+        removeTypes(name);
+    }
+
+    /**
+     * Return the names of all beans that are assignable to the given type.
+     *
+     * @param type the type to match, or null for all indexed bean names
+     * @return the matching bean names, in the order they were first added
+     */
+    public synchronized String[] getNames(Class type) {
+        List result = new ArrayList();
+        if (type == null) {
+            for (int i = 0; i < this.names.size(); i++) {
+                if (this.typesByName.containsKey(this.names.get(i))) {
+                    result.add(this.names.get(i));
+                }
+            }
+        } else {
+            BitSet typeSlots = (BitSet) this.slotsByType.get(type);
+            if (typeSlots != null) {
+                for (int i = typeSlots.nextSetBit(0); i >= 0; i = typeSlots.nextSetBit(i + 1)) {
+                    result.add(this.names.get(i));
+                }
+            }
+        }
+        return (String[]) result.toArray(new String[result.size()]);
+    }
+
+    private int getSlot(String name) {
+        Integer slot = (Integer) this.slots.get(name);
+        if (slot == null) {
+            slot = new Integer(this.names.size());
+            this.slots.put(name, slot);
+            this.names.add(name);
+        }
+        return slot.intValue();
+    }
+
+    private void removeTypes(String name) {
+        Set types = (Set) this.typesByName.remove(name);
+        if (types != null) {
+            int slot = ((Integer) this.slots.get(name)).intValue();
+            for (Iterator it = types.iterator(); it.hasNext(); ) {
+                BitSet typeSlots = (BitSet) this.slotsByType.get(it.next());
+                typeSlots.clear(slot);
+            }
+        }
+    }
+
+    static Set getAllTypes(Class beanClass) {
+        Set types = new LinkedHashSet();
+        for (Class clazz = beanClass; clazz != null; clazz = clazz.getSuperclass()) {
+            types.add(clazz);
+        }
+        types.addAll(ClassUtils.getAllInterfacesForClassAsSet(beanClass));
+        return types;
+    }
+
+}
@@ -2,6 +2,8 @@ package org.springframework.beans.factory.support;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryUtils;
@@ -9,14 +11,22 @@ import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.FactoryBeanCircularReferenceException;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * 可直接对外提供的BeanFactory
@@ -25,13 +35,56 @@ import java.util.Map;
 public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFactory
         implements ConfigurableListableBeanFactory, BeanDefinitionRegistry {
 
+    /**
+     * Number of bean definitions from which bulk registration validates them in parallel
+     */
+    private static final int PARALLEL_VALIDATION_THRESHOLD = 1000;
+
     private boolean allowBeanDefinitionOverriding = true;
 
 
-    private Map beanDefinitionMap = new HashMap();
+    /**
+     * Monitor for registrations of bean definitions
+     */
+    private final Object registrationMonitor = new Object();
+
+    /**
+     * The bean definitions and their names, replaced on every registration
+     */
+    private volatile BeanDefinitions beanDefinitions = new BeanDefinitions(new ConcurrentHashMap(), new String[16], 0);
+
+
+    /**
+     * Index of the bean definitions by bean class, superclasses and interfaces
+     */
+    private final BeanTypeIndex beanDefinitionTypeIndex = new BeanTypeIndex();
+
+
+    /**
+     * Names of the bean definitions whose type has not been indexed yet
+     */
+    private final Set unindexedBeanDefinitionNames = new LinkedHashSet();
+
+
+    private int preInstantiationParallelism = 1;
+
+
+    private volatile boolean configurationFrozen = false;
 
 
-    private List beanDefinitionNames = new ArrayList();
+    private boolean compactBeanDefinitions = false;
+
+
+    /**
+     * Read-only snapshot of the bean definitions, if the configuration is frozen
+     * and no bean definitions have been registered since the snapshot was taken
+     */
+    private volatile FrozenConfiguration frozenConfiguration;
+
+    /**
+     * Whether the snapshot is being taken, by the thread holding the registration monitor
+     */
+    private boolean takingFrozenConfiguration = false;
 
 
     public DefaultListableBeanFactory() {
@@ -48,6 +101,43 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
         this.allowBeanDefinitionOverriding = allowBeanDefinitionOverriding;
     }
 
+    /**
+     * Set the number of threads to use for pre-instantiating singletons.
+     * <p>Default is 1, creating the singletons one after the other on the calling
+     * thread. A higher value creates independent singletons in parallel, following
+     * the dependency graph derived from bean references, constructor arguments and
+     * "depends-on" declarations.
+     *
+     * @see #preInstantiateSingletons
+     */
+    public void setPreInstantiationParallelism(int preInstantiationParallelism) {
+        if (preInstantiationParallelism < 1) {
+            throw new IllegalArgumentException("preInstantiationParallelism must be at least 1");
+        }
+        this.preInstantiationParallelism = preInstantiationParallelism;
+    }
+
+    public int getPreInstantiationParallelism() {
+        return preInstantiationParallelism;
+    }
+
+    /**
+     * Set whether to compact bean definitions on registration, interning the
+     * class names, property names, bean references and String values they hold.
+     * <p>Default is false. Worth switching on for very large numbers of bean
+     * definitions repeating the same strings, e.g. generated or parsed from many
+     * similar files, at the expense of slightly slower registration.
+     *
+     * @see #getBeanDefinitionFootprints
+     */
+    public void setCompactBeanDefinitions(boolean compactBeanDefinitions) {
+        this.compactBeanDefinitions = compactBeanDefinitions;
+    }
+
+    public boolean isCompactBeanDefinitions() {
+        return compactBeanDefinitions;
+    }
+
 
     //---------------------------------------------------------------------
     // Implementation of ListableBeanFactory
@@ -55,7 +145,11 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 
     @Override
     public int getBeanDefinitionCount() {
-        return this.beanDefinitionMap.size();
+        FrozenConfiguration frozen = getFrozenConfiguration();
+        if (frozen != null) {
+            return frozen.getBeanDefinitionCount();
+        }
+        return this.beanDefinitions.count;
     }
 
     @Override
@@ -65,19 +159,118 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 
 
     public String[] getBeanDefinitionNames(Class type) {
-        List matches = new ArrayList();
-        Iterator it = this.beanDefinitionNames.iterator();
-        while (it.hasNext()) {
-            String name = (String) it.next();
-            if (type == null || type.isAssignableFrom(getMergedBeanDefinition(name, false).getBeanClass())) {
-                matches.add(name);
+        FrozenConfiguration frozen = getFrozenConfiguration();
+        if (frozen != null && (type == null || frozen.isTypeIndexComplete())) {
+            return frozen.getBeanDefinitionNames(type);
+        }
+        if (type == null) {
+            return this.beanDefinitions.getNames();
+        }
+        indexBeanDefinitionTypes();
+        return this.beanDefinitionTypeIndex.getNames(type);
+    }
+
+    /**
+     * Index the types of all bean definitions that could not be indexed on
+     * registration, typically child bean definitions whose bean class is
+     * determined by their parent.
+     */
+    private void indexBeanDefinitionTypes() {
+        synchronized (this.unindexedBeanDefinitionNames) {
+            for (Iterator it = this.unindexedBeanDefinitionNames.iterator(); it.hasNext(); ) {
+                String name = (String) it.next();
+                this.beanDefinitionTypeIndex.put(name, getMergedBeanDefinition(name, false).getBeanClass());
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Clear the metadata derived from the bean definitions, like the type index,
+     * forcing it to be rebuilt on next access. To be called after bean definitions
+     * have been modified in place, e.g. by BeanFactoryPostProcessors.
+     */
+    @Override
+    public void clearMetadataCache() {
+        synchronized (this.registrationMonitor) {
+            this.frozenConfiguration = null;
+            clearMergedBeanDefinitions();
+            synchronized (this.unindexedBeanDefinitionNames) {
+                this.unindexedBeanDefinitionNames.addAll(Arrays.asList(this.beanDefinitions.getNames()));
             }
         }
-        return (String[]) matches.toArray(new String[matches.size()]);
+    }
+
+    /**
+     * Freeze the bean definitions of this factory: take a read-only snapshot of
+     * the definitions, their merged definitions and the type index, to serve all
+     * further lookups without locking.
+     * <p>Bean definitions may still be registered afterwards, each registration
+     * discarding the snapshot; a new one gets taken on the next lookup. Bean
+     * definitions modified in place require a call to {@link #clearMetadataCache},
+     * as before.
+     * <p>Also resolves the custom init and destroy methods of all bean definitions,
+     * failing if one of an eagerly initialized singleton doesn't exist.
+     */
+    @Override
+    public void freezeConfiguration() throws BeansException {
+        FrozenConfiguration frozen;
+        synchronized (this.registrationMonitor) {
+            this.configurationFrozen = true;
+            this.frozenConfiguration = null;
+            frozen = getFrozenConfiguration();
+        }
+        String[] beanNames = frozen.getBeanDefinitionNames(null);
+        for (int i = 0; i < beanNames.length; i++) {
+            RootBeanDefinition mbd;
+            try {
+                mbd = getMergedBeanDefinition(beanNames[i], false);
+            } catch (BeansException ex) {
+                // reported on access, like before freezing
+                continue;
+            }
+            resolveLifecycleMethods(beanNames[i], mbd);
+        }
+    }
+
+    @Override
+    public boolean isConfigurationFrozen() {
+        return this.configurationFrozen;
+    }
+
+    /**
+     * Return the snapshot of the bean definitions, taking a new one if bean
+     * definitions have been registered since the last one was taken.
+     *
+     * @return the snapshot, or null if the configuration is not frozen, or
+     * while the snapshot is being taken (for lookups on behalf of it)
+     */
+    private FrozenConfiguration getFrozenConfiguration() {
+        FrozenConfiguration frozen = this.frozenConfiguration;
+        if (frozen == null && this.configurationFrozen) {
+            synchronized (this.registrationMonitor) {
+                frozen = this.frozenConfiguration;
+                if (frozen == null && !this.takingFrozenConfiguration) {
+                    this.takingFrozenConfiguration = true;
+                    try {
+                        BeanDefinitions defs = this.beanDefinitions;
+                        frozen = new FrozenConfiguration(this, defs.getNames(), defs.map);
+                        this.frozenConfiguration = frozen;
+                    } finally {
+                        this.takingFrozenConfiguration = false;
+                    }
+                }
+            }
+        }
+        return frozen;
     }
 
     public boolean containsBeanDefinition(String name) {
-        return this.beanDefinitionMap.containsKey(name);
+        FrozenConfiguration frozen = getFrozenConfiguration();
+        if (frozen != null) {
+            return (frozen.getBeanDefinition(name) != null);
+        }
+        return this.beanDefinitions.map.containsKey(name);
     }
 
     public Map<String, Object> getBeansOfType(Class type, boolean includePrototypes, boolean includeFactoryBeans)
@@ -131,24 +324,101 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
         if (log.isInfoEnabled()) {
             log.info("Pre-instantiating singletons in factory [" + this + "]");
         }
-        for (Iterator it = this.beanDefinitionNames.iterator(); it.hasNext(); ) {
-            String beanName = (String) it.next();
+        if (this.preInstantiationParallelism > 1) {
+            List beanNames = new ArrayList();
+            String[] names = this.beanDefinitions.getNames();
+            for (int i = 0; i < names.length; i++) {
+                String beanName = names[i];
+                RootBeanDefinition bd = getMergedBeanDefinition(beanName, false);
+                if (bd.isSingleton() && !bd.isLazyInit()) {
+                    beanNames.add(beanName);
+                }
+            }
+            new ParallelSingletonInstantiator(this, this.preInstantiationParallelism).instantiate(beanNames);
+            return;
+        }
+        String[] names = this.beanDefinitions.getNames();
+        for (int i = 0; i < names.length; i++) {
+            String beanName = names[i];
             if (containsBeanDefinition(beanName)) {
                 RootBeanDefinition bd = getMergedBeanDefinition(beanName, false);
                 if (bd.isSingleton() && !bd.isLazyInit()) {
-                    if (FactoryBean.class.isAssignableFrom(bd.getBeanClass())) {
-                        FactoryBean factory = (FactoryBean) getBean(FACTORY_BEAN_PREFIX + beanName);
-                        if (factory.isSingleton()) {
-                            getBean(beanName);
-                        }
-                    } else {
-                        getBean(beanName);
-                    }
+                    preInstantiateSingleton(beanName, bd);
                 }
             }
         }
     }
 
+    /**
+     * Instantiate the given non-lazy-init singleton, also considering FactoryBeans.
+     *
+     * @param beanName the name of the bean
+     * @param bd       the merged bean definition for the bean
+     */
+    protected void preInstantiateSingleton(String beanName, RootBeanDefinition bd) {
+        if (FactoryBean.class.isAssignableFrom(bd.getBeanClass())) {
+            FactoryBean factory = (FactoryBean) getBean(FACTORY_BEAN_PREFIX + beanName);
+            if (factory.isSingleton()) {
+                getBean(beanName);
+            }
+        } else {
+            getBean(beanName);
+        }
+    }
+
+    /**
+     * Return the names of the beans that the given bean definition refers to:
+     * "depends-on" declarations as well as bean references in property values
+     * and constructor arguments, including those of inner beans and managed
+     * collections. Does not include beans that will be autowired.
+     *
+     * @param bd the merged bean definition
+     * @return the set of canonical bean names, in declaration order
+     */
+    protected Set getReferencedBeanNames(RootBeanDefinition bd) {
+        Set result = new LinkedHashSet();
+        addReferencedBeanNames(bd, result);
+        return result;
+    }
+
+    private void addReferencedBeanNames(BeanDefinition bd, Set result) {
+        if (bd instanceof AbstractBeanDefinition && ((AbstractBeanDefinition) bd).getDependsOn() != null) {
+            String[] dependsOn = ((AbstractBeanDefinition) bd).getDependsOn();
+            for (int i = 0; i < dependsOn.length; i++) {
+                result.add(transformedBeanName(dependsOn[i]));
+            }
+        }
+        PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+        for (int i = 0; i < pvs.length; i++) {
+            addReferencedBeanNamesFromValue(pvs[i].getValue(), result);
+        }
+        ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+        if (cargs != null) {
+            for (Iterator it = cargs.getIndexedArgumentValues().values().iterator(); it.hasNext(); ) {
+                addReferencedBeanNamesFromValue(((ConstructorArgumentValues.ValueHolder) it.next()).getValue(), result);
+            }
+            for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext(); ) {
+                addReferencedBeanNamesFromValue(((ConstructorArgumentValues.ValueHolder) it.next()).getValue(), result);
+            }
+        }
+    }
+
+    private void addReferencedBeanNamesFromValue(Object value, Set result) {
+        if (value instanceof RuntimeBeanReference) {
+            result.add(transformedBeanName(((RuntimeBeanReference) value).getBeanName()));
+        } else if (value instanceof BeanDefinition) {
+            addReferencedBeanNames((BeanDefinition) value, result);
+        } else if (value instanceof ManagedList || value instanceof ManagedSet) {
+            for (Iterator it = ((Collection) value).iterator(); it.hasNext(); ) {
+                addReferencedBeanNamesFromValue(it.next(), result);
+            }
+        } else if (value instanceof ManagedMap) {
+            for (Iterator it = ((ManagedMap) value).values().iterator(); it.hasNext(); ) {
+                addReferencedBeanNamesFromValue(it.next(), result);
+            }
+        }
+    }
+
 
     //---------------------------------------------------------------------
     // Implementation of BeanDefinitionRegistry
@@ -157,6 +427,105 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
     @Override
     public void registerBeanDefinition(String name, BeanDefinition beanDefinition)
             throws BeanDefinitionStoreException {
+        validateBeanDefinition(name, beanDefinition);
+        synchronized (this.registrationMonitor) {
+            // lookups take a new snapshot on demand
+            this.frozenConfiguration = null;
+            BeanDefinitions defs = this.beanDefinitions;
+            BeanDefinitions added = addBeanDefinition(defs, name, beanDefinition);
+            boolean overridden = (added == defs);
+            this.beanDefinitions = added;
+            synchronized (this.unindexedBeanDefinitionNames) {
+                if (beanDefinition instanceof RootBeanDefinition && ((RootBeanDefinition) beanDefinition).hasBeanClass()) {
+                    this.beanDefinitionTypeIndex.put(name, beanDefinition.getBeanClass());
+                    this.unindexedBeanDefinitionNames.remove(name);
+                } else {
+                    this.beanDefinitionTypeIndex.remove(name);
+                    this.unindexedBeanDefinitionNames.add(name);
+                }
+            }
+            beanDefinitionsChanged(overridden);
+        }
+    }
+
+    /**
+     * Register all given bean definitions at once. Much cheaper than registering
+     * them one by one for large numbers of bean definitions: they get validated
+     * in parallel, checked for conflicts in a single pass, and the type index,
+     * merged bean definitions and frozen snapshot get updated only once.
+     * <p>If a bean definition is invalid, or overrides an existing one while
+     * overriding is not allowed, none of the bean definitions gets registered.
+     * <p>Lookups of bean definitions and bean definition names see either none
+     * or all of the given bean definitions.
+     *
+     * @param beanDefinitions Map with bean names as keys and BeanDefinitions as
+     *                        values, registered in iteration order
+     * @throws BeanDefinitionStoreException if a bean definition is invalid or
+     *                                      overrides an existing one while not allowed
+     * @see #registerBeanDefinition
+     */
+    public void registerBeanDefinitions(Map beanDefinitions) throws BeanDefinitionStoreException {
+        List entries = new ArrayList(beanDefinitions.entrySet());
+        if (entries.size() >= PARALLEL_VALIDATION_THRESHOLD) {
+            entries.parallelStream().forEach(entry -> validateBeanDefinition(
+                    (String) ((Map.Entry) entry).getKey(), (BeanDefinition) ((Map.Entry) entry).getValue()));
+        } else {
+            for (Iterator it = entries.iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                validateBeanDefinition((String) entry.getKey(), (BeanDefinition) entry.getValue());
+            }
+        }
+        synchronized (this.registrationMonitor) {
+            // build the new bean definitions to the side, keeping the current ones until published
+            BeanDefinitions defs = this.beanDefinitions.copy(entries.size());
+            if (!this.allowBeanDefinitionOverriding) {
+                for (Iterator it = entries.iterator(); it.hasNext(); ) {
+                    Map.Entry entry = (Map.Entry) it.next();
+                    Object oldBeanDefinition = defs.map.get(entry.getKey());
+                    if (oldBeanDefinition != null) {
+                        throw new BeanDefinitionStoreException("Cannot register bean definition [" + entry.getValue() +
+                                "] for bean '" + entry.getKey() + "': there's already [" + oldBeanDefinition + "] bound");
+                    }
+                }
+            }
+            boolean overridden = false;
+            Map beanClasses = new LinkedHashMap();
+            List unindexedNames = new ArrayList();
+            for (Iterator it = entries.iterator(); it.hasNext(); ) {
+                Map.Entry entry = (Map.Entry) it.next();
+                String name = (String) entry.getKey();
+                BeanDefinition beanDefinition = (BeanDefinition) entry.getValue();
+                BeanDefinitions added = addBeanDefinition(defs, name, beanDefinition);
+                overridden |= (added == defs);
+                defs = added;
+                if (beanDefinition instanceof RootBeanDefinition && ((RootBeanDefinition) beanDefinition).hasBeanClass()) {
+                    beanClasses.put(name, beanDefinition.getBeanClass());
+                } else {
+                    unindexedNames.add(name);
+                }
+            }
+            this.beanDefinitions = defs;
+            synchronized (this.unindexedBeanDefinitionNames) {
+                this.beanDefinitionTypeIndex.putAll(beanClasses);
+                this.unindexedBeanDefinitionNames.removeAll(beanClasses.keySet());
+                for (Iterator it = unindexedNames.iterator(); it.hasNext(); ) {
+                    this.beanDefinitionTypeIndex.remove((String) it.next());
+                }
+                this.unindexedBeanDefinitionNames.addAll(unindexedNames);
+            }
+            beanDefinitionsChanged(overridden);
+            if (log.isDebugEnabled()) {
+                log.debug("Registered " + entries.size() + " bean definitions in bulk");
+            }
+        }
+    }
+
+    /**
+     * Validate the given bean definition before registration,
+     * compacting it if demanded.
+     */
+    private void validateBeanDefinition(String name, BeanDefinition beanDefinition)
+            throws BeanDefinitionStoreException {
         if (beanDefinition instanceof AbstractBeanDefinition) {
             try {
                 ((AbstractBeanDefinition) beanDefinition).validate();
@@ -165,7 +534,57 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
                         "Validation of bean definition with name failed", ex);
             }
         }
-        Object oldBeanDefinition = this.beanDefinitionMap.get(name);
+        if (this.compactBeanDefinitions) {
+            BeanDefinitionCompactor.compact(beanDefinition);
+        }
+    }
+
+    /**
+     * Register a bean whose instances get created by the given supplier,
+     * bypassing reflective instantiation and introspection.
+     *
+     * @see #registerBean(String, Class, Supplier, BeanDefinitionCustomizer)
+     */
+    public void registerBean(String name, Class beanClass, Supplier instanceSupplier)
+            throws BeanDefinitionStoreException {
+        registerBean(name, beanClass, instanceSupplier, null);
+    }
+
+    /**
+     * Register a bean whose instances get created by the given supplier,
+     * bypassing reflective instantiation and introspection.
+     * <p>Unless the customizer adds property values, autowiring or a dependency
+     * check, the supplied instance is not wrapped in a BeanWrapper at all. Aware
+     * callbacks, BeanPostProcessors and init and destroy methods still apply.
+     *
+     * @param name             the name of the bean
+     * @param beanClass        the class of the bean, used for lookups by type
+     * @param instanceSupplier the callback creating the bean instance
+     * @param customizer       callback customizing the bean definition, e.g. to
+     *                         make it a prototype (may be null)
+     */
+    public void registerBean(String name, Class beanClass, Supplier instanceSupplier, BeanDefinitionCustomizer customizer)
+            throws BeanDefinitionStoreException {
+        if (beanClass == null || instanceSupplier == null) {
+            throw new IllegalArgumentException("Bean class and instance supplier are required");
+        }
+        RootBeanDefinition bd = new RootBeanDefinition(beanClass, (MutablePropertyValues) null);
+        bd.setInstanceSupplier(instanceSupplier);
+        if (customizer != null) {
+            customizer.customize(bd);
+        }
+        registerBeanDefinition(name, bd);
+    }
+
+    /**
+     * Add the given bean definition to the given bean definitions, reserving its
+     * position in the type index. To be called with registrations locked.
+     *
+     * @return the bean definitions including the new name, or the given ones
+     * if an existing bean definition has been overridden
+     */
+    private BeanDefinitions addBeanDefinition(BeanDefinitions defs, String name, BeanDefinition beanDefinition) {
+        Object oldBeanDefinition = defs.map.get(name);
         if (oldBeanDefinition != null) {
             if (!this.allowBeanDefinitionOverriding) {
                 throw new BeanDefinitionStoreException("Cannot register bean definition [" + beanDefinition + "] for bean '" +
@@ -175,9 +594,36 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
                         "': replacing [" + oldBeanDefinition + "] with [" + beanDefinition + "]");
             }
         } else {
-            this.beanDefinitionNames.add(name);
+            defs = defs.withName(name);
+            this.beanDefinitionTypeIndex.reserve(name);
         }
-        this.beanDefinitionMap.put(name, beanDefinition);
+        defs.map.put(name, beanDefinition);
+        return defs;
+    }
+
+    /**
+     * Update the metadata derived from the bean definitions after registering
+     * bean definitions. To be called with registrations locked.
+     *
+     * @param overridden whether existing bean definitions have been overridden
+     */
+    private void beanDefinitionsChanged(boolean overridden) {
+        // merged child bean definitions may depend on the new definitions
+        clearMergedBeanDefinitions();
+        if (overridden) {
+            // child bean definitions may inherit their bean class from the overridden ones
+            synchronized (this.unindexedBeanDefinitionNames) {
+                for (Iterator it = this.beanDefinitions.map.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry entry = (Map.Entry) it.next();
+                    if (entry.getValue() instanceof ChildBeanDefinition) {
+                        this.unindexedBeanDefinitionNames.add(entry.getKey());
+                    }
+                }
+            }
+        }
+        beanNamesChanged();
+        // a new snapshot gets taken on the next lookup rather than on every registration
+        this.frozenConfiguration = null;
     }
 
 
@@ -187,29 +633,61 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 
     @Override
     public BeanDefinition getBeanDefinition(String beanName) throws BeansException {
-        BeanDefinition bd = (BeanDefinition) this.beanDefinitionMap.get(beanName);
+        FrozenConfiguration frozen = getFrozenConfiguration();
+        BeanDefinition bd = (frozen != null ? frozen.getBeanDefinition(beanName) :
+                (BeanDefinition) this.beanDefinitions.map.get(beanName));
         if (bd == null) {
             throw new NoSuchBeanDefinitionException(beanName, toString());
         }
         return bd;
     }
 
-    protected String[] getDependingBeanNames(String beanName) throws BeansException {
-        List dependingBeanNames = new ArrayList();
-        String[] beanDefinitionNames = getBeanDefinitionNames();
-        for (int i = 0; i < beanDefinitionNames.length; i++) {
-            if (containsBeanDefinition(beanDefinitionNames[i])) {
-                RootBeanDefinition bd = getMergedBeanDefinition(beanDefinitionNames[i], false);
-                if (bd.getDependsOn() != null) {
-                    List dependsOn = Arrays.asList(bd.getDependsOn());
-                    if (dependsOn.contains(beanName)) {
-                        log.debug("Found depending bean '" + beanDefinitionNames[i] + "' for bean '" + beanName + "'");
-                        dependingBeanNames.add(beanDefinitionNames[i]);
-                    }
-                }
+    /**
+     * Estimate the heap occupied by each bean definition of this factory, including
+     * its property values, constructor arguments and inner bean definitions.
+     * Strings shared between bean definitions are counted for each of them.
+     *
+     * @return Map with bean names as keys and estimated sizes in bytes as Long values,
+     * in registration order
+     * @see #setCompactBeanDefinitions
+     */
+    public Map getBeanDefinitionFootprints() {
+        String[] beanNames = getBeanDefinitionNames();
+        Map footprints = new LinkedHashMap(beanNames.length * 4 / 3 + 1);
+        for (int i = 0; i < beanNames.length; i++) {
+            BeanDefinition bd = (BeanDefinition) this.beanDefinitions.map.get(beanNames[i]);
+            if (bd != null) {
+                footprints.put(beanNames[i], new Long(BeanDefinitionFootprint.estimate(bd)));
             }
         }
-        return (String[]) dependingBeanNames.toArray(new String[dependingBeanNames.size()]);
+        return footprints;
+    }
+
+    @Override
+    public RootBeanDefinition getMergedBeanDefinition(String beanName, boolean includingAncestors)
+            throws BeansException {
+        FrozenConfiguration frozen = getFrozenConfiguration();
+        if (frozen != null) {
+            RootBeanDefinition mbd = frozen.getMergedBeanDefinition(beanName);
+            if (mbd != null) {
+                return mbd;
+            }
+        }
+        return super.getMergedBeanDefinition(beanName, includingAncestors);
+    }
+
+    /**
+     * Returns the singletons registered as depending on the given bean on creation,
+     * through "depends-on" declarations or injected references.
+     *
+     * @see #registerDependentBean
+     */
+    protected String[] getDependingBeanNames(String beanName) throws BeansException {
+        String[] dependingBeanNames = getDependentBeans(beanName);
+        if (log.isDebugEnabled() && dependingBeanNames.length > 0) {
+            log.debug("Found depending beans " + Arrays.asList(dependingBeanNames) + " for bean '" + beanName + "'");
+        }
+        return dependingBeanNames;
     }
 
     protected Map findMatchingBeans(Class requiredType) {
@@ -228,4 +706,48 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
         return sb.toString();
     }
 
+
+    /**
+     * Bean definitions keyed by bean name, with the bean names in registration
+     * order. Every registration publishes a new instance. Single registrations
+     * share the map and the names array with the previous instance, which never
+     * reads names beyond its own count. Bulk registrations work on copies, so
+     * lookups see either none or all bean definitions of a batch.
+     */
+    private static final class BeanDefinitions {
+
+        final Map map;
+
+        final String[] names;
+
+        final int count;
+
+        BeanDefinitions(Map map, String[] names, int count) {
+            this.map = map;
+            this.names = names;
+            this.count = count;
+        }
+
+        /**
+         * Return an independent copy, with room for the given number of additional names.
+         */
+        BeanDefinitions copy(int additionalCapacity) {
+            return new BeanDefinitions(new ConcurrentHashMap(this.map),
+                    Arrays.copyOf(this.names, this.count + additionalCapacity), this.count);
+        }
+
+        BeanDefinitions withName(String name) {
+            String[] names = this.names;
+            if (this.count == names.length) {
+                names = Arrays.copyOf(names, Math.max(16, this.count * 2));
+            }
+            names[this.count] = name;
+            return new BeanDefinitions(this.map, names, this.count + 1);
+        }
+
+        String[] getNames() {
+            return Arrays.copyOf(this.names, this.count);
+        }
+    }
+
 }
@@ -0,0 +1,144 @@
+package org.springframework.beans.factory.support;
+
+import org.springframework.beans.BeansException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the bean definitions of a bean factory, taken when its
+ * configuration gets frozen. Holds the bean definitions, their merged
+ * definitions and the index of bean names by type in plain maps that are
+ * never modified after construction, so that lookups need no locking.
+ * <p>
+ * Registering a bean definition after freezing discards the snapshot instead
+ * of modifying it; the factory takes a new one on the next lookup.
+ * <p>
+ * 冻结配置后的bean定义只读快照，查询无需加锁。
+ *
+ * @see DefaultListableBeanFactory#freezeConfiguration
+ */
+class FrozenConfiguration {
+
+    private static final String[] EMPTY_NAMES = new String[0];
+
+    private final String[] beanDefinitionNames;
+
+    /**
+     * bean name --> BeanDefinition
+     */
+    private final Map beanDefinitions;
+
+    /**
+     * bean name --> RootBeanDefinition, for all bean definitions whose parents
+     * are defined in the same factory
+     */
+    private final Map mergedBeanDefinitions;
+
+    /**
+     * type --> String[] of the names of the assignable bean definitions
+     */
+    private final Map beanDefinitionNamesByType;
+
+    /**
+     * Whether all bean definitions could be indexed by type
+     */
+    private final boolean typeIndexComplete;
+
+
+    /**
+     * Take a snapshot of the bean definitions of the given factory.
+     *
+     * @param beanFactory         the factory to take the snapshot from
+     * @param beanDefinitionNames the names of the bean definitions, in registration order,
+     *                            owned by the snapshot from now on
+     * @param beanDefinitions     the bean definitions, keyed by bean name
+     */
+    FrozenConfiguration(DefaultListableBeanFactory beanFactory, String[] beanDefinitionNames, Map beanDefinitions) {
+        this.beanDefinitionNames = beanDefinitionNames;
+        this.beanDefinitions = Collections.unmodifiableMap(new HashMap(beanDefinitions));
+        Map merged = new HashMap();
+        Map namesByType = new HashMap();
+        Map typesByClass = new HashMap();
+        boolean complete = true;
+        for (int i = 0; i < this.beanDefinitionNames.length; i++) {
+            String name = this.beanDefinitionNames[i];
+            RootBeanDefinition mbd;
+            try {
+                mbd = beanFactory.getMergedBeanDefinition(name, false);
+            } catch (BeansException ex) {
+                // e.g. a child bean definition registered before its parent:
+                // leave it to the factory to report on access
+                complete = false;
+                continue;
+            }
+            if (beanFactory.isLocalDefinitionHierarchy((BeanDefinition) beanDefinitions.get(name))) {
+                merged.put(name, mbd);
+            }
+            Set types = (Set) typesByClass.get(mbd.getBeanClass());
+            if (types == null) {
+                types = BeanTypeIndex.getAllTypes(mbd.getBeanClass());
+                typesByClass.put(mbd.getBeanClass(), types);
+            }
+            for (Iterator it = types.iterator(); it.hasNext(); ) {
+                Object type = it.next();
+                List names = (List) namesByType.get(type);
+                if (names == null) {
+                    names = new ArrayList();
+                    namesByType.put(type, names);
+                }
+                names.add(name);
+            }
+        }
+        for (Iterator it = namesByType.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            List names = (List) entry.getValue();
+            entry.setValue(names.toArray(new String[names.size()]));
+        }
+        this.mergedBeanDefinitions = Collections.unmodifiableMap(merged);
+        this.beanDefinitionNamesByType = Collections.unmodifiableMap(namesByType);
+        this.typeIndexComplete = complete;
+    }
+
+
+    public int getBeanDefinitionCount() {
+        return this.beanDefinitionNames.length;
+    }
+
+    /**
+     * Return whether the type index covers all bean definitions, i.e. whether
+     * lookups by type can be answered from this snapshot.
+     */
+    public boolean isTypeIndexComplete() {
+        return this.typeIndexComplete;
+    }
+
+    /**
+     * Return the names of the bean definitions assignable to the given type.
+     *
+     * @param type the type to match, or null for all bean definitions
+     * @return a new array with the matching names, in registration order
+     */
+    public String[] getBeanDefinitionNames(Class type) {
+        String[] names = (type != null ? (String[]) this.beanDefinitionNamesByType.get(type) : this.beanDefinitionNames);
+        return (names != null ? names.clone() : EMPTY_NAMES);
+    }
+
+    public BeanDefinition getBeanDefinition(String beanName) {
+        return (BeanDefinition) this.beanDefinitions.get(beanName);
+    }
+
+    /**
+     * Return the merged bean definition for the given bean name,
+     * or null if its parents are not all defined in this factory.
+     */
+    public RootBeanDefinition getMergedBeanDefinition(String beanName) {
+        return (RootBeanDefinition) this.mergedBeanDefinitions.get(beanName);
+    }
+
+}
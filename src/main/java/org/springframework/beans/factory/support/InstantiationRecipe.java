@@ -0,0 +1,247 @@
+package org.springframework.beans.factory.support;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.MutablePropertyValues;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Outcome of the first creation of a bean from a merged bean definition,
+ * cached on the definition to be able to create further instances, i.e.
+ * prototypes, without redoing constructor resolution and value conversion.
+ * <p>
+ * Holds the resolved constructor (plus its arguments if they are constants)
+ * and the property values with constant values converted to their property
+ * types. Values that refer to other beans are still resolved for every instance.
+ * <p>
+ * A recipe is bound to the bean factory that built it and becomes stale as
+ * soon as that factory clears its metadata caches.
+ * <p>
+ * bean定义的实例化方案缓存：构造器、常量参数与已转换的属性值。
+ *
+ * @see AbstractAutowireCapableBeanFactory#createBean
+ * @see RootBeanDefinition
+ */
+class InstantiationRecipe {
+
+    private final Object beanFactory;
+
+    private final int generation;
+
+    private volatile ResolvedConstructor resolvedConstructor;
+
+    private volatile CompiledPropertyValues compiledPropertyValues;
+
+
+    InstantiationRecipe(Object beanFactory, int generation) {
+        this.beanFactory = beanFactory;
+        this.generation = generation;
+    }
+
+
+    /**
+     * Return whether this recipe has been built by the given bean factory,
+     * in the given cache generation.
+     */
+    public boolean isValidFor(Object beanFactory, int generation) {
+        return (this.beanFactory == beanFactory && this.generation == generation);
+    }
+
+    //---------------------------------------------------------------------
+    // Constructor
+    //---------------------------------------------------------------------
+
+    public Constructor getConstructor() {
+        ResolvedConstructor rc = this.resolvedConstructor;
+        return (rc != null ? rc.constructor : null);
+    }
+
+    /**
+     * Return the constant constructor arguments,
+     * or null if they need to be resolved for every instance.
+     */
+    public Object[] getConstructorArguments() {
+        ResolvedConstructor rc = this.resolvedConstructor;
+        return (rc != null ? rc.arguments : null);
+    }
+
+    /**
+     * @param constructor the constructor chosen for the bean definition
+     * @param arguments the constant constructor arguments, or null
+     */
+    public void setConstructor(Constructor constructor, Object[] arguments) {
+        this.resolvedConstructor = new ResolvedConstructor(constructor, arguments);
+    }
+
+    //---------------------------------------------------------------------
+    // Property values
+    //---------------------------------------------------------------------
+
+    /**
+     * Return the property values compiled from the given source values,
+     * or null if not compiled yet or compiled from different values.
+     */
+    public CompiledPropertyValues getPropertyValues(PropertyValue[] source) {
+        CompiledPropertyValues cpv = this.compiledPropertyValues;
+        return (cpv != null && cpv.source == source ? cpv : null);
+    }
+
+    /**
+     * Compile the given property values, converting constant values
+     * to the types of the properties of the bean in the given BeanWrapper.
+     * <p>Values that cannot be converted up front, or that are converted into
+     * mutable objects, are kept as-is and converted for every instance.
+     */
+    public CompiledPropertyValues compilePropertyValues(PropertyValue[] source, BeanWrapper bw) {
+        PropertyValue[] values = new PropertyValue[source.length];
+        boolean[] resolutionRequired = new boolean[source.length];
+        for (int i = 0; i < source.length; i++) {
+            String name = source[i].getName();
+            Object value = source[i].getValue();
+            if (isResolutionRequired(value)) {
+                resolutionRequired[i] = true;
+                values[i] = source[i];
+            } else {
+                values[i] = new PropertyValue(name, convertIfPossible(name, value, bw));
+            }
+        }
+        CompiledPropertyValues cpv = new CompiledPropertyValues(source, values, resolutionRequired);
+        this.compiledPropertyValues = cpv;
+        return cpv;
+    }
+
+    private static Object convertIfPossible(String propertyName, Object value, BeanWrapper bw) {
+        if (!(bw instanceof BeanWrapperImpl) || propertyName.indexOf('.') != -1 || propertyName.indexOf('[') != -1 ||
+                !bw.isWritableProperty(propertyName)) {
+            return value;
+        }
+        try {
+            PropertyDescriptor pd = bw.getPropertyDescriptor(propertyName);
+            if (bw.findCustomEditor(pd.getPropertyType(), propertyName) != null) {
+                // custom editors get applied to every value, converted or not
+                return value;
+            }
+            Object convertedValue = ((BeanWrapperImpl) bw).doTypeConversionIfNecessary(value, pd.getPropertyType());
+            if (pd.getPropertyType().isPrimitive() && (convertedValue == null || "".equals(convertedValue))) {
+                return value;
+            }
+            return (isShareable(value, convertedValue) ? convertedValue : value);
+        } catch (BeansException ex) {
+            // let the BeanWrapper report the failure for every instance
+            return value;
+        }
+    }
+
+    //---------------------------------------------------------------------
+    // Helpers
+    //---------------------------------------------------------------------
+
+    /**
+     * Return whether the given bean definition value refers to other beans,
+     * i.e. needs to be resolved for every instance.
+     *
+     * @see AbstractAutowireCapableBeanFactory#resolveValueIfNecessary
+     */
+    public static boolean isResolutionRequired(Object value) {
+        return (value instanceof AbstractBeanDefinition || value instanceof RuntimeBeanReference ||
+                value instanceof ManagedList || value instanceof ManagedSet || value instanceof ManagedMap);
+    }
+
+    /**
+     * Return whether the given converted value may be passed to every instance:
+     * either it is the original value itself, or an immutable object.
+     */
+    public static boolean isShareable(Object originalValue, Object convertedValue) {
+        return (convertedValue == originalValue || convertedValue == null ||
+                convertedValue instanceof String || convertedValue instanceof Boolean ||
+                convertedValue instanceof Character || convertedValue instanceof Byte ||
+                convertedValue instanceof Short || convertedValue instanceof Integer ||
+                convertedValue instanceof Long || convertedValue instanceof Float ||
+                convertedValue instanceof Double || convertedValue instanceof BigInteger ||
+                convertedValue instanceof BigDecimal || convertedValue instanceof Class ||
+                convertedValue instanceof Locale || convertedValue instanceof Enum);
+    }
+
+
+    private static class ResolvedConstructor {
+
+        private final Constructor constructor;
+
+        private final Object[] arguments;
+
+        private ResolvedConstructor(Constructor constructor, Object[] arguments) {
+            this.constructor = constructor;
+            this.arguments = arguments;
+        }
+    }
+
+
+    /**
+     * Property values of a bean definition, with constant values converted.
+     */
+    static class CompiledPropertyValues {
+
+        private final PropertyValue[] source;
+
+        private final PropertyValue[] values;
+
+        private final boolean[] resolutionRequired;
+
+        private final boolean anyResolutionRequired;
+
+        /**
+         * The property values to apply to every instance, if all are constants
+         */
+        private final PropertyValues constantPropertyValues;
+
+        private CompiledPropertyValues(PropertyValue[] source, PropertyValue[] values, boolean[] resolutionRequired) {
+            this.source = source;
+            this.values = values;
+            this.resolutionRequired = resolutionRequired;
+            boolean any = false;
+            for (int i = 0; i < resolutionRequired.length; i++) {
+                any |= resolutionRequired[i];
+            }
+            this.anyResolutionRequired = any;
+            this.constantPropertyValues = (any ? null : new MutablePropertyValues(Arrays.asList(values)));
+        }
+
+        public int size() {
+            return this.values.length;
+        }
+
+        public PropertyValue get(int i) {
+            return this.values[i];
+        }
+
+        public boolean isResolutionRequired(int i) {
+            return this.resolutionRequired[i];
+        }
+
+        /**
+         * Return whether any value refers to other beans.
+         */
+        public boolean isResolutionRequired() {
+            return this.anyResolutionRequired;
+        }
+
+        /**
+         * Return the property values to apply as-is, or null if
+         * some values need to be resolved for every instance.
+         */
+        public PropertyValues getConstantPropertyValues() {
+            return this.constantPropertyValues;
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package org.springframework.beans.factory.support;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of the custom init and destroy methods of bean classes, resolved once
+ * per bean class and method name into MethodHandles. Prototypes with an init
+ * method and beans with a destroy method thus pay the reflective lookup only
+ * once, not for every instance.
+ * <p>
+ * Failed lookups are cached as well, and reported again on every access.
+ * <p>
+ * 按bean类与方法名缓存自定义init/destroy方法的MethodHandle。
+ *
+ * @see AbstractAutowireCapableBeanFactory#invokeInitMethods
+ * @see AbstractAutowireCapableBeanFactory#invokeCustomDestroyMethod
+ */
+class LifecycleMethods {
+
+    private static final MethodType GENERIC_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * bean class --> Map from method name to LifecycleMethod
+     */
+    private final ConcurrentHashMap initMethods = new ConcurrentHashMap();
+
+    /**
+     * bean class --> Map from method name to LifecycleMethod
+     */
+    private final ConcurrentHashMap destroyMethods = new ConcurrentHashMap();
+
+
+    /**
+     * Return the public no-arg init method with the given name.
+     *
+     * @throws NoSuchMethodException if the bean class has no such method
+     */
+    public LifecycleMethod getInitMethod(Class beanClass, String methodName) throws NoSuchMethodException {
+        Map methods = getMethods(this.initMethods, beanClass);
+        LifecycleMethod lm = (LifecycleMethod) methods.get(methodName);
+        if (lm == null) {
+            try {
+                lm = new LifecycleMethod(beanClass.getMethod(methodName, new Class[0]), false);
+            } catch (NoSuchMethodException ex) {
+                lm = new LifecycleMethod("Couldn't find an init method named '" + methodName +
+                        "' on bean class [" + beanClass.getName() + "]");
+            }
+            methods.put(methodName, lm);
+        }
+        return lm.checkResolved();
+    }
+
+    /**
+     * Return the public destroy method with the given name: a no-arg method
+     * if found, else a method with a single boolean argument.
+     *
+     * @throws NoSuchMethodException if the bean class has no suitable method
+     */
+    public LifecycleMethod getDestroyMethod(Class beanClass, String methodName) throws NoSuchMethodException {
+        Map methods = getMethods(this.destroyMethods, beanClass);
+        LifecycleMethod lm = (LifecycleMethod) methods.get(methodName);
+        if (lm == null) {
+            lm = resolveDestroyMethod(beanClass, methodName);
+            methods.put(methodName, lm);
+        }
+        return lm.checkResolved();
+    }
+
+    private static LifecycleMethod resolveDestroyMethod(Class beanClass, String methodName) {
+        Method[] methods = beanClass.getMethods();
+        Method targetMethod = null;
+        for (int i = 0; i < methods.length; i++) {
+            if (methods[i].getName().equals(methodName)) {
+                if (targetMethod == null ||
+                        methods[i].getParameterTypes().length < targetMethod.getParameterTypes().length) {
+                    targetMethod = methods[i];
+                }
+            }
+        }
+        if (targetMethod == null) {
+            return new LifecycleMethod("Couldn't find a destroy method named '" + methodName +
+                    "' on bean class [" + beanClass.getName() + "]");
+        }
+        Class[] paramTypes = targetMethod.getParameterTypes();
+        if (paramTypes.length > 1) {
+            return new LifecycleMethod("Method '" + methodName + "' of bean class [" + beanClass.getName() +
+                    "] has more than one parameter - not supported as destroy method");
+        } else if (paramTypes.length == 1 && !paramTypes[0].equals(boolean.class)) {
+            return new LifecycleMethod("Method '" + methodName + "' of bean class [" + beanClass.getName() +
+                    "] has a non-boolean parameter - not supported as destroy method");
+        }
+        return new LifecycleMethod(targetMethod, paramTypes.length == 1);
+    }
+
+    /**
+     * Return the given method as declared by a public class or interface, so that
+     * it can be invoked without making it accessible, e.g. a method of a JDK class
+     * behind a public interface. Returns the method itself if no such declaration
+     * is found.
+     */
+    private static Method getPublicMethod(Method method) {
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return method;
+        }
+        for (Class clazz = method.getDeclaringClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            Method publicMethod = getPublicMethod(clazz, method);
+            if (publicMethod != null) {
+                return publicMethod;
+            }
+            Class[] interfaces = clazz.getInterfaces();
+            for (int i = 0; i < interfaces.length; i++) {
+                publicMethod = getPublicMethod(interfaces[i], method);
+                if (publicMethod != null) {
+                    return publicMethod;
+                }
+            }
+        }
+        return method;
+    }
+
+    private static Method getPublicMethod(Class type, Method method) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        try {
+            Method publicMethod = type.getMethod(method.getName(), method.getParameterTypes());
+            return (Modifier.isPublic(publicMethod.getDeclaringClass().getModifiers()) ? publicMethod : null);
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    private static Map getMethods(ConcurrentHashMap cache, Class beanClass) {
+        Map methods = (Map) cache.get(beanClass);
+        if (methods == null) {
+            methods = new ConcurrentHashMap(4);
+            Map existing = (Map) cache.putIfAbsent(beanClass, methods);
+            if (existing != null) {
+                methods = existing;
+            }
+        }
+        return methods;
+    }
+
+
+    /**
+     * A resolved lifecycle method, or the reason why it couldn't be resolved.
+     */
+    static class LifecycleMethod {
+
+        private final Method method;
+
+        /**
+         * Handle of type (Object)Object, with a boolean "force" argument already bound
+         */
+        private final MethodHandle handle;
+
+        private final String failureMessage;
+
+        private LifecycleMethod(Method method, boolean force) {
+            // the method may be public, but declared by a non-public class
+            method = getPublicMethod(method);
+            MethodHandle handle;
+            try {
+                if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                    method.setAccessible(true);
+                }
+                handle = MethodHandles.lookup().unreflect(method);
+            } catch (IllegalAccessException | RuntimeException ex) {
+                // not accessible, e.g. InaccessibleObjectException on a JDK module: invoke reflectively instead
+                handle = null;
+            }
+            if (handle != null) {
+                if (force) {
+                    handle = MethodHandles.insertArguments(handle, 1, Boolean.TRUE);
+                }
+                handle = handle.asType(GENERIC_TYPE);
+            }
+            this.method = method;
+            this.handle = handle;
+            this.failureMessage = null;
+        }
+
+        private LifecycleMethod(String failureMessage) {
+            this.method = null;
+            this.handle = null;
+            this.failureMessage = failureMessage;
+        }
+
+        private LifecycleMethod checkResolved() throws NoSuchMethodException {
+            if (this.method == null) {
+                throw new NoSuchMethodException(this.failureMessage);
+            }
+            return this;
+        }
+
+        public Method getMethod() {
+            return this.method;
+        }
+
+        /**
+         * Invoke this method on the given bean.
+         *
+         * @throws InvocationTargetException wrapping any exception thrown by the method,
+         *                                   just like reflective invocation
+         */
+        public void invoke(Object bean) throws InvocationTargetException, IllegalAccessException {
+            if (this.handle == null) {
+                // no access to the method through a handle: fall back to reflection
+                Object[] args = new Object[this.method.getParameterTypes().length];
+                if (args.length == 1) {
+                    args[0] = Boolean.TRUE;
+                }
+                this.method.invoke(bean, args);
+                return;
+            }
+            try {
+                Object ignored = (Object) this.handle.invokeExact(bean);
+            } catch (Throwable ex) {
+                throw new InvocationTargetException(ex);
+            }
+        }
+    }
+
+}
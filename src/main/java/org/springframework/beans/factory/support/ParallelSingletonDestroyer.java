@@ -0,0 +1,260 @@
+package org.springframework.beans.factory.support;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Destroys the singletons of a bean factory in parallel, within deadlines.
+ * <p>
+ * Each singleton gets destroyed as soon as all singletons registered as
+ * depending on it have been destroyed, with at most the configured number of
+ * destructions running at the same time. A destruction that takes longer than
+ * the per-bean timeout is left running in the background and no longer holds
+ * back the singletons it depends on. Once the overall timeout has elapsed, the
+ * remaining singletons are removed without being destroyed.
+ * <p>
+ * Singletons that are part of circular dependencies are destroyed afterwards
+ * on the calling thread. Overrunning and skipped singletons are logged as warning.
+ * <p>
+ * 按依赖关系逆序并行销毁单例bean，并限制单个bean与总体的销毁时间。
+ *
+ * @see AbstractBeanFactory#setDestructionParallelism
+ * @see AbstractBeanFactory#setBeanDestructionTimeout
+ * @see AbstractBeanFactory#setDestructionTimeout
+ */
+@Slf4j
+class ParallelSingletonDestroyer {
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private final AbstractBeanFactory beanFactory;
+
+    private final int parallelism;
+
+    private final long beanTimeout;
+
+    private final long timeout;
+
+    /**
+     * bean name --> List of names of the singletons that can be destroyed once it has been
+     */
+    private final Map successors = new HashMap();
+
+    /**
+     * bean name --> Integer with the number of dependent singletons not destroyed yet
+     */
+    private final Map pendingDependents = new HashMap();
+
+    /**
+     * bean name --> Long with the start time of its running destruction, in milliseconds
+     */
+    private final Map running = new LinkedHashMap();
+
+    /**
+     * Names of the singletons whose destruction has finished
+     */
+    private final BlockingQueue finished = new LinkedBlockingQueue();
+
+    /**
+     * bean name --> String describing the overrun
+     */
+    private final Map overruns = new LinkedHashMap();
+
+
+    /**
+     * @param beanTimeout the maximum time for destroying a single bean,
+     *                    in milliseconds, or 0 for no limit
+     * @param timeout     the maximum time for destroying all singletons,
+     *                    in milliseconds, or 0 for no limit
+     */
+    ParallelSingletonDestroyer(AbstractBeanFactory beanFactory, int parallelism, long beanTimeout, long timeout) {
+        this.beanFactory = beanFactory;
+        this.parallelism = parallelism;
+        this.beanTimeout = beanTimeout;
+        this.timeout = timeout;
+    }
+
+
+    /**
+     * Destroy the given singletons.
+     *
+     * @param beanNames the names of the singletons
+     */
+    public void destroy(List beanNames) {
+        long startTime = System.currentTimeMillis();
+        long deadline = (this.timeout > 0 ? startTime + this.timeout : Long.MAX_VALUE);
+        LinkedList ready = buildGraph(beanNames);
+
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "singleton-destruction-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                while (!ready.isEmpty() && this.running.size() < this.parallelism &&
+                        System.currentTimeMillis() < deadline) {
+                    submit(executor, (String) ready.removeFirst());
+                }
+                if (this.running.isEmpty()) {
+                    break;
+                }
+                long now = System.currentTimeMillis();
+                if (now >= deadline) {
+                    for (Iterator it = this.running.keySet().iterator(); it.hasNext(); ) {
+                        String beanName = (String) it.next();
+                        this.overruns.put(beanName, "still running at overall timeout");
+                        this.pendingDependents.remove(beanName);
+                    }
+                    break;
+                }
+                String beanName = (String) this.finished.poll(getWaitTime(now, deadline), TimeUnit.MILLISECONDS);
+                if (beanName != null) {
+                    Long beanStartTime = (Long) this.running.remove(beanName);
+                    if (beanStartTime != null) {
+                        onDestroyed(beanName, ready);
+                    } else {
+                        // released before, after exceeding the per-bean timeout
+                        this.overruns.put(beanName, "finished late");
+                    }
+                } else {
+                    releaseOverrunningBeans(ready);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while destroying singletons in parallel");
+        } finally {
+            executor.shutdown();
+        }
+
+        // singletons in circular dependencies, or not started in time
+        List remaining = new ArrayList();
+        for (Iterator it = beanNames.iterator(); it.hasNext(); ) {
+            String beanName = (String) it.next();
+            if (this.pendingDependents.containsKey(beanName)) {
+                remaining.add(beanName);
+            }
+        }
+        int skipped = 0;
+        if (System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()) {
+            for (Iterator it = remaining.iterator(); it.hasNext(); ) {
+                this.beanFactory.destroySingleton((String) it.next());
+            }
+        } else if (!remaining.isEmpty()) {
+            log.warn("Destruction of singletons exceeded the timeout of " + this.timeout + " ms: " +
+                    "removing singletons " + remaining + " without destroying them");
+            for (Iterator it = remaining.iterator(); it.hasNext(); ) {
+                this.beanFactory.removeSingleton((String) it.next());
+            }
+            skipped = remaining.size();
+        }
+
+        if (!this.overruns.isEmpty()) {
+            log.warn("Destruction of singletons overran: " + this.overruns);
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Destroyed " + (beanNames.size() - skipped) + " singletons in " +
+                    (System.currentTimeMillis() - startTime) + " ms using " + this.parallelism + " threads");
+        }
+    }
+
+    /**
+     * Build the reverse dependency graph between the given singletons.
+     *
+     * @return the singletons that no other singleton depends on
+     */
+    private LinkedList buildGraph(List beanNames) {
+        for (Iterator it = beanNames.iterator(); it.hasNext(); ) {
+            this.successors.put(it.next(), new ArrayList());
+        }
+        LinkedList ready = new LinkedList();
+        for (Iterator it = beanNames.iterator(); it.hasNext(); ) {
+            String beanName = (String) it.next();
+            String[] dependentBeans = this.beanFactory.getDependentBeans(beanName);
+            int count = 0;
+            for (int i = 0; i < dependentBeans.length; i++) {
+                if (this.successors.containsKey(dependentBeans[i]) && !dependentBeans[i].equals(beanName)) {
+                    ((List) this.successors.get(dependentBeans[i])).add(beanName);
+                    count++;
+                }
+            }
+            this.pendingDependents.put(beanName, new Integer(count));
+            if (count == 0) {
+                ready.add(beanName);
+            }
+        }
+        return ready;
+    }
+
+    private void submit(ExecutorService executor, final String beanName) {
+        this.running.put(beanName, new Long(System.currentTimeMillis()));
+        executor.execute(() -> {
+            try {
+                this.beanFactory.destroySingleton(beanName);
+            } catch (Throwable ex) {
+                log.error("Destruction of singleton '" + beanName + "' failed", ex);
+            } finally {
+                this.finished.add(beanName);
+            }
+        });
+    }
+
+    private void onDestroyed(String beanName, LinkedList ready) {
+        this.pendingDependents.remove(beanName);
+        for (Iterator it = ((List) this.successors.get(beanName)).iterator(); it.hasNext(); ) {
+            String successor = (String) it.next();
+            Integer count = (Integer) this.pendingDependents.get(successor);
+            if (count != null) {
+                this.pendingDependents.put(successor, new Integer(count.intValue() - 1));
+                if (count.intValue() == 1) {
+                    ready.add(successor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop waiting for destructions that exceeded the per-bean timeout.
+     */
+    private void releaseOverrunningBeans(LinkedList ready) {
+        if (this.beanTimeout <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Iterator it = new ArrayList(this.running.entrySet()).iterator(); it.hasNext(); ) {
+            Map.Entry entry = (Map.Entry) it.next();
+            long elapsed = now - ((Long) entry.getValue()).longValue();
+            if (elapsed >= this.beanTimeout) {
+                String beanName = (String) entry.getKey();
+                this.running.remove(beanName);
+                this.overruns.put(beanName, "still running after " + elapsed + " ms");
+                onDestroyed(beanName, ready);
+            }
+        }
+    }
+
+    private long getWaitTime(long now, long deadline) {
+        long waitUntil = deadline;
+        if (this.beanTimeout > 0) {
+            for (Iterator it = this.running.values().iterator(); it.hasNext(); ) {
+                waitUntil = Math.min(waitUntil, ((Long) it.next()).longValue() + this.beanTimeout);
+            }
+        }
+        return Math.max(waitUntil - now, 1);
+    }
+
+}
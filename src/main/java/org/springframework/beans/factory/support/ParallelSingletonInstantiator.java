@@ -0,0 +1,288 @@
+package org.springframework.beans.factory.support;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pre-instantiates the singletons of a DefaultListableBeanFactory in parallel.
+ * <p>
+ * Builds the dependency graph between the given singletons from their bean
+ * references, constructor arguments and "depends-on" declarations, and creates
+ * each singleton on a ForkJoinPool as soon as all singletons it depends on have
+ * been created. Singletons that are part of a circular reference are created
+ * afterwards on the calling thread, in registration order.
+ * <p>
+ * Logs the critical path, i.e. the chain of dependent singletons that took
+ * the longest to create, when finished.
+ * <p>
+ * 按依赖关系图并行预实例化单例bean，完成后输出关键路径。
+ *
+ * @see DefaultListableBeanFactory#setPreInstantiationParallelism
+ */
+@Slf4j
+class ParallelSingletonInstantiator {
+
+    private final DefaultListableBeanFactory beanFactory;
+
+    private final int parallelism;
+
+    /**
+     * bean name --> merged bean definition
+     */
+    private final Map definitions = new HashMap();
+
+    /**
+     * bean name --> List of names of the singletons it depends on
+     */
+    private final Map dependencies = new HashMap();
+
+    /**
+     * bean name --> List of names of the singletons that depend on it
+     */
+    private final Map dependents = new HashMap();
+
+    /**
+     * bean name --> AtomicInteger with the number of dependencies not created yet
+     */
+    private final Map pendingDependencies = new HashMap();
+
+    /**
+     * bean name --> Long with the creation time in nanoseconds
+     */
+    private final Map creationTimes = new ConcurrentHashMap();
+
+    private final Object monitor = new Object();
+
+    private int activeTasks = 0;
+
+    private volatile Throwable failure;
+
+    private ForkJoinPool pool;
+
+
+    ParallelSingletonInstantiator(DefaultListableBeanFactory beanFactory, int parallelism) {
+        this.beanFactory = beanFactory;
+        this.parallelism = parallelism;
+    }
+
+
+    /**
+     * Instantiate the given non-lazy-init singletons.
+     *
+     * @param beanNames the names of the singletons, in registration order
+     * @throws BeansException if the creation of any singleton failed
+     */
+    public void instantiate(List beanNames) throws BeansException {
+        long startTime = System.nanoTime();
+        buildGraph(beanNames);
+        List order = sortTopologically(beanNames);
+
+        this.pool = new ForkJoinPool(this.parallelism);
+        try {
+            synchronized (this.monitor) {
+                for (Iterator it = order.iterator(); it.hasNext(); ) {
+                    String beanName = (String) it.next();
+                    if (((List) this.dependencies.get(beanName)).isEmpty()) {
+                        submit(beanName);
+                    }
+                }
+                while (this.activeTasks > 0) {
+                    this.monitor.wait();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BeanCreationException("Interrupted while pre-instantiating singletons", ex);
+        } finally {
+            this.pool.shutdown();
+        }
+        rethrowFailure();
+
+        // singletons in circular references: let getBean resolve them one after the other
+        for (Iterator it = beanNames.iterator(); it.hasNext(); ) {
+            String beanName = (String) it.next();
+            if (!this.creationTimes.containsKey(beanName)) {
+                instantiateSingleton(beanName);
+            }
+        }
+
+        if (log.isInfoEnabled()) {
+            long totalTime = (System.nanoTime() - startTime) / 1000000;
+            log.info("Pre-instantiated " + beanNames.size() + " singletons in " + totalTime + " ms using " +
+                    this.parallelism + " threads; critical path: " + describeCriticalPath(order));
+        }
+    }
+
+    private void buildGraph(List beanNames) {
+        for (Iterator it = beanNames.iterator(); it.hasNext(); ) {
+            String beanName = (String) it.next();
+            this.definitions.put(beanName, this.beanFactory.getMergedBeanDefinition(beanName, false));
+            this.dependents.put(beanName, new ArrayList());
+        }
+        for (Iterator it = beanNames.iterator(); it.hasNext(); ) {
+            String beanName = (String) it.next();
+            List beanDependencies = new ArrayList();
+            Set referencedNames = this.beanFactory.getReferencedBeanNames((RootBeanDefinition) this.definitions.get(beanName));
+            for (Iterator refs = referencedNames.iterator(); refs.hasNext(); ) {
+                String referencedName = (String) refs.next();
+                // references to lazy-init singletons, prototypes and beans of parent
+                // factories get resolved on demand, by the creating thread
+                if (this.definitions.containsKey(referencedName) && !referencedName.equals(beanName)) {
+                    beanDependencies.add(referencedName);
+                    ((List) this.dependents.get(referencedName)).add(beanName);
+                }
+            }
+            this.dependencies.put(beanName, beanDependencies);
+            this.pendingDependencies.put(beanName, new AtomicInteger(beanDependencies.size()));
+        }
+    }
+
+    /**
+     * Return the given singletons in topological order, leaving out those that
+     * are part of (or depend on) a circular reference.
+     */
+    private List sortTopologically(List beanNames) {
+        Map remaining = new HashMap();
+        LinkedList ready = new LinkedList();
+        for (Iterator it = beanNames.iterator(); it.hasNext(); ) {
+            String beanName = (String) it.next();
+            int count = ((List) this.dependencies.get(beanName)).size();
+            remaining.put(beanName, new Integer(count));
+            if (count == 0) {
+                ready.add(beanName);
+            }
+        }
+        List order = new ArrayList();
+        while (!ready.isEmpty()) {
+            String beanName = (String) ready.removeFirst();
+            order.add(beanName);
+            for (Iterator it = ((List) this.dependents.get(beanName)).iterator(); it.hasNext(); ) {
+                String dependent = (String) it.next();
+                int count = ((Integer) remaining.get(dependent)).intValue() - 1;
+                remaining.put(dependent, new Integer(count));
+                if (count == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (order.size() < beanNames.size() && log.isDebugEnabled()) {
+            log.debug((beanNames.size() - order.size()) + " singletons are part of circular references " +
+                    "and will be created sequentially");
+        }
+        return order;
+    }
+
+    /**
+     * Submit the creation of the given singleton. Must be called while holding the monitor.
+     */
+    private void submit(final String beanName) {
+        this.activeTasks++;
+        this.pool.execute(() -> {
+            try {
+                if (this.failure == null) {
+                    instantiateSingleton(beanName);
+                    onCreated(beanName);
+                }
+            } catch (Throwable ex) {
+                this.failure = ex;
+            } finally {
+                synchronized (this.monitor) {
+                    this.activeTasks--;
+                    this.monitor.notifyAll();
+                }
+            }
+        });
+    }
+
+    private void onCreated(String beanName) {
+        synchronized (this.monitor) {
+            for (Iterator it = ((List) this.dependents.get(beanName)).iterator(); it.hasNext(); ) {
+                String dependent = (String) it.next();
+                if (((AtomicInteger) this.pendingDependencies.get(dependent)).decrementAndGet() == 0 &&
+                        this.failure == null) {
+                    submit(dependent);
+                }
+            }
+        }
+    }
+
+    private void instantiateSingleton(String beanName) {
+        long startTime = System.nanoTime();
+        this.beanFactory.preInstantiateSingleton(beanName, (RootBeanDefinition) this.definitions.get(beanName));
+        this.creationTimes.put(beanName, new Long(System.nanoTime() - startTime));
+    }
+
+    private void rethrowFailure() {
+        Throwable ex = this.failure;
+        if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+        }
+        if (ex instanceof Error) {
+            throw (Error) ex;
+        }
+        if (ex != null) {
+            throw new BeanCreationException("Pre-instantiation of singletons failed", ex);
+        }
+    }
+
+    /**
+     * Determine the chain of dependent singletons with the longest total creation time.
+     */
+    private String describeCriticalPath(List order) {
+        Map pathTimes = new HashMap();
+        Map predecessors = new HashMap();
+        String last = null;
+        long lastTime = -1;
+        for (Iterator it = order.iterator(); it.hasNext(); ) {
+            String beanName = (String) it.next();
+            long predecessorTime = 0;
+            for (Iterator deps = ((List) this.dependencies.get(beanName)).iterator(); deps.hasNext(); ) {
+                String dependency = (String) deps.next();
+                long time = ((Long) pathTimes.get(dependency)).longValue();
+                if (time > predecessorTime) {
+                    predecessorTime = time;
+                    predecessors.put(beanName, dependency);
+                }
+            }
+            long pathTime = predecessorTime + ((Long) this.creationTimes.get(beanName)).longValue();
+            pathTimes.put(beanName, new Long(pathTime));
+            if (pathTime > lastTime) {
+                last = beanName;
+                lastTime = pathTime;
+            }
+        }
+        if (last == null) {
+            return "none";
+        }
+        List path = new ArrayList();
+        for (String beanName = last; beanName != null; beanName = (String) predecessors.get(beanName)) {
+            path.add(beanName);
+        }
+        Collections.reverse(path);
+        StringBuffer sb = new StringBuffer();
+        for (Iterator it = path.iterator(); it.hasNext(); ) {
+            String beanName = (String) it.next();
+            sb.append(beanName).append(" (")
+                    .append(((Long) this.creationTimes.get(beanName)).longValue() / 1000000).append(" ms)");
+            if (it.hasNext()) {
+                sb.append(" -> ");
+            }
+        }
+        sb.append("; total ").append(lastTime / 1000000).append(" ms");
+        return sb.toString();
+    }
+
+}
@@ -7,6 +7,11 @@ import org.springframework.beans.factory.config.ConstructorArgumentValues;
 
 public class RootBeanDefinition extends AbstractBeanDefinition {
 
+    /**
+     * Instantiation recipe cached by the bean factory, not copied along with the definition
+     */
+    volatile InstantiationRecipe instantiationRecipe;
+
     /**
      * Create a new RootBeanDefinition for a singleton,
      * using the given autowire mode.
@@ -0,0 +1,295 @@
+package org.springframework.beans.factory.support;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the steps of a bean factory or application context startup: refresh
+ * phases and the creation phases of each bean, with their durations, threads
+ * and the number of bytes allocated by the thread during the step.
+ * <p>
+ * Steps started while another step is running on the same thread become its
+ * children, so beans created to satisfy a dependency show up nested in the
+ * creation of the bean that needed them.
+ * <p>
+ * The timeline can be exported as JSON or in the Chrome trace event format,
+ * to be loaded into chrome://tracing or similar tools. Factories without a
+ * timeline record nothing.
+ * <p>
+ * 记录容器启动过程中各阶段与各bean创建步骤的耗时时间线。
+ *
+ * @see AbstractBeanFactory#setStartupTimeline
+ * @see org.springframework.context.support.AbstractApplicationContext#setStartupTimelineEnabled
+ */
+public class StartupTimeline {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicInteger stepCount = new AtomicInteger();
+
+    /**
+     * Steps in the order they have been started
+     */
+    private final ConcurrentLinkedQueue steps = new ConcurrentLinkedQueue();
+
+    /**
+     * Steps currently running on each thread, innermost first
+     */
+    private final ThreadLocal runningSteps = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private final boolean allocationTracking;
+
+
+    public StartupTimeline() {
+        this.allocationTracking = isAllocationTrackingSupported();
+    }
+
+
+    /**
+     * Start a step on the current thread, as a child of the step currently
+     * running on the thread, if any.
+     *
+     * @param name     the name of the step, e.g. "bean.instantiate"
+     * @param beanName the name of the bean the step applies to, or null
+     * @return the started step, to be ended once done
+     */
+    public Step start(String name, String beanName) {
+        Deque running = (Deque) this.runningSteps.get();
+        Step parent = (Step) running.peek();
+        Step step = new Step(this.stepCount.incrementAndGet(), (parent != null ? parent.id : 0), name, beanName);
+        running.push(step);
+        this.steps.add(step);
+        return step;
+    }
+
+    /**
+     * Return a snapshot of all steps recorded so far, in the order they have
+     * been started. Steps still running have a negative duration.
+     */
+    public List getSteps() {
+        return new ArrayList(this.steps);
+    }
+
+    //---------------------------------------------------------------------
+    // Export
+    //---------------------------------------------------------------------
+
+    /**
+     * Return the steps as a JSON document with a "steps" array. Times are in
+     * microseconds since the creation of this timeline.
+     */
+    public String toJson() {
+        StringBuffer sb = new StringBuffer("{\"steps\":[");
+        for (Iterator it = this.steps.iterator(); it.hasNext(); ) {
+            Step step = (Step) it.next();
+            sb.append("{\"id\":").append(step.id);
+            sb.append(",\"parentId\":").append(step.parentId);
+            sb.append(",\"name\":");
+            appendJsonString(sb, step.name);
+            if (step.beanName != null) {
+                sb.append(",\"bean\":");
+                appendJsonString(sb, step.beanName);
+            }
+            sb.append(",\"thread\":");
+            appendJsonString(sb, step.threadName);
+            sb.append(",\"start\":").append(step.getStartMicros());
+            sb.append(",\"duration\":").append(step.getDurationMicros());
+            if (step.allocatedBytes >= 0) {
+                sb.append(",\"allocatedBytes\":").append(step.allocatedBytes);
+            }
+            sb.append('}');
+            if (it.hasNext()) {
+                sb.append(',');
+            }
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * Return the finished steps in the Chrome trace event format,
+     * as complete events ("ph":"X") per thread.
+     */
+    public String toChromeTrace() {
+        StringBuffer sb = new StringBuffer("{\"traceEvents\":[");
+        boolean first = true;
+        for (Iterator it = this.steps.iterator(); it.hasNext(); ) {
+            Step step = (Step) it.next();
+            if (!step.isEnded()) {
+                continue;
+            }
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"name\":");
+            appendJsonString(sb, step.beanName != null ? step.name + " " + step.beanName : step.name);
+            sb.append(",\"cat\":\"startup\",\"ph\":\"X\",\"pid\":1");
+            sb.append(",\"tid\":").append(step.threadId);
+            sb.append(",\"ts\":").append(step.getStartMicros());
+            sb.append(",\"dur\":").append(step.getDurationMicros());
+            sb.append(",\"args\":{\"thread\":");
+            appendJsonString(sb, step.threadName);
+            if (step.allocatedBytes >= 0) {
+                sb.append(",\"allocatedBytes\":").append(step.allocatedBytes);
+            }
+            sb.append("}}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static void appendJsonString(StringBuffer sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", new Integer(c)));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+
+    //---------------------------------------------------------------------
+    // Allocation tracking
+    //---------------------------------------------------------------------
+
+    private static boolean isAllocationTrackingSupported() {
+        try {
+            return (threadMXBean instanceof com.sun.management.ThreadMXBean &&
+                    ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled());
+        } catch (Throwable ex) {
+            // not a HotSpot JVM, or allocation tracking not supported
+            return false;
+        }
+    }
+
+    private long currentThreadAllocatedBytes() {
+        return (this.allocationTracking ?
+                ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId()) : -1);
+    }
+
+
+    /**
+     * A step of the startup, running on a single thread.
+     */
+    public class Step {
+
+        private final int id;
+
+        private final int parentId;
+
+        private final String name;
+
+        private final String beanName;
+
+        private final long threadId;
+
+        private final String threadName;
+
+        private final long start;
+
+        private final long startAllocatedBytes;
+
+        private volatile long end;
+
+        private volatile long allocatedBytes = -1;
+
+        private Step(int id, int parentId, String name, String beanName) {
+            this.id = id;
+            this.parentId = parentId;
+            this.name = name;
+            this.beanName = beanName;
+            this.threadId = Thread.currentThread().getId();
+            this.threadName = Thread.currentThread().getName();
+            this.startAllocatedBytes = currentThreadAllocatedBytes();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * End this step, and any child step left running, e.g. because of an
+         * exception. Must be called on the thread that started the step.
+         */
+        public void end() {
+            Deque running = (Deque) runningSteps.get();
+            if (!running.contains(this)) {
+                return;
+            }
+            Step step;
+            do {
+                step = (Step) running.pop();
+                step.doEnd();
+            } while (step != this);
+        }
+
+        private void doEnd() {
+            this.end = System.nanoTime();
+            if (this.startAllocatedBytes >= 0) {
+                this.allocatedBytes = currentThreadAllocatedBytes() - this.startAllocatedBytes;
+            }
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Return the id of the enclosing step, or 0 for a top-level step.
+         */
+        public int getParentId() {
+            return parentId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getBeanName() {
+            return beanName;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public boolean isEnded() {
+            return (this.end != 0);
+        }
+
+        public long getStartMicros() {
+            return (this.start - startNanos) / 1000;
+        }
+
+        /**
+         * Return the duration of this step in microseconds, or -1 if still running.
+         */
+        public long getDurationMicros() {
+            return (isEnded() ? (this.end - this.start) / 1000 : -1);
+        }
+
+        /**
+         * Return the number of bytes allocated by the thread during this step,
+         * including child steps, or -1 if not available.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public String toString() {
+            return this.name + (this.beanName != null ? " '" + this.beanName + "'" : "") +
+                    " [" + getDurationMicros() + "us on " + this.threadName + "]";
+        }
+    }
+
+}
@@ -18,6 +18,8 @@ package org.springframework.beans.propertyeditors;
 
 import java.beans.PropertyEditorSupport;
 
+import org.springframework.util.StringUtils;
+
 /**
  * Property editor for Boolean properties.
  *
@@ -52,7 +54,7 @@ public class CustomBooleanEditor extends PropertyEditorSupport {
 	}
 
 	public void setAsText(String text) throws IllegalArgumentException {
-		if (this.allowEmpty && text.trim().equals("")) {
+		if (this.allowEmpty && !StringUtils.hasText(text)) {
 			setValue(null);
 		}
 		else if (text.equalsIgnoreCase("true")) {
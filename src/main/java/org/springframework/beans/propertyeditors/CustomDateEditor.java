@@ -33,8 +33,13 @@ import java.util.Date;
  * binder.registerCustomEditor calls in an implementation of
  * BaseCommandController's initBinder method.
  *
+ * <p>DateFormat is not thread-safe, so a registered instance serializes all
+ * conversions that use it. Consider a DateTimeFormatConverter registered with
+ * the ConversionService instead, which can be used concurrently.
+ *
  * @author Juergen Hoeller
  * @since 28.04.2003
+ * @see DateTimeFormatConverter
  * @see org.springframework.validation.DataBinder#registerCustomEditor
  * @see org.springframework.web.servlet.mvc.BaseCommandController#initBinder
  * @see org.springframework.web.bind.BindInitializer#initBinder
@@ -22,6 +22,8 @@ import java.math.BigInteger;
 import java.text.NumberFormat;
 import java.text.ParseException;
 
+import org.springframework.util.StringUtils;
+
 /**
  * Property editor for any Number subclass like Integer, Long, Float, Double.
  * Uses a given NumberFormat for (locale-specific) parsing and rendering.
@@ -71,7 +73,7 @@ public class CustomNumberEditor extends PropertyEditorSupport {
 	}
 
 	public void setAsText(String text) throws IllegalArgumentException {
-		if (this.allowEmpty && text.trim().equals("")) {
+		if (this.allowEmpty && !StringUtils.hasText(text)) {
 			setValue(null);
 		}
 		else {
@@ -81,22 +83,22 @@ public class CustomNumberEditor extends PropertyEditorSupport {
 					setValue(number);
 				}
 				else if (this.numberClass.equals(Short.class)) {
-					setValue(new Short(number.shortValue()));
+					setValue(Short.valueOf(number.shortValue()));
 				}
 				else if (this.numberClass.equals(Integer.class)) {
-					setValue(new Integer(number.intValue()));
+					setValue(Integer.valueOf(number.intValue()));
 				}
 				else if (this.numberClass.equals(Long.class)) {
-					setValue(new Long(number.longValue()));
+					setValue(Long.valueOf(number.longValue()));
 				}
 				else if (this.numberClass.equals(BigInteger.class)) {
 					setValue(BigInteger.valueOf(number.longValue()));
 				}
 				else if (this.numberClass.equals(Float.class)) {
-					setValue(new Float(number.floatValue()));
+					setValue(Float.valueOf(number.floatValue()));
 				}
 				else if (this.numberClass.equals(Double.class)) {
-					setValue(new Double(number.doubleValue()));
+					setValue(Double.valueOf(number.doubleValue()));
 				}
 				else if (this.numberClass.equals(BigDecimal.class)) {
 					setValue(new BigDecimal(Double.toString(number.doubleValue())));
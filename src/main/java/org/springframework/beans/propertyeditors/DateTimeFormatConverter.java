@@ -0,0 +1,182 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */ 
+
+package org.springframework.beans.propertyeditors;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.Converter;
+import org.springframework.util.StringUtils;
+
+/**
+ * Converter of Strings to Date, Instant, LocalDate or LocalDateTime values,
+ * using a java.time DateTimeFormatter.
+ *
+ * <p>Unlike CustomDateEditor with its java.text.DateFormat, instances are
+ * immutable and thread-safe: a single converter can be registered with a
+ * ConversionService and used by all BeanWrappers concurrently, without any
+ * locking. Formatters created from patterns are cached by pattern.
+ *
+ * <p>Date and Instant values are parsed in the given time zone, unless the
+ * text specifies an offset or zone itself. Patterns without time of day
+ * give the start of the day.
+ * <p>
+ * 基于DateTimeFormatter、线程安全的日期时间转换器。
+ *
+ * @see org.springframework.beans.ConversionService#addConverter
+ * @see CustomDateEditor
+ */
+public class DateTimeFormatConverter implements Converter {
+
+	/** Maximum number of cached formatters, to protect against arbitrary patterns */
+	private static final int CACHE_LIMIT = 256;
+
+	/** Pattern --> DateTimeFormatter */
+	private static final ConcurrentHashMap formatterCache = new ConcurrentHashMap();
+
+
+	/**
+	 * Return the formatter for the given pattern, compiling it on first use.
+	 * @throws IllegalArgumentException if the pattern is invalid
+	 * @see DateTimeFormatter#ofPattern(String)
+	 */
+	public static DateTimeFormatter getFormatter(String pattern) throws IllegalArgumentException {
+		DateTimeFormatter formatter = (DateTimeFormatter) formatterCache.get(pattern);
+		if (formatter == null) {
+			formatter = DateTimeFormatter.ofPattern(pattern);
+			if (formatterCache.size() < CACHE_LIMIT) {
+				formatterCache.put(pattern, formatter);
+			}
+		}
+		return formatter;
+	}
+
+	/**
+	 * Create a converter for the given pattern, parsing Date and Instant
+	 * values in the default time zone, and not allowing empty Strings.
+	 * @param targetType Date, Instant, LocalDate or LocalDateTime
+	 * @param pattern the pattern, as understood by DateTimeFormatter
+	 */
+	public static DateTimeFormatConverter forPattern(Class targetType, String pattern) {
+		return new DateTimeFormatConverter(targetType, getFormatter(pattern), ZoneId.systemDefault(), false);
+	}
+
+
+	private final Class targetType;
+
+	private final DateTimeFormatter formatter;
+
+	private final ZoneId zone;
+
+	/** The formatter with the zone as override zone, for Date and Instant values */
+	private final DateTimeFormatter zonedFormatter;
+
+	private final boolean allowEmpty;
+
+	/**
+	 * Create a new converter.
+	 * <p>The allowEmpty parameter states if an empty String should
+	 * be allowed for parsing, i.e. get interpreted as null value.
+	 * Else, an IllegalArgumentException gets thrown in that case.
+	 * @param targetType Date, Instant, LocalDate or LocalDateTime
+	 * @param formatter the formatter to parse and format with
+	 * @param zone the time zone for Date and Instant values without offset
+	 * @param allowEmpty if empty strings should be allowed
+	 * @throws IllegalArgumentException if the target type is not supported
+	 */
+	public DateTimeFormatConverter(Class targetType, DateTimeFormatter formatter, ZoneId zone, boolean allowEmpty)
+			throws IllegalArgumentException {
+		if (!Date.class.equals(targetType) && !Instant.class.equals(targetType) &&
+				!LocalDate.class.equals(targetType) && !LocalDateTime.class.equals(targetType)) {
+			throw new IllegalArgumentException("Target type must be Date, Instant, LocalDate or LocalDateTime");
+		}
+		this.targetType = targetType;
+		this.formatter = formatter;
+		this.zone = zone;
+		this.zonedFormatter = formatter.withZone(zone);
+		this.allowEmpty = allowEmpty;
+	}
+
+	public Class getTargetType() {
+		return targetType;
+	}
+
+	public DateTimeFormatter getFormatter() {
+		return formatter;
+	}
+
+	/**
+	 * Parse the given String into a value of the target type.
+	 */
+	public Object convert(Object source) throws IllegalArgumentException {
+		String text = (String) source;
+		if (this.allowEmpty && !StringUtils.hasText(text)) {
+			// treat empty String as null value
+			return null;
+		}
+		try {
+			if (LocalDate.class.equals(this.targetType)) {
+				return LocalDate.parse(text, this.formatter);
+			}
+			else if (LocalDateTime.class.equals(this.targetType)) {
+				return LocalDateTime.parse(text, this.formatter);
+			}
+			Instant instant = parseInstant(text);
+			return (Instant.class.equals(this.targetType) ? (Object) instant : Date.from(instant));
+		}
+		catch (DateTimeException ex) {
+			throw new IllegalArgumentException("Could not parse date: " + ex.getMessage());
+		}
+	}
+
+	private Instant parseInstant(String text) {
+		TemporalAccessor parsed = this.zonedFormatter.parseBest(text, ZonedDateTime::from, LocalDate::from);
+		if (parsed instanceof ZonedDateTime) {
+			return ((ZonedDateTime) parsed).toInstant();
+		}
+		return ((LocalDate) parsed).atStartOfDay(this.zone).toInstant();
+	}
+
+	/**
+	 * Format the given value of the target type as String.
+	 */
+	public String format(Object value) {
+		if (value == null) {
+			return "";
+		}
+		if (value instanceof Date) {
+			value = ((Date) value).toInstant();
+		}
+		if (value instanceof Instant) {
+			return this.formatter.format(((Instant) value).atZone(this.zone));
+		}
+		return this.formatter.format((TemporalAccessor) value);
+	}
+
+	public String toString() {
+		return "DateTimeFormatConverter to [" + this.targetType.getName() + "] using " + this.formatter;
+	}
+
+}
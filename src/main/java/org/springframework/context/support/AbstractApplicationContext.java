@@ -9,6 +9,8 @@ import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
+import org.springframework.beans.factory.support.StartupTimeline;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationListener;
@@ -22,6 +24,7 @@ import org.springframework.context.event.ApplicationEventMulticasterImpl;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.OrderComparator;
+import org.springframework.core.jfr.FlightRecorderEvents;
 import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
@@ -59,6 +62,10 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 
     private final ApplicationEventMulticaster eventMulticaster = new ApplicationEventMulticasterImpl();
 
+    private boolean startupTimelineEnabled = false;
+
+    private volatile StartupTimeline startupTimeline;
+
 
     //---------------------------------------------------------------------
     // Constructors
@@ -93,9 +100,16 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
         if (log.isDebugEnabled()) {
             log.debug("Publishing event in context [" + getDisplayName() + "]: " + event.toString());
         }
-        this.eventMulticaster.onApplicationEvent(event);
-        if (this.parent != null) {
-            parent.publishEvent(event);
+        Object publication = FlightRecorderEvents.beginEventPublication();
+        try {
+            this.eventMulticaster.onApplicationEvent(event);
+            if (this.parent != null) {
+                parent.publishEvent(event);
+            }
+        } finally {
+            if (publication != null) {
+                FlightRecorderEvents.endEventPublication(publication, event.getClass(), getDisplayName());
+            }
         }
     }
 
@@ -117,12 +131,49 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
         return beanFactoryPostProcessors;
     }
 
+    /**
+     * Set whether to record a timeline of the refresh phases and of the creation
+     * of each bean on the next refresh. Default is false, recording nothing.
+     *
+     * @see #getStartupTimeline
+     */
+    public void setStartupTimelineEnabled(boolean startupTimelineEnabled) {
+        this.startupTimelineEnabled = startupTimelineEnabled;
+    }
+
+    /**
+     * Return the timeline recorded during the last refresh, to be exported
+     * via {@link StartupTimeline#toJson} or {@link StartupTimeline#toChromeTrace}.
+     *
+     * @return the timeline, or null if not enabled
+     */
+    public StartupTimeline getStartupTimeline() {
+        return startupTimeline;
+    }
+
 
     public void refresh() throws BeansException {
         this.startupTime = System.currentTimeMillis();
+        StartupTimeline timeline = (this.startupTimelineEnabled ? new StartupTimeline() : null);
+        this.startupTimeline = timeline;
+        StartupTimeline.Step refreshStep = startStep(timeline, "context.refresh");
+        try {
+            doRefresh(timeline);
+        } finally {
+            if (refreshStep != null) {
+                refreshStep.end();
+                setStartupTimeline(getBeanFactory(), null);
+            }
+        }
+    }
+
+    private void doRefresh(StartupTimeline timeline) throws BeansException {
         //告诉子类刷新内部的bean工厂
+        StartupTimeline.Step step = startStep(timeline, "context.refreshBeanFactory");
         refreshBeanFactory();
+        endStep(step);
         ConfigurableListableBeanFactory beanFactory = getBeanFactory();
+        setStartupTimeline(beanFactory, timeline);
         //使用上下文语义来配置bean工厂
         //注册propertyEditor
         beanFactory.registerCustomEditor(Resource.class, new ContextResourceEditor(this));
@@ -133,6 +184,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
         //忽略该类型的依赖
         beanFactory.ignoreDependencyType(ApplicationContext.class);
         postProcessBeanFactory(beanFactory);
+        step = startStep(timeline, "context.invokeBeanFactoryPostProcessors");
         // invoke factory processors registered with the context instance
         for (Iterator it = getBeanFactoryPostProcessors().iterator(); it.hasNext(); ) {
             BeanFactoryPostProcessor factoryProcessor = (BeanFactoryPostProcessor) it.next();
@@ -140,20 +192,49 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
         }
         // invoke factory processors registered as beans in the context
         invokeBeanFactoryPostProcessors();
+        endStep(step);
+        // bean definitions may have been modified by the factory processors
+        beanFactory.clearMetadataCache();
         // register bean processor that intercept bean creation
+        step = startStep(timeline, "context.registerBeanPostProcessors");
         registerBeanPostProcessors();
+        endStep(step);
         // initialize message source for this context
         initMessageSource();
         // initialize other special beans in specific context subclasses
         onRefresh();
         // check for listener beans and register them
         refreshListeners();
+        // no more bean definition changes expected: serve lookups from a read-only snapshot
+        beanFactory.freezeConfiguration();
         // instantiate singletons this late to allow them to access the message source
+        step = startStep(timeline, "context.preInstantiateSingletons");
         beanFactory.preInstantiateSingletons();
+        endStep(step);
         // last step: publish respective event
         publishEvent(new ContextRefreshedEvent(this));
     }
 
+    private static StartupTimeline.Step startStep(StartupTimeline timeline, String name) {
+        return (timeline != null ? timeline.start(name, null) : null);
+    }
+
+    private static void endStep(StartupTimeline.Step step) {
+        if (step != null) {
+            step.end();
+        }
+    }
+
+    /**
+     * Let the given bean factory record bean creation in the given timeline,
+     * if it supports timelines at all.
+     */
+    private static void setStartupTimeline(ConfigurableListableBeanFactory beanFactory, StartupTimeline timeline) {
+        if (beanFactory instanceof AbstractBeanFactory) {
+            ((AbstractBeanFactory) beanFactory).setStartupTimeline(timeline);
+        }
+    }
+
 
     protected void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
     }
@@ -19,7 +19,7 @@ package org.springframework.context.support;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ResourceLoaderAware;
@@ -28,7 +28,7 @@ import org.springframework.context.ResourceLoaderAware;
  * BeanPostProcessor implementation that passes the application context to
  * beans that implement the ApplicationContextAware or ResourceLoaderAware
  * interfaces. If both are implemented, the latter is satisfied first.
- * <p>
+ *
  * <p>Application contexts will automatically register this with their
  * underlying bean factory. Applications do not use this directly.
  *
@@ -37,7 +37,7 @@ import org.springframework.context.ResourceLoaderAware;
  * @see AbstractApplicationContext#refresh
  * @since 10.10.2003
  */
-public class ApplicationContextAwareProcessor implements BeanPostProcessor {
+public class ApplicationContextAwareProcessor implements SelectiveBeanPostProcessor {
 
     protected final Log logger = LogFactory.getLog(getClass());
 
@@ -50,6 +50,11 @@ public class ApplicationContextAwareProcessor implements BeanPostProcessor {
         this.applicationContext = applicationContext;
     }
 
+    public boolean isApplicableTo(Class beanClass) {
+        return (ResourceLoaderAware.class.isAssignableFrom(beanClass) ||
+                ApplicationContextAware.class.isAssignableFrom(beanClass));
+    }
+
     public Object postProcessBeforeInitialization(Object bean, String name) throws BeansException {
         if (bean instanceof ResourceLoaderAware) {
             if (logger.isDebugEnabled()) {
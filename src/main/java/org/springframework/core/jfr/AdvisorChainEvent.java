@@ -0,0 +1,71 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for the computation of the interceptor chain of an
+ * AOP proxy for a method, i.e. the matching of all advisors against it.
+ * <p>Only computations taking longer than the threshold, 1 ms by default,
+ * get recorded; the threshold can be changed in the recording settings.
+ * <p>
+ * 记录AOP拦截器链计算耗时的JFR事件。
+ *
+ * @see FlightRecorderEvents
+ * @see org.springframework.aop.framework.AdvisorChainFactoryUtils#calculateInterceptorsAndDynamicInterceptionAdvice
+ */
+@Name("org.springframework.AdvisorChain")
+@Label("Advisor Chain Computation")
+@Category({"Spring", "AOP"})
+@Description("Computation of the interceptor chain of a proxied method")
+@Threshold("1 ms")
+@StackTrace(false)
+public class AdvisorChainEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    private String method;
+
+    @Label("Target Class")
+    private Class targetClass;
+
+    @Label("Advisors")
+    private int advisorCount;
+
+    @Label("Interceptors")
+    private int interceptorCount;
+
+    /**
+     * End this event and commit it if it is enabled and exceeds the threshold.
+     */
+    public void record(java.lang.reflect.Method method, Class targetClass, int advisorCount, int interceptorCount) {
+        end();
+        if (shouldCommit()) {
+            this.method = method.getDeclaringClass().getName() + "." + method.getName();
+            this.targetClass = targetClass;
+            this.advisorCount = advisorCount;
+            this.interceptorCount = interceptorCount;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for the creation of a bean instance by a bean factory,
+ * including the creation of the beans it depends on.
+ * <p>Only creations taking longer than the threshold, 10 ms by default, get
+ * recorded; the threshold can be changed in the recording settings.
+ * <p>
+ * 记录bean创建耗时的JFR事件。
+ *
+ * @see FlightRecorderEvents
+ * @see org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory#createBean
+ */
+@Name("org.springframework.BeanCreation")
+@Label("Bean Creation")
+@Category({"Spring", "Container"})
+@Description("Creation of a bean instance by a bean factory")
+@Threshold("10 ms")
+@StackTrace(false)
+public class BeanCreationEvent extends jdk.jfr.Event {
+
+    @Label("Bean Name")
+    private String beanName;
+
+    @Label("Bean Class")
+    private Class beanClass;
+
+    @Label("Singleton")
+    private boolean singleton;
+
+    /**
+     * End this event and commit it if it is enabled and exceeds the threshold.
+     */
+    public void record(String beanName, Class beanClass, boolean singleton) {
+        end();
+        if (shouldCommit()) {
+            this.beanName = beanName;
+            this.beanClass = beanClass;
+            this.singleton = singleton;
+            commit();
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for the publication of an application event, including
+ * its delivery to all listeners of the context and of its ancestors.
+ * <p>Only publications taking longer than the threshold, 10 ms by default,
+ * get recorded; the threshold can be changed in the recording settings.
+ * <p>
+ * 记录应用事件发布耗时的JFR事件。
+ *
+ * @see FlightRecorderEvents
+ * @see org.springframework.context.support.AbstractApplicationContext#publishEvent
+ */
+@Name("org.springframework.EventPublication")
+@Label("Application Event Publication")
+@Category({"Spring", "Context"})
+@Description("Publication of an application event to the listeners of a context")
+@Threshold("10 ms")
+public class EventPublicationEvent extends jdk.jfr.Event {
+
+    @Label("Event Type")
+    private Class eventType;
+
+    @Label("Context")
+    private String context;
+
+    /**
+     * End this event and commit it if it is enabled and exceeds the threshold.
+     */
+    public void record(Class eventType, String context) {
+        end();
+        if (shouldCommit()) {
+            this.eventType = eventType;
+            this.context = context;
+            commit();
+        }
+    }
+
+}
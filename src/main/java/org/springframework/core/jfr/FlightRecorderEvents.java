@@ -0,0 +1,128 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.jfr;
+
+import jdk.jfr.EventType;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Entry point for the Flight Recorder events of this package, to be used
+ * instead of the event classes themselves: its signatures don't refer to
+ * jdk.jfr, so callers keep working on JREs without Flight Recorder.
+ * <p>Each begin method returns the begun event, or null if Flight Recorder
+ * isn't available or the event isn't enabled in any recording, so nothing
+ * gets allocated unless the event is actually recorded. Callers pass the
+ * returned event on to the matching end method if it is not null.
+ * <p>
+ * JFR事件的入口，JRE不支持JFR或事件未启用时不创建事件对象。
+ */
+public abstract class FlightRecorderEvents {
+
+    private static final boolean flightRecorderPresent;
+
+    static {
+        boolean present;
+        try {
+            ClassUtils.forName("jdk.jfr.Event", FlightRecorderEvents.class.getClassLoader());
+            present = true;
+        }
+        catch (Throwable ex) {
+            // no Flight Recorder on this JRE - events simply not recorded then
+            present = false;
+        }
+        flightRecorderPresent = present;
+    }
+
+
+    /**
+     * Return whether Flight Recorder is available on this JRE.
+     */
+    public static boolean isFlightRecorderPresent() {
+        return flightRecorderPresent;
+    }
+
+    /**
+     * @see BeanCreationEvent
+     */
+    public static Object beginBeanCreation() {
+        return (flightRecorderPresent ? Events.begin(Events.beanCreation, BeanCreationEvent::new) : null);
+    }
+
+    public static void endBeanCreation(Object event, String beanName, Class beanClass, boolean singleton) {
+        ((BeanCreationEvent) event).record(beanName, beanClass, singleton);
+    }
+
+    /**
+     * @see EventPublicationEvent
+     */
+    public static Object beginEventPublication() {
+        return (flightRecorderPresent ? Events.begin(Events.eventPublication, EventPublicationEvent::new) : null);
+    }
+
+    public static void endEventPublication(Object event, Class eventType, String context) {
+        ((EventPublicationEvent) event).record(eventType, context);
+    }
+
+    /**
+     * @see AdvisorChainEvent
+     */
+    public static Object beginAdvisorChain() {
+        return (flightRecorderPresent ? Events.begin(Events.advisorChain, AdvisorChainEvent::new) : null);
+    }
+
+    public static void endAdvisorChain(Object event, java.lang.reflect.Method method, Class targetClass,
+                                       int advisorCount, int interceptorCount) {
+        ((AdvisorChainEvent) event).record(method, targetClass, advisorCount, interceptorCount);
+    }
+
+    /**
+     * @see TargetAcquisitionEvent
+     */
+    public static Object beginTargetAcquisition() {
+        return (flightRecorderPresent ? Events.begin(Events.targetAcquisition, TargetAcquisitionEvent::new) : null);
+    }
+
+    public static void endTargetAcquisition(Object event, String targetBeanName, int active, int free) {
+        ((TargetAcquisitionEvent) event).record(targetBeanName, active, free);
+    }
+
+
+    /**
+     * Holder of the event types, only loaded if Flight Recorder is present.
+     */
+    private static class Events {
+
+        private static final EventType beanCreation = EventType.getEventType(BeanCreationEvent.class);
+
+        private static final EventType eventPublication = EventType.getEventType(EventPublicationEvent.class);
+
+        private static final EventType advisorChain = EventType.getEventType(AdvisorChainEvent.class);
+
+        private static final EventType targetAcquisition = EventType.getEventType(TargetAcquisitionEvent.class);
+
+        private static Object begin(EventType type, java.util.function.Supplier factory) {
+            if (!type.isEnabled()) {
+                return null;
+            }
+            jdk.jfr.Event event = (jdk.jfr.Event) factory.get();
+            event.begin();
+            return event;
+        }
+    }
+
+}
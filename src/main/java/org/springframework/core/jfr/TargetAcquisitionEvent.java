@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2004 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Flight Recorder event for the acquisition of a target object from a pooling
+ * TargetSource, including the time spent waiting for a free object.
+ * <p>Only acquisitions taking longer than the threshold, 10 ms by default,
+ * get recorded; the threshold can be changed in the recording settings.
+ * <p>
+ * 记录从池化TargetSource获取目标对象耗时的JFR事件。
+ *
+ * @see FlightRecorderEvents
+ * @see org.springframework.aop.target.CommonsPoolTargetSource#getTarget
+ */
+@Name("org.springframework.TargetAcquisition")
+@Label("Target Acquisition")
+@Category({"Spring", "AOP"})
+@Description("Acquisition of a target object from a pooling TargetSource")
+@Threshold("10 ms")
+public class TargetAcquisitionEvent extends jdk.jfr.Event {
+
+    @Label("Target Bean Name")
+    private String targetBeanName;
+
+    @Label("Active Objects")
+    private int active;
+
+    @Label("Free Objects")
+    private int free;
+
+    /**
+     * End this event and commit it if it is enabled and exceeds the threshold.
+     */
+    public void record(String targetBeanName, int active, int free) {
+        end();
+        if (shouldCommit()) {
+            this.targetBeanName = targetBeanName;
+            this.active = active;
+            this.free = free;
+            commit();
+        }
+    }
+
+}
@@ -21,6 +21,7 @@ import junit.framework.TestCase;
 
 import java.beans.PropertyEditorSupport;
 import java.beans.PropertyVetoException;
+import java.util.Arrays;
 import java.util.Properties;
 
 /**
@@ -852,6 +853,117 @@ public class BeanWrapperTestSuite extends TestCase {
         assertEquals(2, tb.getArray()[1]);
     }
 
+    public void testPrimitiveArrayConversion() {
+        PrimitiveArraysBean bean = new PrimitiveArraysBean();
+        BeanWrapper bw = new BeanWrapperImpl(bean);
+        bw.setPropertyValue("intArray", "1, -2,0x10 ,010");
+        assertTrue(Arrays.equals(new int[]{1, -2, 16, 8}, bean.getIntArray()));
+        bw.setPropertyValue("longArray", new String[]{"9223372036854775807", "-9223372036854775808"});
+        assertTrue(Arrays.equals(new long[]{Long.MAX_VALUE, Long.MIN_VALUE}, bean.getLongArray()));
+        bw.setPropertyValue("doubleArray", Arrays.asList(new Object[]{"1.5", new Double(2.5)}));
+        assertTrue(Arrays.equals(new double[]{1.5, 2.5}, bean.getDoubleArray()));
+        bw.setPropertyValue("booleanArray", "true,FALSE");
+        assertTrue(Arrays.equals(new boolean[]{true, false}, bean.getBooleanArray()));
+        bw.setPropertyValue("intArray", "");
+        assertEquals(0, bean.getIntArray().length);
+        bw.setPropertyValue("intValue", "0x10");
+        assertEquals(16, bean.getIntValue());
+
+        try {
+            bw.setPropertyValue("intArray", "1,2147483648");
+            fail("Should have thrown TypeMismatchException");
+        }
+        catch (TypeMismatchException ex) {
+            // expected
+        }
+        try {
+            bw.setPropertyValue("booleanArray", new String[]{"true", "yes"});
+            fail("Should have thrown TypeMismatchException");
+        }
+        catch (TypeMismatchException ex) {
+            // expected
+        }
+
+        // custom editors for the component type still apply
+        bw.registerCustomEditor(int.class, new PropertyEditorSupport() {
+            public void setAsText(String text) {
+                setValue(new Integer(text.length()));
+            }
+        });
+        bw.setPropertyValue("intArray", new String[]{"a", "bbb"});
+        assertTrue(Arrays.equals(new int[]{1, 3}, bean.getIntArray()));
+    }
+
+    public void testCompiledPropertyPaths() {
+        PropertyPath path = PropertyPath.forPath("map['key1'].spouse.name");
+        assertSame(path, PropertyPath.forPath("map['key1'].spouse.name"));
+        assertEquals(3, path.size());
+        assertEquals("map[key1]", path.getToken(0).getCanonicalName());
+        assertEquals("map", path.getToken(0).getActualName());
+        assertEquals("key1", path.getToken(0).getKey());
+        assertEquals(3, PropertyPath.forPath("list[3]").getFinalToken().getIndex());
+
+        IndexedTestBean bean = new IndexedTestBean();
+        BeanWrapper bw = new BeanWrapperImpl(bean);
+        bw.setPropertyValue("list[1].spouse", new TestBean("kerry", 0));
+        assertEquals("kerry", bw.getPropertyValue("list[1].spouse.name"));
+        bw.setPropertyValue("list[1].spouse.name", "rod");
+        assertEquals("rod", bw.getPropertyValue("list[1].spouse.name"));
+
+        // cached nested BeanWrapper follows replaced nested objects
+        bw.setPropertyValue("list[1].spouse", new TestBean("juergen", 0));
+        assertEquals("juergen", bw.getPropertyValue("list[1].spouse.name"));
+
+        try {
+            bw.getPropertyValue("list[x].name");
+            fail("Should have thrown FatalBeanException");
+        }
+        catch (FatalBeanException ex) {
+            // expected
+        }
+    }
+
+    public void testGeneratedAccessors() throws Exception {
+        TestBean tb = new TestBean();
+        BeanWrapperImpl bw = new BeanWrapperImpl(tb);
+        bw.setUseGeneratedAccessors(true);
+        CachedIntrospectionResults results = CachedIntrospectionResults.forClass(TestBean.class);
+        assertNotNull(results.getGeneratedAccessor(results.getPropertyDescriptor("age")));
+
+        bw.setPropertyValue("age", "33");
+        bw.setPropertyValue("name", "tony");
+        bw.setPropertyValue("spouse", new TestBean());
+        bw.setPropertyValue("spouse.name", "kerry");
+        assertEquals(33, tb.getAge());
+        assertEquals(new Integer(33), bw.getPropertyValue("age"));
+        assertEquals("tony", bw.getPropertyValue("name"));
+        assertEquals("kerry", bw.getPropertyValue("spouse.name"));
+
+        try {
+            bw.setPropertyValue("spouse", new Object());
+            fail("Should have thrown TypeMismatchException");
+        }
+        catch (TypeMismatchException ex) {
+            // expected
+        }
+        try {
+            bw.setPropertyValue("touchy", "valid.");
+            fail("Should have thrown MethodInvocationException");
+        }
+        catch (MethodInvocationException ex) {
+            assertEquals("Can't contain a .", ex.getRootCause().getMessage());
+        }
+
+        // non-public class: falls back to reflection
+        GetterBean gb = new GetterBean();
+        BeanWrapperImpl gbw = new BeanWrapperImpl(gb);
+        gbw.setUseGeneratedAccessors(true);
+        gbw.setPropertyValue("name", "tom");
+        assertEquals("tom", gbw.getPropertyValue("name"));
+        results = CachedIntrospectionResults.forClass(GetterBean.class);
+        assertNull(results.getGeneratedAccessor(results.getPropertyDescriptor("name")));
+    }
+
 
     private static class NoRead {
 
@@ -913,6 +1025,60 @@ public class BeanWrapperTestSuite extends TestCase {
     }
 
 
+    private static class PrimitiveArraysBean {
+
+        private int intValue;
+
+        private int[] intArray;
+
+        private long[] longArray;
+
+        private double[] doubleArray;
+
+        private boolean[] booleanArray;
+
+        public int getIntValue() {
+            return intValue;
+        }
+
+        public void setIntValue(int intValue) {
+            this.intValue = intValue;
+        }
+
+        public int[] getIntArray() {
+            return intArray;
+        }
+
+        public void setIntArray(int[] intArray) {
+            this.intArray = intArray;
+        }
+
+        public long[] getLongArray() {
+            return longArray;
+        }
+
+        public void setLongArray(long[] longArray) {
+            this.longArray = longArray;
+        }
+
+        public double[] getDoubleArray() {
+            return doubleArray;
+        }
+
+        public void setDoubleArray(double[] doubleArray) {
+            this.doubleArray = doubleArray;
+        }
+
+        public boolean[] getBooleanArray() {
+            return booleanArray;
+        }
+
+        public void setBooleanArray(boolean[] booleanArray) {
+            this.booleanArray = booleanArray;
+        }
+    }
+
+
     private static class PrimitiveArrayBean {
 
         private int[] array;
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import junit.framework.TestCase;
 import org.apache.commons.logging.Log;
@@ -73,6 +74,50 @@ public class ConcurrentBeanWrapperTests extends TestCase {
 	}
 
 
+	public void testConcurrentIntrospection() throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		final Set results = Collections.synchronizedSet(new HashSet());
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						start.await();
+						results.add(CachedIntrospectionResults.forClass(IntrospectedBean.class));
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join(10000);
+		}
+		// all threads got the same results, computed once
+		assertEquals(1, results.size());
+		assertSame(results.iterator().next(), CachedIntrospectionResults.forClass(IntrospectedBean.class));
+		assertEquals(int.class,
+				CachedIntrospectionResults.forClass(IntrospectedBean.class).getPropertyDescriptor("value").getPropertyType());
+	}
+
+
+	public static class IntrospectedBean {
+
+		private int value;
+
+		public int getValue() {
+			return value;
+		}
+
+		public void setValue(int value) {
+			this.value = value;
+		}
+	}
+
+
 	private static class TestRun implements Runnable {
 
 		private ConcurrentBeanWrapperTests test;
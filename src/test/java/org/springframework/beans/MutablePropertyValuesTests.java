@@ -45,6 +45,48 @@ public class MutablePropertyValuesTests extends AbstractPropertyValuesTests {
 			assertTrue(pvs.getPropertyValue("forename").equals(changedPv));
 		}
 		
+		public void testIndexedLookupOnManyPropertyValues() throws Exception {
+			MutablePropertyValues pvs = new MutablePropertyValues();
+			for (int i = 0; i < 100; i++) {
+				pvs.addPropertyValue("prop" + i, new Integer(i));
+			}
+			pvs.addPropertyValue("prop42", "replaced");
+			assertEquals(100, pvs.getPropertyValues().length);
+			assertEquals("prop0", pvs.getPropertyValues()[0].getName());
+			assertEquals("replaced", pvs.getPropertyValue("prop42").getValue());
+			assertEquals(new Integer(99), pvs.getPropertyValue("prop99").getValue());
+			assertNull(pvs.getPropertyValue("prop100"));
+
+			MutablePropertyValues copy = new MutablePropertyValues(pvs);
+			copy.addPropertyValue("extra", "value");
+			copy.removePropertyValue("prop0");
+			copy.setPropertyValueAt(new PropertyValue("renamed", "value"), 0);
+			assertEquals(100, copy.getPropertyValues().length);
+			assertNull(copy.getPropertyValue("prop1"));
+			assertEquals("renamed", copy.getPropertyValue("renamed").getName());
+			assertEquals("value", copy.getPropertyValue("extra").getValue());
+			assertEquals(new Integer(50), copy.getPropertyValue("prop50").getValue());
+
+			// the original is unaffected by changes to the copy
+			assertNull(pvs.getPropertyValue("extra"));
+			assertNull(pvs.getPropertyValue("renamed"));
+			assertEquals(new Integer(1), pvs.getPropertyValue("prop1").getValue());
+			assertEquals(new Integer(0), pvs.getPropertyValue("prop0").getValue());
+
+			// nor is the copy by changes to the original
+			copy = new MutablePropertyValues(pvs);
+			pvs.setPropertyValueAt(new PropertyValue("renamed", "value"), 2);
+			pvs.addPropertyValue("extra", "value");
+			assertEquals(new Integer(2), copy.getPropertyValue("prop2").getValue());
+			assertNull(copy.getPropertyValue("renamed"));
+			assertNull(copy.getPropertyValue("extra"));
+			assertNull(pvs.getPropertyValue("prop2"));
+			assertEquals("value", pvs.getPropertyValue("renamed").getValue());
+			assertEquals(101, pvs.getPropertyValues().length);
+			assertSame(pvs.getPropertyValues(), pvs.getPropertyValues());
+			assertEquals("extra", pvs.getPropertyValues()[100].getName());
+		}
+
 		public void testChangesOnEquals() throws Exception {
 			MutablePropertyValues pvs = new MutablePropertyValues();
 			pvs.addPropertyValue(new PropertyValue("forname", "Tony"));
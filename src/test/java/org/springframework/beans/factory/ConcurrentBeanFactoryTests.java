@@ -27,8 +27,10 @@ import junit.framework.TestCase;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.beans.ConversionService;
 import org.springframework.beans.factory.xml.XmlBeanFactory;
 import org.springframework.beans.propertyeditors.CustomDateEditor;
+import org.springframework.beans.propertyeditors.DateTimeFormatConverter;
 
 /**
  * @author Guillaume Poirier
@@ -99,6 +101,15 @@ public class ConcurrentBeanFactoryTests extends TestCase {
 		}
 	}
 
+	public void testConcurrentWithDateTimeFormatConverter() {
+		XmlBeanFactory factory = new XmlBeanFactory(getClass().getResourceAsStream("concurrent.xml"));
+		ConversionService conversionService = new ConversionService();
+		conversionService.addConverter(String.class, Date.class, DateTimeFormatConverter.forPattern(Date.class, "yyyy/MM/dd"));
+		factory.setConversionService(conversionService);
+		this.factory = factory;
+		testConcurrent();
+	}
+
 	private class TestRun implements Runnable {
 
 		public void run() {
@@ -18,24 +18,48 @@ package org.springframework.beans.factory;
 
 import junit.framework.TestCase;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.ConversionService;
+import org.springframework.beans.DerivedTestBean;
 import org.springframework.beans.ITestBean;
 import org.springframework.beans.MutablePropertyValues;
 import org.springframework.beans.NestedTestBean;
 import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TestBean;
 import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
+import org.springframework.beans.factory.support.ChildBeanDefinition;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.PropertiesBeanDefinitionReader;
 import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.beans.factory.support.StartupTimeline;
 import org.springframework.beans.factory.xml.ConstructorDependenciesBean;
 import org.springframework.beans.factory.xml.DependenciesBean;
 import org.springframework.beans.propertyeditors.CustomNumberEditor;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.beans.PropertyEditorManager;
+import java.beans.PropertyEditorSupport;
+import java.io.File;
 import java.text.NumberFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 //import org.springframework.aop.interceptor.SideEffectBean;
 
@@ -622,10 +646,1044 @@ public class DefaultListableBeanFactoryTestSuite extends TestCase {
     }
 
 
+    public void testBeanDefinitionNamesByType() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("test", new RootBeanDefinition(TestBean.class, null));
+        lbf.registerBeanDefinition("child", new ChildBeanDefinition("parent", null));
+        lbf.registerBeanDefinition("parent", new RootBeanDefinition(TestBean.class, null));
+        lbf.registerBeanDefinition("nested", new RootBeanDefinition(NestedTestBean.class, null));
+        assertEquals(Arrays.asList(new String[]{"test", "child", "parent"}),
+                Arrays.asList(lbf.getBeanDefinitionNames(ITestBean.class)));
+        assertEquals(4, lbf.getBeanDefinitionNames(Object.class).length);
+        assertEquals(0, lbf.getBeanDefinitionNames(DerivedTestBean.class).length);
+
+        // overriding the parent changes the type of the child as well
+        lbf.registerBeanDefinition("parent", new RootBeanDefinition(DerivedTestBean.class, null));
+        assertEquals(Arrays.asList(new String[]{"child", "parent"}),
+                Arrays.asList(lbf.getBeanDefinitionNames(DerivedTestBean.class)));
+        lbf.registerBeanDefinition("test", new RootBeanDefinition(NestedTestBean.class, null));
+        assertEquals(Arrays.asList(new String[]{"child", "parent"}),
+                Arrays.asList(lbf.getBeanDefinitionNames(ITestBean.class)));
+
+        lbf.registerSingleton("singleton", new DerivedTestBean());
+        assertEquals(1, lbf.getSingletonNames(ITestBean.class).length);
+        assertEquals(3, lbf.getBeansOfType(ITestBean.class, false, false).size());
+    }
+
+    public void testMergedBeanDefinitionCaching() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("name", "parent");
+        pvs.addPropertyValue("age", "10");
+        lbf.registerBeanDefinition("parent", new RootBeanDefinition(TestBean.class, pvs));
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("name", "child");
+        ChildBeanDefinition child = new ChildBeanDefinition("parent", pvs);
+        child.setSingleton(false);
+        lbf.registerBeanDefinition("child", child);
+        RootBeanDefinition merged = lbf.getMergedBeanDefinition("child", false);
+        assertSame(merged, lbf.getMergedBeanDefinition("child", false));
+        assertEquals("child", merged.getPropertyValues().getPropertyValue("name").getValue());
+
+        // re-registering the parent invalidates the merged child definition
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("age", "20");
+        lbf.registerBeanDefinition("parent", new RootBeanDefinition(TestBean.class, pvs));
+        assertEquals(20, ((TestBean) lbf.getBean("child")).getAge());
+
+        // modifications in place are picked up after clearing the metadata cache
+        lbf.getBeanDefinition("child").getPropertyValues().addPropertyValue("age", "30");
+        lbf.clearMetadataCache();
+        assertEquals(30, ((TestBean) lbf.getBean("child")).getAge());
+    }
+
+    public void testFrozenConfiguration() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("age", "10");
+        lbf.registerBeanDefinition("parent", new RootBeanDefinition(TestBean.class, pvs));
+        ChildBeanDefinition child = new ChildBeanDefinition("parent", new MutablePropertyValues());
+        child.setSingleton(false);
+        lbf.registerBeanDefinition("child", child);
+        lbf.registerAlias("child", "kid");
+        assertFalse(lbf.isConfigurationFrozen());
+        lbf.freezeConfiguration();
+        assertTrue(lbf.isConfigurationFrozen());
+
+        assertEquals(2, lbf.getBeanDefinitionCount());
+        assertEquals(Arrays.asList(new String[]{"parent", "child"}), Arrays.asList(lbf.getBeanDefinitionNames(ITestBean.class)));
+        assertSame(lbf.getMergedBeanDefinition("child", false), lbf.getMergedBeanDefinition("child", false));
+        assertEquals(10, ((TestBean) lbf.getBean("kid")).getAge());
+
+        // late registration replaces the snapshot
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("age", "20");
+        lbf.registerBeanDefinition("parent", new RootBeanDefinition(TestBean.class, pvs));
+        lbf.registerBeanDefinition("late", new RootBeanDefinition(TestBean.class, null));
+        assertTrue(lbf.containsBeanDefinition("late"));
+        assertEquals(3, lbf.getBeanDefinitionNames(TestBean.class).length);
+        assertEquals(20, ((TestBean) lbf.getBean("child")).getAge());
+
+        // modifications in place are picked up after clearing the metadata cache
+        lbf.getBeanDefinition("child").getPropertyValues().addPropertyValue("age", "30");
+        lbf.clearMetadataCache();
+        assertEquals(30, ((TestBean) lbf.getBean("child")).getAge());
+        assertTrue(lbf.isConfigurationFrozen());
+    }
+
+    public void testFrozenConfigurationTakenLazilyAfterLateRegistrations() {
+        final int[] merges = new int[1];
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory() {
+            public RootBeanDefinition getMergedBeanDefinition(String beanName, boolean includingAncestors) {
+                merges[0]++;
+                return super.getMergedBeanDefinition(beanName, includingAncestors);
+            }
+        };
+        lbf.freezeConfiguration();
+        for (int i = 0; i < 100; i++) {
+            lbf.registerBeanDefinition("bean" + i, new RootBeanDefinition(TestBean.class, null));
+        }
+        // no snapshot taken per registration
+        assertEquals(0, merges[0]);
+        assertEquals(100, lbf.getBeanDefinitionNames(TestBean.class).length);
+        assertEquals(100, merges[0]);
+        assertEquals(100, lbf.getBeanDefinitionCount());
+        assertEquals(100, merges[0]);
+    }
+
+    public void testMissingBeanLookupInHierarchy() {
+        DefaultListableBeanFactory parent = new DefaultListableBeanFactory();
+        DefaultListableBeanFactory child = new DefaultListableBeanFactory(parent);
+        assertFalse(child.containsBean("test"));
+        assertFalse(child.containsBean("test"));
+        try {
+            child.getBean("test");
+            fail("Should have thrown NoSuchBeanDefinitionException");
+        } catch (NoSuchBeanDefinitionException ex) {
+            // expected
+        }
+
+        // registration in the parent invalidates the cached miss of the child
+        parent.registerBeanDefinition("test", new RootBeanDefinition(TestBean.class, null));
+        assertTrue(child.containsBean("test"));
+        assertTrue(child.isSingleton("test"));
+        assertSame(parent.getBean("test"), child.getBean("test"));
+
+        assertFalse(child.containsBean("alias"));
+        parent.registerAlias("test", "alias");
+        parent.registerAlias("test", "otherAlias");
+        assertTrue(child.containsBean("alias"));
+        assertEquals(Arrays.asList(new String[]{"alias", "otherAlias"}), Arrays.asList(child.getAliases("test")));
+    }
+
+    public void testMissingBeanLookupInDeeperHierarchy() {
+        final int[] parentLookups = new int[1];
+        DefaultListableBeanFactory grandparent = new DefaultListableBeanFactory();
+        DefaultListableBeanFactory parent = new DefaultListableBeanFactory(grandparent) {
+            public boolean containsBean(String name) {
+                parentLookups[0]++;
+                return super.containsBean(name);
+            }
+        };
+        DefaultListableBeanFactory child = new DefaultListableBeanFactory(parent);
+        assertFalse(child.containsBean("test"));
+        assertFalse(child.containsBean("test"));
+        assertEquals(1, parentLookups[0]);
+
+        // registrations in unrelated factories keep the cached miss
+        new DefaultListableBeanFactory().registerBeanDefinition("test", new RootBeanDefinition(TestBean.class, null));
+        assertFalse(child.containsBean("test"));
+        assertEquals(1, parentLookups[0]);
+
+        // registration in an ancestor further up invalidates it
+        grandparent.registerBeanDefinition("test", new RootBeanDefinition(TestBean.class, null));
+        assertTrue(child.containsBean("test"));
+
+        // as does a change of parent further up
+        assertFalse(child.containsBean("other"));
+        DefaultListableBeanFactory otherGrandparent = new DefaultListableBeanFactory();
+        otherGrandparent.registerSingleton("other", new TestBean());
+        parent.setParentBeanFactory(otherGrandparent);
+        assertTrue(child.containsBean("other"));
+    }
+
+    public void testRegisterBeanDefinitionsInBulk() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.setAllowBeanDefinitionOverriding(false);
+        lbf.registerBeanDefinition("existing", new RootBeanDefinition(TestBean.class, null));
+        lbf.freezeConfiguration();
+        Map beanDefinitions = new LinkedHashMap();
+        for (int i = 0; i < 2000; i++) {
+            beanDefinitions.put("bean" + i, new RootBeanDefinition(i % 2 == 0 ? TestBean.class : DerivedTestBean.class, null));
+        }
+        beanDefinitions.put("child", new ChildBeanDefinition("bean1", null));
+        lbf.registerBeanDefinitions(beanDefinitions);
+        assertEquals(2002, lbf.getBeanDefinitionCount());
+        assertEquals(1001, lbf.getBeanDefinitionNames(DerivedTestBean.class).length);
+        assertEquals("bean1", lbf.getBeanDefinitionNames(DerivedTestBean.class)[0]);
+        assertEquals("child", lbf.getBeanDefinitionNames()[2001]);
+
+        // conflicts are detected before anything gets registered
+        beanDefinitions = new LinkedHashMap();
+        beanDefinitions.put("new", new RootBeanDefinition(TestBean.class, null));
+        beanDefinitions.put("existing", new RootBeanDefinition(TestBean.class, null));
+        try {
+            lbf.registerBeanDefinitions(beanDefinitions);
+            fail("Should have thrown BeanDefinitionStoreException");
+        } catch (BeanDefinitionStoreException ex) {
+            // expected
+        }
+        assertFalse(lbf.containsBeanDefinition("new"));
+    }
+
+    public void testRegisterBeanDefinitionsInBulkIsAtomic() throws InterruptedException {
+        final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("existing", new RootBeanDefinition(TestBean.class, null));
+        final Map beanDefinitions = new LinkedHashMap();
+        for (int i = 0; i < 2000; i++) {
+            beanDefinitions.put("bean" + i, new RootBeanDefinition(TestBean.class, null));
+        }
+        final List partial = Collections.synchronizedList(new ArrayList());
+        Thread reader = new Thread() {
+            public void run() {
+                int count;
+                do {
+                    String[] names = lbf.getBeanDefinitionNames();
+                    count = lbf.getBeanDefinitionCount();
+                    if ((names.length != 1 && names.length != 2001) || (count != 1 && count != 2001)) {
+                        partial.add(new Integer(names.length));
+                    }
+                    if (lbf.containsBeanDefinition("bean0") && !lbf.containsBeanDefinition("bean1999")) {
+                        partial.add("bean0");
+                    }
+                } while (count == 1);
+            }
+        };
+        reader.start();
+        lbf.registerBeanDefinitions(beanDefinitions);
+        reader.join();
+        assertTrue("Saw partial registration: " + partial, partial.isEmpty());
+    }
+
+    public void testCompactBeanDefinitions() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.setCompactBeanDefinitions(true);
+        for (int i = 0; i < 2; i++) {
+            MutablePropertyValues pvs = new MutablePropertyValues();
+            pvs.addPropertyValue(new String("name"), new String("value"));
+            pvs.addPropertyValue(new String("spouse"), new RuntimeBeanReference(new String("other")));
+            lbf.registerBeanDefinition("bean" + i, new RootBeanDefinition(TestBean.class, pvs));
+        }
+        PropertyValue pv0 = lbf.getBeanDefinition("bean0").getPropertyValues().getPropertyValue("name");
+        PropertyValue pv1 = lbf.getBeanDefinition("bean1").getPropertyValues().getPropertyValue("name");
+        assertSame(pv0.getName(), pv1.getName());
+        assertSame(pv0.getValue(), pv1.getValue());
+        assertSame(((RuntimeBeanReference) lbf.getBeanDefinition("bean0").getPropertyValues().getPropertyValue("spouse").getValue()).getBeanName(),
+                ((RuntimeBeanReference) lbf.getBeanDefinition("bean1").getPropertyValues().getPropertyValue("spouse").getValue()).getBeanName());
+
+        lbf.registerBeanDefinition("empty", new RootBeanDefinition(TestBean.class, null));
+        Map footprints = lbf.getBeanDefinitionFootprints();
+        assertEquals(Arrays.asList(new String[]{"bean0", "bean1", "empty"}), new ArrayList(footprints.keySet()));
+        assertTrue(((Long) footprints.get("empty")).longValue() > 0);
+        assertTrue(((Long) footprints.get("bean0")).longValue() > ((Long) footprints.get("empty")).longValue());
+    }
+
+    public void testLazyResolutionOfReferences() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("spouse", new RuntimeBeanReference("rod", true));
+        lbf.registerBeanDefinition("kerry", new RootBeanDefinition(TestBean.class, pvs));
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("name", "rod");
+        lbf.registerBeanDefinition("rod", new RootBeanDefinition(TestBean.class, pvs));
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("spouse", new RuntimeBeanReference("expensive"));
+        lbf.registerBeanDefinition("tony", new RootBeanDefinition(TestBean.class, pvs));
+        RootBeanDefinition expensive = new RootBeanDefinition(TestBean.class, null);
+        expensive.setLazyResolution(true);
+        lbf.registerBeanDefinition("expensive", expensive);
+
+        TestBean kerry = (TestBean) lbf.getBean("kerry");
+        TestBean tony = (TestBean) lbf.getBean("tony");
+        List singletons = Arrays.asList(lbf.getSingletonNames(TestBean.class));
+        assertFalse(singletons.contains("rod"));
+        assertFalse(singletons.contains("expensive"));
+        assertNotSame(lbf.getBean("rod"), kerry.getSpouse());
+
+        // first invocation resolves the target bean
+        assertEquals("rod", kerry.getSpouse().getName());
+        assertTrue(Arrays.asList(lbf.getSingletonNames(TestBean.class)).contains("rod"));
+        tony.getSpouse().setAge(5);
+        assertEquals(5, ((TestBean) lbf.getBean("expensive")).getAge());
+
+        // existing singletons get injected directly
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("spouse", new RuntimeBeanReference("rod", true));
+        lbf.registerBeanDefinition("other", new RootBeanDefinition(TestBean.class, pvs));
+        assertSame(lbf.getBean("rod"), ((TestBean) lbf.getBean("other")).getSpouse());
+    }
+
+    public void testLazyResolutionIntoConcreteTypedProperty() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("spouse", new RuntimeBeanReference("rod", true));
+        lbf.registerBeanDefinition("dependent", new RootBeanDefinition(DependenciesBean.class, pvs));
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("name", "rod");
+        lbf.registerBeanDefinition("rod", new RootBeanDefinition(TestBean.class, pvs));
+
+        // DependenciesBean's spouse property is declared as TestBean, not ITestBean:
+        // an interface proxy doesn't fit, so the reference gets resolved immediately
+        DependenciesBean dependent = (DependenciesBean) lbf.getBean("dependent");
+        assertTrue(Arrays.asList(lbf.getSingletonNames(TestBean.class)).contains("rod"));
+        assertSame(lbf.getBean("rod"), dependent.getSpouse());
+    }
+
+    public void testLazyResolutionDefersConstruction() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("service", new RuntimeBeanReference("expensive", true));
+        lbf.registerBeanDefinition("holder", new RootBeanDefinition(ServiceHolder.class, pvs));
+        lbf.registerBeanDefinition("expensive", new RootBeanDefinition(ExpensiveService.class, null));
+        ExpensiveService.constructed = 0;
+
+        ServiceHolder holder = (ServiceHolder) lbf.getBean("holder");
+        assertEquals(0, ExpensiveService.constructed);
+        assertEquals("expensive", holder.service.getName());
+        assertEquals(1, ExpensiveService.constructed);
+        holder.service.getName();
+        assertEquals(1, ExpensiveService.constructed);
+    }
+
+    public void testLifecycleMethods() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        RootBeanDefinition prototype = new RootBeanDefinition(LifecycleBean.class, null);
+        prototype.setSingleton(false);
+        prototype.setInitMethodName("init");
+        lbf.registerBeanDefinition("prototype", prototype);
+        RootBeanDefinition singleton = new RootBeanDefinition(LifecycleBean.class, null);
+        singleton.setDestroyMethodName("destroy");
+        lbf.registerBeanDefinition("singleton", singleton);
+        lbf.freezeConfiguration();
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(((LifecycleBean) lbf.getBean("prototype")).initialized);
+        }
+        LifecycleBean bean = (LifecycleBean) lbf.getBean("singleton");
+        assertFalse(bean.initialized);
+        lbf.destroySingletons();
+        assertTrue(bean.forcedDestruction);
+
+        RootBeanDefinition invalid = new RootBeanDefinition(LifecycleBean.class, null);
+        invalid.setInitMethodName("start");
+        lbf.registerBeanDefinition("invalid", invalid);
+        try {
+            lbf.freezeConfiguration();
+            fail("Should have thrown BeanDefinitionStoreException");
+        } catch (BeanDefinitionStoreException ex) {
+            // expected
+            assertTrue(ex.getMessage().indexOf("'invalid'") != -1);
+            assertTrue(ex.getMessage().indexOf("start") != -1);
+        }
+    }
+
+    public void testStartupTimeline() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("spouse", new RuntimeBeanReference("rod"));
+        lbf.registerBeanDefinition("kerry", new RootBeanDefinition(TestBean.class, pvs));
+        lbf.registerBeanDefinition("rod", new RootBeanDefinition(TestBean.class, null));
+        StartupTimeline timeline = new StartupTimeline();
+        lbf.setStartupTimeline(timeline);
+        lbf.getBean("kerry");
+        lbf.setStartupTimeline(null);
+        lbf.registerBeanDefinition("untracked", new RootBeanDefinition(TestBean.class, null));
+        lbf.getBean("untracked");
+
+        List steps = timeline.getSteps();
+        StartupTimeline.Step kerry = (StartupTimeline.Step) steps.get(0);
+        assertEquals("bean.create", kerry.getName());
+        assertEquals("kerry", kerry.getBeanName());
+        assertEquals(0, kerry.getParentId());
+        StartupTimeline.Step rod = null;
+        for (int i = 0; i < steps.size(); i++) {
+            StartupTimeline.Step step = (StartupTimeline.Step) steps.get(i);
+            assertTrue(step.isEnded());
+            assertFalse("untracked".equals(step.getBeanName()));
+            if ("bean.create".equals(step.getName()) && "rod".equals(step.getBeanName())) {
+                rod = step;
+            }
+        }
+        // rod got created while populating kerry
+        StartupTimeline.Step populate = (StartupTimeline.Step) steps.get(rod.getParentId() - 1);
+        assertEquals("bean.populate", populate.getName());
+        assertEquals(kerry.getId(), populate.getParentId());
+        assertTrue(kerry.getDurationMicros() >= rod.getDurationMicros());
+
+        assertTrue(timeline.toJson().startsWith("{\"steps\":[{\"id\":1,\"parentId\":0,\"name\":\"bean.create\",\"bean\":\"kerry\""));
+        assertTrue(timeline.toChromeTrace().indexOf("\"name\":\"bean.create rod\",\"cat\":\"startup\",\"ph\":\"X\"") != -1);
+    }
+
+    public void testBeanCreationFlightRecorderEvents() throws Exception {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("fast", new RootBeanDefinition(TestBean.class, null));
+        lbf.registerBeanDefinition("untracked", new RootBeanDefinition(TestBean.class, null));
+        File file = File.createTempFile("beans", ".jfr");
+        try {
+            Recording recording = new Recording();
+            recording.enable("org.springframework.BeanCreation").withThreshold(Duration.ZERO);
+            recording.start();
+            lbf.getBean("fast");
+            recording.stop();
+            lbf.getBean("untracked");
+            recording.dump(file.toPath());
+            recording.close();
+
+            List events = RecordingFile.readAllEvents(file.toPath());
+            assertEquals(1, events.size());
+            RecordedEvent event = (RecordedEvent) events.get(0);
+            assertEquals("fast", event.getString("beanName"));
+            assertEquals(TestBean.class.getName(), event.getClass("beanClass").getName());
+            assertTrue(event.getBoolean("singleton"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testParallelPreInstantiation() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.setPreInstantiationParallelism(4);
+        for (int i = 0; i < 100; i++) {
+            MutablePropertyValues pvs = new MutablePropertyValues();
+            if (i > 0) {
+                // binary tree of references: bean i refers to bean (i - 1) / 2
+                pvs.addPropertyValue(new PropertyValue("spouse", new RuntimeBeanReference("bean" + ((i - 1) / 2))));
+            }
+            lbf.registerBeanDefinition("bean" + i, new RootBeanDefinition(TestBean.class, pvs));
+        }
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue(new PropertyValue("spouse", new RuntimeBeanReference("circle2")));
+        lbf.registerBeanDefinition("circle1", new RootBeanDefinition(TestBean.class, pvs));
+        pvs = new MutablePropertyValues();
+        pvs.addPropertyValue(new PropertyValue("spouse", new RuntimeBeanReference("circle1")));
+        lbf.registerBeanDefinition("circle2", new RootBeanDefinition(TestBean.class, pvs));
+        lbf.preInstantiateSingletons();
+
+        assertEquals(102, lbf.getSingletonNames(TestBean.class).length);
+        for (int i = 1; i < 100; i++) {
+            TestBean bean = (TestBean) lbf.getBean("bean" + i);
+            assertSame(lbf.getBean("bean" + ((i - 1) / 2)), bean.getSpouse());
+        }
+        assertSame(lbf.getBean("circle2"), ((TestBean) lbf.getBean("circle1")).getSpouse());
+        assertSame(lbf.getBean("circle1"), ((TestBean) lbf.getBean("circle2")).getSpouse());
+    }
+
+    public void testParallelPreInstantiationFailure() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.setPreInstantiationParallelism(4);
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue(new PropertyValue("age", "not a number"));
+        lbf.registerBeanDefinition("broken", new RootBeanDefinition(TestBean.class, pvs));
+        try {
+            lbf.preInstantiateSingletons();
+            fail("Should have thrown BeanCreationException");
+        } catch (BeanCreationException ex) {
+            // expected
+        }
+    }
+
+    public void testSingletonCreationDoesNotBlockUnrelatedSingletons() throws Exception {
+        final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("slow", new RootBeanDefinition(SlowBean.class, null));
+        lbf.registerBeanDefinition("fast", new RootBeanDefinition(TestBean.class, null));
+        SlowBean.started = new CountDownLatch(1);
+        SlowBean.release = new CountDownLatch(1);
+        Thread slowCreator = new Thread() {
+            public void run() {
+                lbf.getBean("slow");
+            }
+        };
+        slowCreator.setDaemon(true);
+        slowCreator.start();
+        assertTrue(SlowBean.started.await(5, TimeUnit.SECONDS));
+        // creation of "fast" must not wait for "slow", which waits for us
+        assertNotNull(lbf.getBean("fast"));
+        SlowBean.release.countDown();
+        slowCreator.join(10000);
+        assertFalse(slowCreator.isAlive());
+        assertTrue(SlowBean.released);
+        assertSame(lbf.getBean("slow"), lbf.getBean("slow"));
+    }
+
+    public void testDestroySingletonsAwaitsSingletonCreation() throws Exception {
+        final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("slow", new RootBeanDefinition(SlowBean.class, null));
+        SlowBean.started = new CountDownLatch(1);
+        SlowBean.release = new CountDownLatch(1);
+        Thread slowCreator = new Thread() {
+            public void run() {
+                lbf.getBean("slow");
+            }
+        };
+        slowCreator.setDaemon(true);
+        slowCreator.start();
+        assertTrue(SlowBean.started.await(5, TimeUnit.SECONDS));
+        Thread destroyer = new Thread() {
+            public void run() {
+                lbf.destroySingletons();
+            }
+        };
+        destroyer.setDaemon(true);
+        destroyer.start();
+        SlowBean.release.countDown();
+        slowCreator.join(10000);
+        destroyer.join(10000);
+        assertFalse(destroyer.isAlive());
+        // the singleton created concurrently has been destroyed as well
+        assertEquals(0, lbf.getSingletonNames(SlowBean.class).length);
+    }
+
+    public void testSingletonCreationRejectedDuringDestruction() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("creatingOnDestroy", new RootBeanDefinition(CreatingOnDestroyBean.class, null));
+        lbf.registerBeanDefinition("late", new RootBeanDefinition(TestBean.class, null));
+        CreatingOnDestroyBean bean = (CreatingOnDestroyBean) lbf.getBean("creatingOnDestroy");
+        lbf.destroySingletons();
+        assertTrue(bean.exception instanceof BeanCreationException);
+        // creation allowed again once destroyed
+        assertNotNull(lbf.getBean("late"));
+    }
+
+    public void testPrototypeCreationWithInstantiationRecipe() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("spouse", new RootBeanDefinition(TestBean.class, null, false));
+        ConstructorArgumentValues cargs = new ConstructorArgumentValues();
+        cargs.addIndexedArgumentValue(0, "kerry");
+        cargs.addIndexedArgumentValue(1, "34");
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("myFloat", "1.5");
+        pvs.addPropertyValue("spouse", new RuntimeBeanReference("spouse"));
+        RootBeanDefinition bd = new RootBeanDefinition(TestBean.class, cargs, pvs);
+        bd.setSingleton(false);
+        lbf.registerBeanDefinition("kerry", bd);
+
+        TestBean kerry1 = (TestBean) lbf.getBean("kerry");
+        TestBean kerry2 = (TestBean) lbf.getBean("kerry");
+        assertNotSame(kerry1, kerry2);
+        assertEquals("kerry", kerry2.getName());
+        assertEquals(34, kerry2.getAge());
+        assertEquals(new Float(1.5), kerry2.getMyFloat());
+        assertNotNull(kerry2.getSpouse());
+        assertNotSame(kerry1.getSpouse(), kerry2.getSpouse());
+
+        // in-place modifications get picked up after clearing the metadata cache
+        cargs.addIndexedArgumentValue(1, "35");
+        pvs.addPropertyValue("myFloat", "2.5");
+        lbf.clearMetadataCache();
+        TestBean kerry3 = (TestBean) lbf.getBean("kerry");
+        assertEquals(35, kerry3.getAge());
+        assertEquals(new Float(2.5), kerry3.getMyFloat());
+    }
+
+
     public static class NoDependencies {
     }
 
 
+    public void testDestructionOrderFollowsDependencies() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("a", new RootBeanDefinition(DestructionOrderBean.class, null));
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("dependency", new RuntimeBeanReference("a"));
+        lbf.registerBeanDefinition("b", new RootBeanDefinition(DestructionOrderBean.class, pvs));
+        RootBeanDefinition c = new RootBeanDefinition(DestructionOrderBean.class, null);
+        c.setDependsOn(new String[]{"b"});
+        lbf.registerBeanDefinition("c", c);
+        lbf.preInstantiateSingletons();
+
+        DestructionOrderBean.destroyed.clear();
+        lbf.destroySingletons();
+        assertEquals(Arrays.asList(new String[]{"c", "b", "a"}), DestructionOrderBean.destroyed);
+    }
+
+    public void testDestructionOrderFollowsDependenciesOfInnerBeans() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("a", new RootBeanDefinition(DestructionOrderBean.class, null));
+        MutablePropertyValues innerPvs = new MutablePropertyValues();
+        innerPvs.addPropertyValue("dependency", new RuntimeBeanReference("a"));
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("dependency", new RootBeanDefinition(DestructionOrderBean.class, innerPvs));
+        lbf.registerBeanDefinition("b", new RootBeanDefinition(DestructionOrderBean.class, pvs));
+        lbf.preInstantiateSingletons();
+
+        DestructionOrderBean.destroyed.clear();
+        lbf.destroySingletons();
+        // "b" holds an inner bean referencing "a", so gets destroyed first
+        assertTrue(DestructionOrderBean.destroyed.indexOf("b") < DestructionOrderBean.destroyed.indexOf("a"));
+    }
+
+
+    public void testParallelDestruction() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.setDestructionParallelism(4);
+        for (int i = 0; i < 10; i++) {
+            MutablePropertyValues pvs = new MutablePropertyValues();
+            if (i > 0) {
+                pvs.addPropertyValue("dependency", new RuntimeBeanReference("bean" + (i - 1)));
+            }
+            lbf.registerBeanDefinition("bean" + i, new RootBeanDefinition(DestructionOrderBean.class, pvs));
+            lbf.registerBeanDefinition("independent" + i, new RootBeanDefinition(DestructionOrderBean.class, null));
+        }
+        lbf.preInstantiateSingletons();
+
+        DestructionOrderBean.destroyed.clear();
+        lbf.destroySingletons();
+        assertEquals(20, DestructionOrderBean.destroyed.size());
+        for (int i = 1; i < 10; i++) {
+            assertTrue(DestructionOrderBean.destroyed.indexOf("bean" + i) <
+                    DestructionOrderBean.destroyed.indexOf("bean" + (i - 1)));
+        }
+    }
+
+    public void testDestructionWithBeanDestructionTimeout() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.setBeanDestructionTimeout(100);
+        lbf.registerBeanDefinition("dependency", new RootBeanDefinition(DestructionOrderBean.class, null));
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("dependency", new RuntimeBeanReference("dependency"));
+        lbf.registerBeanDefinition("slow", new RootBeanDefinition(SlowDestructionBean.class, pvs));
+        lbf.preInstantiateSingletons();
+
+        SlowDestructionBean.release = new CountDownLatch(1);
+        DestructionOrderBean.destroyed.clear();
+        long startTime = System.currentTimeMillis();
+        lbf.destroySingletons();
+        // "dependency" destroyed without waiting for "slow" to finish
+        assertTrue(System.currentTimeMillis() - startTime < 5000);
+        assertEquals(Arrays.asList(new String[]{"dependency"}), DestructionOrderBean.destroyed);
+        SlowDestructionBean.release.countDown();
+    }
+
+
+    public void testSingletonFactoryBeanObjectIsCached() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("factory", new RootBeanDefinition(CountingFactoryBean.class, null));
+        CountingFactoryBean factory = (CountingFactoryBean) lbf.getBean("&factory");
+        Object object = lbf.getBean("factory");
+        assertSame(object, lbf.getBean("factory"));
+        assertEquals(1, factory.count);
+
+        lbf.destroySingletons();
+        factory = (CountingFactoryBean) lbf.getBean("&factory");
+        factory.singleton = false;
+        assertNotSame(lbf.getBean("factory"), lbf.getBean("factory"));
+        assertEquals(2, factory.count);
+    }
+
+    public void testSelectiveBeanPostProcessor() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.addBeanPostProcessor(new BeanPostProcessor() {
+            public Object postProcessBeforeInitialization(Object bean, String name) {
+                return ("replaced".equals(name) ? new DerivedTestBean() : bean);
+            }
+
+            public Object postProcessAfterInitialization(Object bean, String name) {
+                return bean;
+            }
+        });
+        CountingPostProcessor counter = new CountingPostProcessor();
+        lbf.addBeanPostProcessor(counter);
+        RootBeanDefinition bd = new RootBeanDefinition(TestBean.class, null);
+        bd.setSingleton(false);
+        lbf.registerBeanDefinition("plain", bd);
+        lbf.registerBeanDefinition("replaced", bd);
+        bd = new RootBeanDefinition(DerivedTestBean.class, null);
+        bd.setSingleton(false);
+        lbf.registerBeanDefinition("derived", bd);
+
+        lbf.getBean("plain");
+        lbf.getBean("plain");
+        assertEquals(0, counter.before);
+        assertEquals(0, counter.after);
+        lbf.getBean("derived");
+        assertEquals(1, counter.before);
+        assertEquals(1, counter.after);
+        // processors after the replacing one are chosen for the replacement's class
+        assertTrue(lbf.getBean("replaced") instanceof DerivedTestBean);
+        assertEquals(2, counter.before);
+        assertEquals(2, counter.after);
+
+        // replacing a post-processor in place invalidates the cached ones
+        CountingPostProcessor replacement = new CountingPostProcessor();
+        lbf.getBeanPostProcessors().set(1, replacement);
+        lbf.getBean("derived");
+        assertEquals(2, counter.before);
+        assertEquals(1, replacement.before);
+        lbf.getBeanPostProcessors().remove(1);
+        lbf.getBeanPostProcessors().add(counter);
+        lbf.getBean("derived");
+        assertEquals(3, counter.before);
+        assertEquals(1, replacement.before);
+    }
+
+    public void testSingletonFactoryBeanObjectInCircularReferenceBetweenThreads() throws Exception {
+        final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        lbf.registerBeanDefinition("factory", new RootBeanDefinition(LatchedFactoryBean.class, null));
+        MutablePropertyValues pvs = new MutablePropertyValues();
+        pvs.addPropertyValue("spouse", new RuntimeBeanReference("factory"));
+        lbf.registerBeanDefinition("dependent", new RootBeanDefinition(TestBean.class, pvs));
+        LatchedFactoryBean.entered = new CountDownLatch(1);
+        LatchedFactoryBean.release = new CountDownLatch(1);
+
+        // thread 1 creates the factory's object, which needs "dependent"...
+        final List failures = Collections.synchronizedList(new ArrayList());
+        Thread objectCreator = new Thread(() -> {
+            try {
+                lbf.getBean("factory");
+            } catch (BeansException ex) {
+                failures.add(ex);
+            }
+        });
+        objectCreator.start();
+        assertTrue(LatchedFactoryBean.entered.await(10, TimeUnit.SECONDS));
+        // ...while thread 2 creates "dependent", which needs the factory's object
+        Thread dependentCreator = new Thread(() -> {
+            try {
+                lbf.getBean("dependent");
+            } catch (BeansException ex) {
+                failures.add(ex);
+            }
+        });
+        dependentCreator.start();
+        Thread.sleep(200);
+        LatchedFactoryBean.release.countDown();
+        objectCreator.join(10000);
+        dependentCreator.join(10000);
+
+        // thread 2 fails instead of getting a second object
+        LatchedFactoryBean factory = (LatchedFactoryBean) lbf.getBean("&factory");
+        assertEquals(1, factory.count);
+        assertTrue(failures.size() <= 1);
+        assertSame(lbf.getBean("factory"), ((TestBean) lbf.getBean("dependent")).getSpouse());
+    }
+
+    public void testDestroyMethodDeclaredByNonPublicClass() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        // the executor's class is private to java.util.concurrent: shutdown gets invoked via ExecutorService
+        lbf.registerBean("executor", ExecutorService.class, Executors::newSingleThreadExecutor,
+                bd -> bd.setDestroyMethodName("shutdown"));
+        ExecutorService executor = (ExecutorService) lbf.getBean("executor");
+        lbf.destroySingletons();
+        assertTrue(executor.isShutdown());
+    }
+
+    public void testRegisterBeanWithInstanceSupplier() {
+        DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        final List created = new ArrayList();
+        lbf.registerBean("supplied", TestBean.class, () -> {
+            TestBean tb = new TestBean("supplied", 1);
+            created.add(tb);
+            return tb;
+        });
+        lbf.registerBean("prototype", TestBean.class, TestBean::new, bd -> {
+            bd.setSingleton(false);
+            bd.getPropertyValues().addPropertyValue("age", "42");
+        });
+        lbf.registerBean("named", DestructionOrderBean.class, DestructionOrderBean::new);
+
+        assertSame(lbf.getBean("supplied"), lbf.getBean("supplied"));
+        assertEquals(1, created.size());
+        assertEquals("supplied", ((TestBean) lbf.getBean("supplied")).getName());
+        TestBean prototype = (TestBean) lbf.getBean("prototype");
+        assertNotSame(prototype, lbf.getBean("prototype"));
+        assertEquals(42, prototype.getAge());
+        assertEquals(Arrays.asList(new String[]{"supplied", "prototype"}),
+                Arrays.asList(lbf.getBeanDefinitionNames(TestBean.class)));
+
+        // lifecycle callbacks still apply to supplied instances
+        DestructionOrderBean.destroyed.clear();
+        lbf.getBean("named");
+        lbf.destroySingletons();
+        assertTrue(DestructionOrderBean.destroyed.contains("named"));
+    }
+
+    public void testConversionServiceWithConcurrentCustomEditor() throws Exception {
+        final DefaultListableBeanFactory lbf = new DefaultListableBeanFactory();
+        ConversionService conversionService = new ConversionService();
+        conversionService.addConverter(String.class, ITestBean.class, source -> new TestBean((String) source, 0));
+        lbf.setConversionService(conversionService);
+        NumberFormat nf = NumberFormat.getInstance(Locale.UK);
+        lbf.registerCustomEditor(Float.class, new CustomNumberEditor(Float.class, nf, true));
+        RootBeanDefinition bd = new RootBeanDefinition(TestBean.class, null);
+        bd.setSingleton(false);
+        bd.getPropertyValues().addPropertyValue("spouse", "kerry");
+        bd.getPropertyValues().addPropertyValue("myFloat", "1.5");
+        bd.getPropertyValues().addPropertyValue("age", "7");
+        lbf.registerBeanDefinition("prototype", bd);
+
+        final List failures = Collections.synchronizedList(new ArrayList());
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 200; j++) {
+                        TestBean tb = (TestBean) lbf.getBean("prototype");
+                        assertEquals("kerry", tb.getSpouse().getName());
+                        assertEquals(new Float(1.5), tb.getMyFloat());
+                        assertEquals(7, tb.getAge());
+                    }
+                } catch (Throwable ex) {
+                    failures.add(ex);
+                }
+            });
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertEquals(Collections.EMPTY_LIST, failures);
+        assertSame(conversionService.getConverter(String.class, ITestBean.class),
+                conversionService.getConverter(String.class, ITestBean.class));
+        assertNull(conversionService.getConverter(String.class, DestructionOrderBean.class));
+    }
+
+    public void testDefaultConversionService() {
+        ConversionService defaultService = ConversionService.getDefault();
+        try {
+            defaultService.addConverter(String.class, ITestBean.class, source -> new TestBean((String) source, 0));
+            fail("Should have thrown UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // expected
+        }
+        assertNull(defaultService.getConverter(String.class, DestructionOrderBean.class));
+
+        // the default service picks up editors registered later on
+        PropertyEditorManager.registerEditor(DestructionOrderBean.class, BeanNamePropertyEditor.class);
+        try {
+            DestructionOrderBean bean = (DestructionOrderBean) defaultService.convert("name", DestructionOrderBean.class);
+            assertEquals("name", bean.beanName);
+        } finally {
+            PropertyEditorManager.registerEditor(DestructionOrderBean.class, null);
+        }
+        assertNull(defaultService.getConverter(String.class, DestructionOrderBean.class));
+
+        // editors and misses for JDK types are cached nevertheless
+        assertSame(defaultService.getConverter(String.class, float.class),
+                defaultService.getConverter(String.class, float.class));
+        assertEquals(new Float(1.5f), defaultService.convert("1.5", float.class));
+        assertNull(defaultService.getConverter(String.class, Thread.class));
+    }
+
+
+    public static class CountingPostProcessor implements SelectiveBeanPostProcessor {
+
+        public int before;
+
+        public int after;
+
+        public boolean isApplicableTo(Class beanClass) {
+            return DerivedTestBean.class.isAssignableFrom(beanClass);
+        }
+
+        public Object postProcessBeforeInitialization(Object bean, String name) {
+            this.before++;
+            return bean;
+        }
+
+        public Object postProcessAfterInitialization(Object bean, String name) {
+            this.after++;
+            return bean;
+        }
+    }
+
+
+    public static class CountingFactoryBean implements FactoryBean {
+
+        public boolean singleton = true;
+
+        public int count;
+
+        public Object getObject() {
+            this.count++;
+            return new TestBean();
+        }
+
+        public Class getObjectType() {
+            return TestBean.class;
+        }
+
+        public boolean isSingleton() {
+            return this.singleton;
+        }
+    }
+
+
+    public interface Service {
+
+        String getName();
+    }
+
+
+    public static class ExpensiveService implements Service {
+
+        public static int constructed;
+
+        public ExpensiveService() {
+            constructed++;
+        }
+
+        public String getName() {
+            return "expensive";
+        }
+    }
+
+
+    public static class ServiceHolder {
+
+        private Service service;
+
+        public void setService(Service service) {
+            this.service = service;
+        }
+    }
+
+
+    public static class LatchedFactoryBean implements FactoryBean, BeanFactoryAware {
+
+        public static CountDownLatch entered;
+
+        public static CountDownLatch release;
+
+        public volatile int count;
+
+        private BeanFactory beanFactory;
+
+        private Thread creator;
+
+        private TestBean object;
+
+        public void setBeanFactory(BeanFactory beanFactory) {
+            this.beanFactory = beanFactory;
+        }
+
+        public Object getObject() throws Exception {
+            if (this.creator == Thread.currentThread()) {
+                // circular reference from within our own creation of the object
+                return this.object;
+            }
+            this.count++;
+            this.creator = Thread.currentThread();
+            this.object = new TestBean();
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            this.object.setSpouse((TestBean) this.beanFactory.getBean("dependent"));
+            return this.object;
+        }
+
+        public Class getObjectType() {
+            return TestBean.class;
+        }
+
+        public boolean isSingleton() {
+            return true;
+        }
+    }
+
+
+    public static class SlowDestructionBean extends DestructionOrderBean {
+
+        public static CountDownLatch release;
+
+        public void destroy() {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    public static class DestructionOrderBean implements BeanNameAware, DisposableBean {
+
+        public static final List destroyed = Collections.synchronizedList(new ArrayList());
+
+        private String beanName;
+
+        public void setBeanName(String beanName) {
+            this.beanName = beanName;
+        }
+
+        public void setDependency(Object dependency) {
+        }
+
+        public void destroy() {
+            destroyed.add(this.beanName);
+        }
+    }
+
+
+    public static class BeanNamePropertyEditor extends PropertyEditorSupport {
+
+        public void setAsText(String text) {
+            DestructionOrderBean bean = new DestructionOrderBean();
+            bean.setBeanName(text);
+            setValue(bean);
+        }
+    }
+
+
+    public static class LifecycleBean {
+
+        public boolean initialized;
+
+        public boolean forcedDestruction;
+
+        public void init() {
+            this.initialized = true;
+        }
+
+        public void destroy(boolean force) {
+            this.forcedDestruction = force;
+        }
+    }
+
+
+    public static class SlowBean {
+
+        public static CountDownLatch started;
+
+        public static CountDownLatch release;
+
+        public static boolean released;
+
+        public SlowBean() throws InterruptedException {
+            started.countDown();
+            released = release.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+
+    public static class CreatingOnDestroyBean implements BeanFactoryAware, DisposableBean {
+
+        private BeanFactory beanFactory;
+
+        public Exception exception;
+
+        public void setBeanFactory(BeanFactory beanFactory) {
+            this.beanFactory = beanFactory;
+        }
+
+        public void destroy() {
+            try {
+                this.beanFactory.getBean("late");
+            } catch (Exception ex) {
+                this.exception = ex;
+            }
+        }
+    }
+
+
     public static class ConstructorDependency {
 
         public TestBean spouse;
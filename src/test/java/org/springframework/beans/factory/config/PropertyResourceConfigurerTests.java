@@ -129,6 +129,15 @@ public class PropertyResourceConfigurerTests extends TestCase {
 		assertEquals(System.getProperty("os.name"), inner2.getTouchy());
 	}
 
+	public void testPropertyPlaceholderConfigurerKeepsLazyReference() {
+		Properties props = new Properties();
+		props.setProperty("ref", "tb2");
+		PropertyPlaceholderConfigurer ppc = new PropertyPlaceholderConfigurer();
+		RuntimeBeanReference ref = (RuntimeBeanReference) ppc.parseValue(props, new RuntimeBeanReference("${ref}", true));
+		assertEquals("tb2", ref.getBeanName());
+		assertTrue(ref.isLazy());
+	}
+
 	public void testPropertyPlaceholderConfigurerWithSystemPropertyFallback() {
 		StaticApplicationContext ac = new StaticApplicationContext();
 		MutablePropertyValues pvs = new MutablePropertyValues();
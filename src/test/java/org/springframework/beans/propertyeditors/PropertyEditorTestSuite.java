@@ -18,10 +18,17 @@
 package org.springframework.beans.propertyeditors;
 
 import junit.framework.TestCase;
+import org.springframework.beans.ConversionService;
 import org.springframework.beans.TestBean;
 
 import java.beans.PropertyEditor;
 import java.io.File;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
 import java.util.Locale;
 import java.util.Properties;
 
@@ -168,4 +175,44 @@ public class PropertyEditorTestSuite extends TestCase {
         assertEquals("en_CA", localeEditor.getAsText());
     }
 
+    public void testDateTimeFormatConverter() {
+        ZoneId zone = ZoneId.of("Europe/Vienna");
+        DateTimeFormatter formatter = DateTimeFormatConverter.getFormatter("yyyy/MM/dd");
+        assertSame(formatter, DateTimeFormatConverter.getFormatter("yyyy/MM/dd"));
+
+        DateTimeFormatConverter dateConverter = new DateTimeFormatConverter(Date.class, formatter, zone, true);
+        Date date = (Date) dateConverter.convert("2004/08/08");
+        assertEquals(LocalDate.of(2004, 8, 8).atStartOfDay(zone).toInstant(), date.toInstant());
+        assertEquals("2004/08/08", dateConverter.format(date));
+        assertNull(dateConverter.convert(" "));
+
+        assertEquals(LocalDate.of(2000, 2, 2),
+                DateTimeFormatConverter.forPattern(LocalDate.class, "yyyy/MM/dd").convert("2000/02/02"));
+        assertEquals(LocalDateTime.of(2000, 2, 2, 13, 30),
+                DateTimeFormatConverter.forPattern(LocalDateTime.class, "yyyy-MM-dd HH:mm").convert("2000-02-02 13:30"));
+        DateTimeFormatConverter instantConverter = new DateTimeFormatConverter(
+                Instant.class, DateTimeFormatConverter.getFormatter("yyyy-MM-dd HH:mm XXX"), zone, false);
+        assertEquals(Instant.parse("2000-02-02T12:30:00Z"), instantConverter.convert("2000-02-02 13:30 +01:00"));
+
+        // ISO-8601 defaults
+        ConversionService conversionService = ConversionService.getDefault();
+        assertEquals(Instant.parse("2000-02-02T12:30:00Z"), conversionService.convert("2000-02-02T12:30:00Z", Instant.class));
+        assertEquals(LocalDate.of(2000, 2, 2), conversionService.convert("2000-02-02", LocalDate.class));
+
+        try {
+            dateConverter.convert("2004-08-08");
+            fail("Should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            DateTimeFormatConverter.forPattern(String.class, "yyyy");
+            fail("Should have thrown IllegalArgumentException");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
 }